@@ -1,23 +1,28 @@
 package frc.robot;
 
-import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
 import frc.robot.commands.ArmUpTimedCommand;
 import frc.robot.commands.ArmDownTimedCommand;
 import frc.robot.commands.CoralOutTimedCommand;
 import frc.robot.commands.AlgieInTimedCommand;
 import frc.robot.subsystems.ArmSubsystem;
 import frc.robot.subsystems.RollerSubsystem;
+import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.util.AllianceCache;
+import frc.robot.util.Dashboard;
 
 public class Autos {
     private final RollerSubsystem m_roller;
+    private final SwerveSubsystem m_drive;
     private SendableChooser<Command> autoChooser;
-    
-    public Autos(RollerSubsystem roll, ArmSubsystem arm) {
+
+    public Autos(RollerSubsystem roll, ArmSubsystem arm, SwerveSubsystem drive) {
         m_roller = roll;
+        m_drive = drive;
         // Named Commands //
         NamedCommands.registerCommand("coralOut", new CoralOutTimedCommand(m_roller, 5));
         NamedCommands.registerCommand("holdArm", new ArmUpTimedCommand(arm, 0.1));
@@ -28,36 +33,56 @@ public class Autos {
 
         // Autos //
         autoChooser = new SendableChooser<Command>();
-        autoChooser.addOption("Score Two Coral", AutoBuilder.buildAuto("scoreTwoCoralEFKLSides"));
-<<<<<<< Updated upstream
-        autoChooser.addOption("Drive Forward", AutoBuilder.buildAuto("DriveForward"));
-        autoChooser.addOption("Score One Coral From Side Start", AutoBuilder.buildAuto("AutoThatWillWorkWith6045"));
-=======
-        autoChooser.addOption("[LEFT] Drive Forward", AutoBuilder.buildAuto("DriveForward-Left"));
-        autoChooser.addOption("[MIDDLE] Drive Forward", AutoBuilder.buildAuto("DriveForward"));
-        autoChooser.addOption("[RIGHT] Drive Forward", AutoBuilder.buildAuto("DriveForward-Right"));
-        autoChooser.addOption("[LEFT] Drive forward and knock down algae", AutoBuilder.buildAuto("scoreOneCoralAndDropAlgae-left"));
-        autoChooser.addOption("[MIDDLE] Drive forward and knock down algae", AutoBuilder.buildAuto("scoreOneCoralAndDropAlgae"));
-        autoChooser.addOption("[RIGHT] Drive forward and knock down algae", AutoBuilder.buildAuto("scoreOneCoralAndDropAlgae-right"));
-        //autoChooser.addOption("[LEFT] Move off of line", AutoBuilder.buildAuto("moveOffOfLine-left"));
-        autoChooser.addOption("[ANY] Move off of line", AutoBuilder.buildAuto("moveOffOfLine"));
-        //autoChooser.addOption("[RIGHT] Move off of line", AutoBuilder.buildAuto("moveOffOfLine-right"));
-        autoChooser.addOption("[LEFT] Score two coral", AutoBuilder.buildAuto("scoreTwoCoral-left"));
-        autoChooser.addOption("[MIDDLE] Score two coral", AutoBuilder.buildAuto("scoreTwoCoral"));
-        autoChooser.addOption("[RIGHT] Score two coral", AutoBuilder.buildAuto("scoreTwoCoral-right"));
-        autoChooser.addOption("[LEFT] Score three coral", AutoBuilder.buildAuto("scoreThreeCoral-left"));
-        autoChooser.addOption("[MIDDLE] Score three coral", AutoBuilder.buildAuto("scoreThreeCoral"));
-        autoChooser.addOption("[RIGHT] Score three coral", AutoBuilder.buildAuto("scoreThreeCoral-right"));
-        autoChooser.addOption("[LEFT] Knock down algae and score one coral", AutoBuilder.buildAuto("dropAlgaeAndScoreOneCoral-left"));
-        autoChooser.addOption("[MIDDLE] Knock down algae and score one coral", AutoBuilder.buildAuto("dropAlgaeAndScoreOneCoral"));
-        autoChooser.addOption("[RIGHT] Knock down algae and score one coral", AutoBuilder.buildAuto("dropAlgaeAndScoreOneCoral-right"));
-        autoChooser.addOption("[FAR RIGHT] (TOOLCATS) Score one coral and pick up lollipop", AutoBuilder.buildAuto("scoreOneCoralPickUpLollipop"));
->>>>>>> Stashed changes
-
-        SmartDashboard.putData("autos", autoChooser);
+        autoChooser.addOption("Score Two Coral", buildAuto("scoreTwoCoralEFKLSides"));
+        autoChooser.addOption("Score One Coral From Side Start", buildAuto("AutoThatWillWorkWith6045"));
+        autoChooser.addOption("[LEFT] Drive Forward", buildAuto("DriveForward-Left"));
+        autoChooser.addOption("[MIDDLE] Drive Forward", buildAuto("DriveForward"));
+        autoChooser.addOption("[RIGHT] Drive Forward", buildAuto("DriveForward-Right"));
+        autoChooser.addOption("[LEFT] Drive forward and knock down algae", buildAuto("scoreOneCoralAndDropAlgae-left"));
+        autoChooser.addOption("[MIDDLE] Drive forward and knock down algae", buildAuto("scoreOneCoralAndDropAlgae"));
+        autoChooser.addOption("[RIGHT] Drive forward and knock down algae", buildAuto("scoreOneCoralAndDropAlgae-right"));
+        //autoChooser.addOption("[LEFT] Move off of line", buildAuto("moveOffOfLine-left"));
+        autoChooser.addOption("[ANY] Move off of line", buildAuto("moveOffOfLine"));
+        //autoChooser.addOption("[RIGHT] Move off of line", buildAuto("moveOffOfLine-right"));
+        autoChooser.addOption("[LEFT] Score two coral", buildAuto("scoreTwoCoral-left"));
+        autoChooser.addOption("[MIDDLE] Score two coral", buildAuto("scoreTwoCoral"));
+        autoChooser.addOption("[RIGHT] Score two coral", buildAuto("scoreTwoCoral-right"));
+        autoChooser.addOption("[MIDDLE] Score two coral (precomputed trajectories)", buildAuto("scoreTwoCoral", true));
+        autoChooser.addOption("[LEFT] Score three coral", buildAuto("scoreThreeCoral-left"));
+        autoChooser.addOption("[MIDDLE] Score three coral", buildAuto("scoreThreeCoral"));
+        autoChooser.addOption("[RIGHT] Score three coral", buildAuto("scoreThreeCoral-right"));
+        autoChooser.addOption("[LEFT] Knock down algae and score one coral", buildAuto("dropAlgaeAndScoreOneCoral-left"));
+        autoChooser.addOption("[MIDDLE] Knock down algae and score one coral", buildAuto("dropAlgaeAndScoreOneCoral"));
+        autoChooser.addOption("[RIGHT] Knock down algae and score one coral", buildAuto("dropAlgaeAndScoreOneCoral-right"));
+        autoChooser.addOption("[FAR RIGHT] (TOOLCATS) Score one coral and pick up lollipop", buildAuto("scoreOneCoralPickUpLollipop"));
+
+        Dashboard.putData("autos", autoChooser);
     }
 
     public Command getAutonomousCommand() {
         return autoChooser.getSelected();
     }
+
+    private Command buildAuto(String autoName) {
+        return buildAuto(autoName, false);
+    }
+
+    /**
+     * Build a PathPlanner auto with AutoBuilder. Its paths come pre-flipped from {@link AllianceCache}, for the
+     * alliance we are on when each one starts.
+     *
+     * @param autoName           Auto name without the .auto extension.
+     * @param followTrajectories Follow each path's cached ideal trajectory with
+     *                           {@link SwerveSubsystem#followTrajectory(String)}, rather than having PathPlanner
+     *                           generate one from the robot's speed when the path starts.
+     * @return The auto, or nothing if it couldn't be loaded.
+     */
+    private Command buildAuto(String autoName, boolean followTrajectories) {
+        try {
+            return m_drive.buildAuto(autoName, followTrajectories);
+        } catch (RuntimeException e) {
+            DriverStation.reportError("Could not load auto " + autoName + ": " + e, false);
+            return Commands.none();
+        }
+    }
 }
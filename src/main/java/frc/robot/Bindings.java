@@ -13,6 +13,7 @@ import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import frc.robot.Constants.OperatorConstants;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.util.LatencyTracer;
 import swervelib.SwerveInputStream;
 
 public class Bindings {
@@ -22,11 +23,13 @@ public class Bindings {
    * Converts driver input into a field-relative ChassisSpeeds that is controlled by angular velocity.
    */
   SwerveInputStream driveAngularVelocity = SwerveInputStream.of(drivebase.getSwerveDrive(),
-                                                                () -> driverXbox.getLeftY() * -1, //-1
+                                                                () -> {
+                                                                  LatencyTracer.markInputRead();
+                                                                  return driverXbox.getLeftY() * -1; //-1
+                                                                },
                                                                 () -> driverXbox.getLeftX() * -1) //-1
                                                             .withControllerRotationAxis(()->{return -driverXbox.getRightX();})
                                                             .deadband(OperatorConstants.DEADBAND)
-                                                            .scaleTranslation(0.8)
                                                             .allianceRelativeControl(true);
 
   /**
@@ -43,12 +46,14 @@ public class Bindings {
                                                              .allianceRelativeControl(false);
                                                              */
   SwerveInputStream driveAngularVelocityKeyboard = SwerveInputStream.of(drivebase.getSwerveDrive(),
-                                                                        () -> -driverXbox.getLeftY(),
+                                                                        () -> {
+                                                                          LatencyTracer.markInputRead();
+                                                                          return -driverXbox.getLeftY();
+                                                                        },
                                                                         () -> -driverXbox.getLeftX())
                                                                     .withControllerRotationAxis(() -> driverXbox.getRawAxis(
                                                                         2))
                                                                     .deadband(OperatorConstants.DEADBAND)
-                                                                    .scaleTranslation(0.8)
                                                                     .allianceRelativeControl(true);
   // Derive the heading axis with math!
   SwerveInputStream driveDirectAngleKeyboard     = driveAngularVelocityKeyboard.copy()
@@ -24,8 +24,191 @@ public final class Constants {
   public static final class SwerveConstants {
     public static final double ROBOT_MASS = (148 - 20.3) * 0.453592; // 32lbs * kg per pound
     public static final Matter CHASSIS    = new Matter(new Translation3d(0, 0, Units.inchesToMeters(8)), ROBOT_MASS);
-    public static final double LOOP_TIME  = 0.13; //s, 20ms + 110ms sprk max velocity lag
+    public static final double LOOP_TIME  = 0.13; //s, 20ms + 110ms sprk max velocity lag, see ModuleVelocityEstimator
     public static final double MAX_SPEED  = Units.feetToMeters(14.5);
+
+    public static final double MAIN_LOOP_PERIOD = 0.02; //s, the TimedRobot period periodic() runs at
+
+    // Run module control on its own Notifier, separate from the 50 Hz command scheduler.
+    public static final boolean FAST_DRIVE_LOOP = false;
+    public static final double FAST_DRIVE_LOOP_PERIOD = 0.005; //s, 200 Hz
+    public static final double FAST_DRIVE_TARGET_TIMEOUT = 0.1; //s, stop if no command has driven for this long
+  }
+
+  public static final class DashboardConstants {
+    public static final double BYTES_PER_SECOND = 20000; // sustained NetworkTables budget for robot code
+    public static final double BURST_BYTES = 4000; // most that can go out in one loop after a quiet period
+    public static final double HIGH_PRIORITY_PERIOD = 0.0; // s, every loop
+    public static final double NORMAL_PRIORITY_PERIOD = 0.1; // s
+    public static final double LOW_PRIORITY_PERIOD = 0.5; // s
+    public static final double BANDWIDTH_REPORT_PERIOD = 1.0; // s
+  }
+
+  public static final class SysIdConstants {
+    public static final double MIN_VELOCITY = 0.05; // m/s or deg/s, slower samples are in static friction
+    public static final double MIN_VOLTAGE = 0.05; // V, less is the motor stopped between tests
+    public static final double FORGETTING_FACTOR = 1.0; // 1 weighs every sample of a routine equally
+    public static final double INITIAL_COVARIANCE = 1e4;
+    public static final int MIN_SAMPLES = 200;
+    public static final double DRIVE_MAX_VOLTAGE = 12.0; // V, cap on the drive routine's dynamic step
+    public static final double MAX_RELATIVE_STD_DEV = 0.05; // of kV and kA before the fit is trusted
+    // Replace the drive feedforward with the fit when a drive routine ends with a confident fit
+    public static final boolean APPLY_DRIVE_FEEDFORWARD = false;
+  }
+
+  public static final class SkewConstants {
+    public static final double INITIAL_COEFFICIENT = 0.1; // s, YAGSL angular velocity compensation before any fit
+    public static final double MIN_COEFFICIENT = 0.0; // s
+    public static final double MAX_COEFFICIENT = 0.3; // s
+    public static final double MIN_OMEGA = 0.5; // rad/s, slower spins say little about the skew
+    public static final double MIN_SPEED = 0.5; // m/s
+    public static final double MAX_COMMAND_TURN_RATE = 1.0; // rad/s the commanded direction may change by
+    public static final double MAX_SKEW = 0.5; // rad, larger differences aren't skew
+    public static final double TIME_CONSTANT = 30.0; // s, how quickly old samples are forgotten
+    public static final double MIN_INFORMATION = 200.0; // rad^2/s^2 of weighted omega^2 before the fit is trusted
+    // Push the fitted coefficient to YAGSL while driving
+    public static final boolean APPLY_LIVE = false;
+    public static final double APPLY_PERIOD = 1.0; // s between updates
+    public static final double APPLY_THRESHOLD = 0.005; // s, smaller changes aren't applied
+  }
+
+  public static final class OdometryConstants {
+    public static final double SLIP_VELOCITY = 0.25; // m/s a module may disagree with the fit before it is down-weighted
+    public static final double SLIP_RATIO = 0.15; // or this fraction of the fit's speed, whichever is larger
+    public static final double COLLISION_ACCELERATION_G = 1.5; // horizontal IMU acceleration the wheels can't produce
+  }
+
+  public static final class AntiTipConstants {
+    public static final double SAFETY_FACTOR = 0.7; // fraction of the tipping acceleration to allow
+    public static final double ARM_RAISED_COM_RAISE = Units.inchesToMeters(3); // m added to the CHASSIS height
+    public static final double CLIMBER_DEPLOYED_COM_RAISE = Units.inchesToMeters(2); // m
+    public static final double TILT_THRESHOLD = Units.degreesToRadians(8); // pitch or roll before correcting
+    public static final double TILT_CORRECTION_GAIN = 4.0; // m/s per rad past the threshold
+    public static final double MAX_CORRECTION_SPEED = 1.0; // m/s
+    public static final double RESET_TIMEOUT = 0.1; // s, after this long without a command don't slew from the last
+  }
+
+  public static final class TractionConstants {
+    public static final double FRICTION_MARGIN = 0.9; // fraction of wheelCOF * g to accelerate at
+    public static final double SLIP_THRESHOLD = 0.3; // m/s between measured and ground wheel speed
+    public static final double SLIP_RATIO = 0.2; // and at least this fraction of the ground wheel speed
+    public static final double RESET_TIMEOUT = 0.1; // s, after this long without a command start from the ground speed
+  }
+
+  public static final class PowerConstants {
+    public static final double INITIAL_OPEN_CIRCUIT_VOLTAGE = 12.6; // V
+    public static final double INITIAL_RESISTANCE = 0.02; // ohm, battery plus wiring
+    public static final double MIN_RESISTANCE = 0.01; // ohm
+    public static final double MAX_RESISTANCE = 0.08; // ohm
+    public static final double ESTIMATOR_TIME_CONSTANT = 2.0; // s, how quickly old samples are forgotten
+    public static final double MIN_CURRENT_VARIANCE = 25; // A^2, less than this and the resistance isn't refit
+    public static final double CURRENT_SLOPE_TIME_CONSTANT = 0.05; // s
+    public static final double CURRENT_LOOKAHEAD = 0.1; // s, how far ahead the current trend is projected
+    public static final double BROWNOUT_MARGIN = 1.0; // V above the roboRIO brownout voltage
+    public static final int LIMIT_STEP = 2; // A, smaller changes aren't pushed
+    public static final double RAISE_PERIOD = 0.5; // s between limit increases
+
+    // Lower numbers keep their current longer when the battery sags.
+    public static final int DRIVE_PRIORITY = 0;
+    public static final int CLIMBER_PRIORITY = 1;
+    public static final int ARM_PRIORITY = 2;
+    public static final int ROLLER_PRIORITY = 3;
+    public static final int DRIVE_MIN_CURRENT = 20; // A per motor
+    public static final int CLIMBER_MIN_CURRENT = 20; // A
+    public static final int ARM_MIN_CURRENT = 10; // A
+    public static final int ROLLER_MIN_CURRENT = 10; // A
+  }
+
+  public static final class ModuleDiagnosticsConstants {
+    public static final int WINDOW_SIZE = 250; // 5 s of loops
+    public static final int PUBLISH_PERIOD_LOOPS = 25;
+    public static final double COMMAND_TIMEOUT = 0.1; // s, older commands aren't compared
+    public static final double MIN_AZIMUTH_SPEED = 0.1; // m/s, slower modules hold their last azimuth
+    public static final double SATURATION_FRACTION = 0.95; // of the battery voltage
+    public static final int MAX_LAG_LOOPS = 10;
+    public static final double MIN_LAG_VARIANCE = 0.05; // m^2/s^2 of commanded speed needed to measure lag
+    public static final double DEGRADED_RATIO = 2.0; // P95 error over the other modules' or the module's baseline
+    public static final double DEGRADED_MIN_VELOCITY_ERROR = 0.3; // m/s
+    public static final double DEGRADED_MIN_AZIMUTH_ERROR = Units.degreesToRadians(5);
+  }
+
+  public static final class VelocityEstimatorConstants {
+    // Loops of positions fit per estimate, the estimate trails by half of this minus one loop
+    public static final int WINDOW_SIZE = 3;
+    // Use the position based estimate for traction, odometry velocity and SysId, instead of the SPARK MAX's
+    public static final boolean USE_ESTIMATE = true;
+    public static final int LAG_WINDOW_SIZE = 250; // 5 s of loops
+    public static final int MAX_LAG_LOOPS = 10;
+    public static final double MIN_LAG_VARIANCE = 0.05; // m^2/s^2 of reference speed needed to measure lag
+    public static final int LAG_PUBLISH_PERIOD_LOOPS = 25; // lags are only searched for when published
+    // SPARK MAX status 2 (primary encoder velocity and position) arbitration ID under firmware 25, without the CAN ID
+    public static final int POSITION_FRAME_ID = 0x0205B880;
+    public static final double MAX_FRAME_AGE = 0.1; // s, older frames mean the controller stopped sending
+  }
+
+  public static final class PathFollowingConstants {
+    // Shared by the PathPlanner follower and followTrajectory, tools/PathGainTuner prints tuned values
+    public static final double TRANSLATION_P = 5.0;
+    public static final double TRANSLATION_I = 0.0;
+    public static final double TRANSLATION_D = 0.0;
+    public static final double ROTATION_P = 5.0;
+    public static final double ROTATION_I = 0.0;
+    public static final double ROTATION_D = 0.0;
+  }
+
+  public static final class PathErrorConstants {
+    public static final String FILE_NAME = "path_errors.json"; // in the operating directory, /home/lvuser on the robot
+    public static final double TRANSLATION_BIN_WIDTH = 0.01; // m
+    public static final int TRANSLATION_BINS = 50; // errors past the last bin are counted in it
+    public static final double ROTATION_BIN_WIDTH = Units.degreesToRadians(0.5); // rad
+    public static final int ROTATION_BINS = 40;
+    public static final double MATCH_TOLERANCE = 0.01; // m between a followed path's ends and a path file's
+  }
+
+  public static final class TelemetryConstants {
+    public static final double POSE_PERIOD = 0.02; // s
+    public static final double MODULE_STATES_PERIOD = 0.1; // s
+    public static final double TRAJECTORY_INDEX_PERIOD = 0.1; // s
+    public static final double POSITION_QUANTUM = 0.001; // m
+    public static final double ANGLE_QUANTUM = 0.001; // rad
+  }
+
+  public static final class AlignConstants {
+    public static final double STANDOFF = 0.45; // m, tag to robot center when lined up, half our bumper length
+    public static final double REEF_BRANCH_OFFSET = Units.inchesToMeters(6.47); // branch to reef face center
+    public static final double[] CORAL_STATION_SLOT_OFFSETS = {-0.6, 0.0, 0.6}; // m along the station
+    public static final double TRANSLATION_P = 5.0;
+    public static final double THETA_P = 5.0;
+    public static final double MAX_VELOCITY = 3.0; // m/s
+    public static final double MAX_ACCELERATION = 3.0; // m/s^2
+    public static final double MAX_ANGULAR_VELOCITY = Units.degreesToRadians(360);
+    public static final double MAX_ANGULAR_ACCELERATION = Units.degreesToRadians(720);
+    public static final double TRANSLATION_TOLERANCE = 0.03; // m
+    public static final double THETA_TOLERANCE = Units.degreesToRadians(2);
+  }
+
+  public static final class VisionConstants {
+    public static final double PERIOD = 0.01; // s, how often the vision thread polls the cameras
+    public static final double MAX_AMBIGUITY = 0.2;
+    public static final double MAX_TAG_DISTANCE = 4.0; // m
+    public static final double MAX_ANGULAR_VELOCITY = 4.0; // rad/s, tags blur when the robot spins faster
+    public static final double FIELD_MARGIN = 0.5; // m, how far outside the field a pose may be
+    public static final double XY_STD_DEV_BASE = 0.02; // m at 1 m from a single tag
+    public static final double THETA_STD_DEV_BASE = 0.06; // rad at 1 m, multi tag only
+    public static final double SINGLE_TAG_THETA_STD_DEV = 1e6; // effectively ignore single tag headings
+
+    public static final double OBSTACLE_TIMEOUT = 0.5; // s, obstacles not seen for this long are dropped
+    public static final double OBSTACLE_MERGE_DISTANCE = 0.5; // m, detections closer than this are the same object
+    public static final double OBSTACLE_MOVE_THRESHOLD = 0.15; // m, smaller moves don't trigger a replan
+    public static final double OBSTACLE_CLEARANCE = 0.45; // m, half our bumper width, since the planner plans our center
+
+    public static final double SIM_FOV_DEGREES = 70;
+    public static final double SIM_MAX_RANGE = 5.0; // m
+    public static final double SIM_TRANSLATION_NOISE = 0.02; // m at 1 m
+    public static final double SIM_ROTATION_NOISE_DEGREES = 1.0; // at 1 m
+    public static final double SIM_LATENCY = 0.035; // s
+    public static final double SIM_FPS = 30;
+    public static final double SIM_ROBOT_RADIUS = 0.5; // m, other simulated robots
   }
 
   public static final class RollerConstants {
@@ -46,6 +229,9 @@ public final class Constants {
     public static final double ARM_SPEED_UP = 0.2;
     public static final double ARM_HOLD_DOWN = -0.05;
     public static final double ARM_HOLD_UP = 0.05;
+    public static final double ARM_RAISED_TRAVEL = 2.0; // motor rotations above the paracord
+    public static final double STALL_VELOCITY = 10.0; // RPM
+    public static final double STALL_TIME = 0.25; // s
   }
 
   public static final class ClimberConstants {
@@ -54,6 +240,7 @@ public final class Constants {
     public static final double CLIMBER_MOTOR_VOLTAGE_COMP = 12;
     public static final double CLIMBER_SPEED_DOWN = -0.5;
     public static final double CLIMBER_SPEED_UP = 0.5;
+    public static final double CLIMBER_DEPLOYED_TRAVEL = 5.0; // motor rotations from stowed
   }
 
   public static final class OperatorConstants {
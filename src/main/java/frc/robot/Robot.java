@@ -9,6 +9,11 @@ import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.hal.FRCNetComm.tResourceType;
+import frc.robot.Constants.SwerveConstants;
+import frc.robot.util.AllianceCache;
+import frc.robot.util.Dashboard;
+import frc.robot.util.LatencyTracer;
+import frc.robot.util.PowerManager;
 
 /**
  * The methods in this class are called automatically corresponding to each mode, as described in
@@ -20,6 +25,10 @@ public class Robot extends TimedRobot {
 
   private RobotContainer m_robotContainer;
 
+  public Robot() {
+    super(SwerveConstants.MAIN_LOOP_PERIOD);
+  }
+
   /**
    * This function is run when the robot is first started up and should be used
    * for any
@@ -31,7 +40,10 @@ public class Robot extends TimedRobot {
     // and put our
     // autonomous chooser on the dashboard.
     m_robotContainer = new RobotContainer();
-       
+
+    // Timestamp Driver Station packets so joystick to motor latency can be measured.
+    LatencyTracer.start();
+
     // Used to track usage of the Everybot code, please do not remove!
     HAL.report(tResourceType.kResourceType_Framework, 11);
   }
@@ -45,23 +57,43 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
+    // Read the drive once for this loop before any subsystem or command can ask for it.
+    m_robotContainer.m_drive.updateOdometry();
+
     // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
     // commands, running already-scheduled commands, removing finished or interrupted commands,
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
     CommandScheduler.getInstance().run();
+
+    // Publish the state this loop acted on for the other threads, reusing the drive reads made during the loop.
+    m_robotContainer.updateRobotState();
+
+    // Reallocate current limits for the battery's present state.
+    PowerManager.getInstance().update();
+
+    LatencyTracer.publish();
+
+    // Send this loop's dashboard values, within the bandwidth budget.
+    Dashboard.flush();
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
-  public void disabledInit() {}
+  public void disabledInit() {
+    AllianceCache.getInstance().update();
+  }
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    // The alliance can only change while disabled, so this is the only place it is polled.
+    AllianceCache.getInstance().update();
+  }
 
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
+    AllianceCache.getInstance().update();
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // schedule the autonomous command (example)
@@ -76,6 +108,7 @@ public class Robot extends TimedRobot {
 
   @Override
   public void teleopInit() {
+    AllianceCache.getInstance().update();
     // This makes sure that the autonomous stops running when
     // teleop starts running. If you want the autonomous to
     // continue until interrupted by another command, remove
@@ -105,5 +138,7 @@ public class Robot extends TimedRobot {
 
   /** This function is called periodically whilst in simulation. */
   @Override
-  public void simulationPeriodic() {}
+  public void simulationPeriodic() {
+    PowerManager.getInstance().simulationPeriodic();
+  }
 }
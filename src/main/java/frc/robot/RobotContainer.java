@@ -17,13 +17,17 @@ import frc.robot.subsystems.ArmSubsystem;
 import frc.robot.subsystems.ClimberSubsystem;
 import frc.robot.subsystems.RollerSubsystem;
 import frc.robot.subsystems.SwerveSubsystem;
+import frc.robot.subsystems.VisionSubsystem;
+import frc.robot.util.Dashboard;
+import frc.robot.util.FieldTargets;
+import frc.robot.util.RobotState;
 import frc.robot.Autos;
 
 import java.io.File;
 
 import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
@@ -48,6 +52,9 @@ public class RobotContainer {
 
   private final CommandXboxController m_godController = new CommandXboxController(OperatorConstants.GOD_CONTROLLER_PORT);
 
+  // Reused every loop to publish the robot state without allocating
+  private final RobotState.Snapshot m_robotState = new RobotState.Snapshot();
+
   // The autonomous chooser
   SendableChooser<Command> m_chooser = new SendableChooser<>();
   private Autos m_autos;
@@ -57,10 +64,11 @@ public class RobotContainer {
   public final SwerveSubsystem m_drive = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(),
   "swerve/neo"));
   public final ClimberSubsystem m_climber = new ClimberSubsystem();
+  public final VisionSubsystem m_vision = new VisionSubsystem(m_drive);
 
   /** The container for the robot. Contains subsystems, OI devices, and commands. */
   public RobotContainer() {
-    m_autos = new Autos(m_roller, m_arm);
+    m_autos = new Autos(m_roller, m_arm, m_drive);
     // Set up command bindings
     configureBindings();
     Bindings.initBindings(m_drive, m_driverController);
@@ -68,7 +76,7 @@ public class RobotContainer {
     // add additional auto modes you can add additional lines here with
     // autoChooser.addOption
     //m_chooser.addOption("Coral Auto", m_simpleCoralAuto);
-    SmartDashboard.putData(m_chooser);
+    Dashboard.putData(m_chooser);
   }
 
   /**
@@ -105,6 +113,14 @@ public class RobotContainer {
 //zero gyro
     m_driverController.a().onTrue((Commands.runOnce(m_drive::zeroGyro)));
 
+    /**
+     * Snap to the nearest reef branch, or the nearest coral station slot or processor, while held.
+     * Letting go hands control straight back to the driver.
+     */
+    m_driverController.b().whileTrue(m_drive.alignToNearestTarget(FieldTargets.Type.REEF_BRANCH));
+    m_driverController.leftTrigger(.2).whileTrue(
+        m_drive.alignToNearestTarget(FieldTargets.Type.CORAL_STATION, FieldTargets.Type.PROCESSOR));
+
 
 
     /**
@@ -158,6 +174,18 @@ public class RobotContainer {
     m_godController.pov(180).whileTrue(new ClimberDownCommand(m_climber));
   }
 
+  /**
+   * Capture the drivetrain and mechanism state once and publish it to {@link RobotState} for every thread to read.
+   */
+  public void updateRobotState() {
+    m_robotState.timestamp = Timer.getFPGATimestamp();
+    m_drive.fillRobotState(m_robotState);
+    // Raising the arm or deploying the climber raises the center of mass, so the drive accelerates more gently
+    m_robotState.armRaised = m_arm.isRaised();
+    m_robotState.climberDeployed = m_climber.isDeployed();
+    RobotState.getInstance().publish(m_robotState);
+  }
+
   /**
    * Use this to pass the autonomous command to the main {@link Robot} class.
    *
@@ -1,5 +1,6 @@
 package frc.robot.subsystems;
 
+import com.revrobotics.RelativeEncoder;
 import com.revrobotics.spark.SparkMax;
 import com.revrobotics.spark.SparkBase.PersistMode;
 import com.revrobotics.spark.SparkBase.ResetMode;
@@ -7,12 +8,21 @@ import com.revrobotics.spark.SparkLowLevel.MotorType;
 import com.revrobotics.spark.config.SparkMaxConfig;
 import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
 
+import edu.wpi.first.math.filter.Debouncer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.util.PowerManager;
 
 public class ArmSubsystem extends SubsystemBase {
 
     private final SparkMax armMotor;
+    private final RelativeEncoder armEncoder;
+
+    // The arm's position is only known once it has been driven down and stopped against the paracord, so it counts
+    // as raised for the anti-tip limits until then
+    private final Debouncer downStall = new Debouncer(ArmConstants.STALL_TIME);
+    private double downPosition = Double.NaN;
     
     /**
      * This subsytem that controls the arm.
@@ -26,6 +36,7 @@ public class ArmSubsystem extends SubsystemBase {
     // construction, the timeout can be long without blocking robot operation. Code
     // which sets or gets parameters during operation may need a shorter timeout.
     armMotor.setCANTimeout(250);
+    armEncoder = armMotor.getEncoder();
 
     // Create and apply configuration for arm motor. Voltage compensation helps
     // the arm behave the same as the battery
@@ -36,10 +47,33 @@ public class ArmSubsystem extends SubsystemBase {
     armConfig.smartCurrentLimit(ArmConstants.ARM_MOTOR_CURRENT_LIMIT);
     armConfig.idleMode(IdleMode.kBrake);
     armMotor.configure(armConfig, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+
+    // Hand current to more important consumers when the battery sags.
+    PowerManager.getInstance().register("Arm", PowerConstants.ARM_PRIORITY, 1,
+        PowerConstants.ARM_MIN_CURRENT, ArmConstants.ARM_MOTOR_CURRENT_LIMIT,
+        armMotor::getOutputCurrent, this::setCurrentLimit);
     }
 
     @Override
     public void periodic() {
+        // Pushed down, by a down command or the hold after it, and not moving: the arm is on the paracord
+        boolean stalled = armMotor.get() < 0
+                          && Math.abs(armEncoder.getVelocity()) < ArmConstants.STALL_VELOCITY;
+        if (downStall.calculate(stalled)) {
+            downPosition = armEncoder.getPosition();
+        }
+    }
+
+    /**
+     * Change the current limit without resetting the rest of the configuration. Blocks until the controller
+     * acknowledges, so {@link PowerManager} calls it off the main thread.
+     *
+     * @param amps new smart current limit
+     */
+    private void setCurrentLimit(int amps) {
+        SparkMaxConfig config = new SparkMaxConfig();
+        config.smartCurrentLimit(amps);
+        armMotor.configure(config, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
     }
     /** 
      * This is a method that makes the arm move at your desired speed
@@ -50,4 +84,12 @@ public class ArmSubsystem extends SubsystemBase {
     public void runArm(double speed){
         armMotor.set(speed);
     }
-}
\ No newline at end of file
+
+    /**
+     * @return true if the encoder shows the arm above the paracord, or the arm hasn't been driven down since boot
+     */
+    public boolean isRaised(){
+        return Double.isNaN(downPosition)
+               || armEncoder.getPosition() - downPosition > ArmConstants.ARM_RAISED_TRAVEL;
+    }
+}
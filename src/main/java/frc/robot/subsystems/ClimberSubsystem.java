@@ -1,5 +1,6 @@
 package frc.robot.subsystems;
 
+import com.revrobotics.RelativeEncoder;
 import com.revrobotics.spark.SparkMax;
 import com.revrobotics.spark.SparkBase.PersistMode;
 import com.revrobotics.spark.SparkBase.ResetMode;
@@ -9,10 +10,13 @@ import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.ClimberConstants;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.util.PowerManager;
 
 public class ClimberSubsystem extends SubsystemBase {
 
     private final SparkMax climbMotor;
+    private final RelativeEncoder climbEncoder;
 
     /**
      * This subsytem that controls the climber.
@@ -26,6 +30,7 @@ public class ClimberSubsystem extends SubsystemBase {
     // construction, the timeout can be long without blocking robot operation. Code
     // which sets or gets parameters during operation may need a shorter timeout.
     climbMotor.setCANTimeout(250);
+    climbEncoder = climbMotor.getEncoder();
 
     // Create and apply configuration for climb motor. Voltage compensation helps
     // the climb behave the same as the battery
@@ -36,12 +41,29 @@ public class ClimberSubsystem extends SubsystemBase {
     climbConfig.smartCurrentLimit(ClimberConstants.CLIMBER_MOTOR_CURRENT_LIMIT);
     climbConfig.idleMode(IdleMode.kBrake);
     climbMotor.configure(climbConfig, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+
+    // Hand current to more important consumers when the battery sags.
+    PowerManager.getInstance().register("Climber", PowerConstants.CLIMBER_PRIORITY, 1,
+        PowerConstants.CLIMBER_MIN_CURRENT, ClimberConstants.CLIMBER_MOTOR_CURRENT_LIMIT,
+        climbMotor::getOutputCurrent, this::setCurrentLimit);
     }
 
     @Override
     public void periodic() {
     }
 
+    /**
+     * Change the current limit without resetting the rest of the configuration. Blocks until the controller
+     * acknowledges, so {@link PowerManager} calls it off the main thread.
+     *
+     * @param amps new smart current limit
+     */
+    private void setCurrentLimit(int amps) {
+        SparkMaxConfig config = new SparkMaxConfig();
+        config.smartCurrentLimit(amps);
+        climbMotor.configure(config, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+    }
+
     /**
      * Use to run the climber, can be set to run from 100% to -100%.
      * Keep in mind that the direction changes based on which way the winch is wound.
@@ -52,4 +74,14 @@ public class ClimberSubsystem extends SubsystemBase {
         climbMotor.set(speed);
     }
 
-}
\ No newline at end of file
+    /**
+     * The SPARK MAX zeroes its encoder at power on, when the robot is in its starting configuration with the climber
+     * stowed, and keeps the position through code restarts. The winch can be wound either way, so travel in either
+     * direction counts.
+     *
+     * @return true if the encoder shows the climber out of its stowed position
+     */
+    public boolean isDeployed(){
+        return Math.abs(climbEncoder.getPosition()) > ClimberConstants.CLIMBER_DEPLOYED_TRAVEL;
+    }
+}
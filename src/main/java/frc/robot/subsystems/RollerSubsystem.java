@@ -9,6 +9,8 @@ import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants.RollerConstants;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.util.PowerManager;
 
 public class RollerSubsystem extends SubsystemBase {
 
@@ -35,12 +37,29 @@ public class RollerSubsystem extends SubsystemBase {
     rollerConfig.smartCurrentLimit(RollerConstants.ROLLER_MOTOR_CURRENT_LIMIT);
     rollerConfig.idleMode(IdleMode.kBrake);
     rollerMotor.configure(rollerConfig, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+
+    // Hand current to more important consumers when the battery sags.
+    PowerManager.getInstance().register("Roller", PowerConstants.ROLLER_PRIORITY, 1,
+        PowerConstants.ROLLER_MIN_CURRENT, RollerConstants.ROLLER_MOTOR_CURRENT_LIMIT,
+        rollerMotor::getOutputCurrent, this::setCurrentLimit);
     }
 
     @Override
     public void periodic() {
     }
 
+    /**
+     * Change the current limit without resetting the rest of the configuration. Blocks until the controller
+     * acknowledges, so {@link PowerManager} calls it off the main thread.
+     *
+     * @param amps new smart current limit
+     */
+    private void setCurrentLimit(int amps) {
+        SparkMaxConfig config = new SparkMaxConfig();
+        config.smartCurrentLimit(amps);
+        rollerMotor.configure(config, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+    }
+
     /**
      *  This is a method that makes the roller spin to your desired speed.
      *  Positive values make it spin forward and negative values spin it in reverse.
@@ -50,5 +69,4 @@ public class RollerSubsystem extends SubsystemBase {
     public void runRoller(double speed){
         rollerMotor.set(speed);
     }
-
-}
\ No newline at end of file
+}
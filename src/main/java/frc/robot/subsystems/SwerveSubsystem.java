@@ -4,9 +4,16 @@
 
 package frc.robot.subsystems;
 
+import static edu.wpi.first.units.Units.Degrees;
+import static edu.wpi.first.units.Units.DegreesPerSecond;
 import static edu.wpi.first.units.Units.Meter;
+import static edu.wpi.first.units.Units.Meters;
+import static edu.wpi.first.units.Units.MetersPerSecond;
+import static edu.wpi.first.units.Units.Newtons;
+import static edu.wpi.first.units.Units.Volts;
 
 import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.commands.FollowPathCommand;
 import com.pathplanner.lib.commands.PathPlannerAuto;
 import com.pathplanner.lib.commands.PathfindingCommand;
 import com.pathplanner.lib.config.PIDConstants;
@@ -14,36 +21,80 @@ import com.pathplanner.lib.config.RobotConfig;
 import com.pathplanner.lib.controllers.PPHolonomicDriveController;
 import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.pathfinding.Pathfinding;
 import com.pathplanner.lib.util.DriveFeedforwards;
 import com.pathplanner.lib.util.swerve.SwerveSetpoint;
 import com.pathplanner.lib.util.swerve.SwerveSetpointGenerator;
+import com.revrobotics.spark.SparkBase.PersistMode;
+import com.revrobotics.spark.SparkBase.ResetMode;
+import com.revrobotics.spark.SparkMax;
+import com.revrobotics.spark.config.SparkMaxConfig;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.units.measure.Force;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.RobotModeTriggers;
+import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Config;
 import frc.robot.Constants;
+import frc.robot.Constants.AlignConstants;
+import frc.robot.Constants.PathFollowingConstants;
+import frc.robot.Constants.PowerConstants;
+import frc.robot.Constants.SkewConstants;
+import frc.robot.Constants.SysIdConstants;
+import frc.robot.Constants.VelocityEstimatorConstants;
+import frc.robot.util.AllianceCache;
+import frc.robot.util.AntiTipLimiter;
+import frc.robot.util.Dashboard;
+import frc.robot.util.FeedforwardIdentifier;
+import frc.robot.util.CompactTrajectory;
+import frc.robot.util.DStarLitePathfinder;
+import frc.robot.util.FieldTargets;
+import frc.robot.util.LagMeter;
+import frc.robot.util.LatencyTracer;
+import frc.robot.util.ModuleDiagnostics;
+import frc.robot.util.ModuleVelocityEstimator;
+import frc.robot.util.PathErrorRecorder;
+import frc.robot.util.PowerManager;
+import frc.robot.util.RobotState;
+import frc.robot.util.SkewEstimator;
+import frc.robot.util.SlipAwareOdometry;
+import frc.robot.util.TelemetryStream;
+import frc.robot.util.TractionController;
 import java.io.File;
-import java.io.IOException;
 import java.util.Arrays;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
-import org.json.simple.parser.ParseException;
 import swervelib.SwerveController;
 import swervelib.SwerveDrive;
 import swervelib.SwerveDriveTest;
+import swervelib.SwerveModule;
 import swervelib.math.SwerveMath;
+import swervelib.motors.SwerveMotor;
 import swervelib.parser.SwerveControllerConfiguration;
 import swervelib.parser.SwerveDriveConfiguration;
 import swervelib.parser.SwerveParser;
@@ -56,7 +107,140 @@ public class SwerveSubsystem extends SubsystemBase
    * Swerve drive object.
    */
   private final SwerveDrive swerveDrive;
- 
+
+  /**
+   * A drive target, handed from the command scheduler to whichever thread drives the modules.
+   *
+   * @param speeds               Target chassis speeds.
+   * @param fieldRelative        Whether {@code speeds} are field relative.
+   * @param feedforwards         Per module linear force feedforwards from PathPlanner, or null.
+   * @param useSetpointGenerator Whether to shape the robot relative {@code speeds} with the setpoint generator.
+   * @param lock                 Whether to lock the modules in an X instead of driving.
+   * @param moduleOutput         Writes the modules directly instead of driving, for characterization and centering,
+   *                             or null.
+   * @param timestamp            FPGA time the target was published.
+   */
+  private record DriveTarget(ChassisSpeeds speeds, boolean fieldRelative, Force[] feedforwards,
+                             boolean useSetpointGenerator, boolean lock, Consumer<SwerveModule[]> moduleOutput,
+                             double timestamp)
+  {
+  }
+
+  /**
+   * Single writer slot for the fast drive loop. Only the main thread writes and only the fast loop reads.
+   */
+  private final AtomicReference<DriveTarget> driveTarget      = new AtomicReference<>();
+  /**
+   * Changes to the {@link SwerveDrive}'s control settings, queued for the drive thread by the main thread.
+   */
+  private final Queue<Runnable>             driveThreadTasks = new ConcurrentLinkedQueue<>();
+  /**
+   * Whether module control runs on {@link #fastDriveLoop} instead of in the command scheduler.
+   */
+  private boolean                 fastDriveLoopEnabled = false;
+  private Notifier                fastDriveLoop;
+
+  /**
+   * Setpoint generator state. Only used by the drive thread, which is the fast drive loop when it runs and the main
+   * thread otherwise. Null if the PathPlanner settings couldn't be loaded.
+   */
+  private SwerveSetpointGenerator setpointGenerator;
+  private SwerveSetpoint          previousSetpoint;
+  private double                  previousSetpointTime = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Drive reads memoized for the current scheduler cycle, so every consumer in a cycle sees the same values and each
+   * is only computed once. Main thread only. Cleared in {@link #updateOdometry()} and whenever the pose estimate is
+   * changed on purpose. The returned objects are shared, so callers must not modify them.
+   */
+  private Pose2d        cachedPose;
+  private ChassisSpeeds cachedRobotVelocity;
+  private ChassisSpeeds cachedFieldVelocity;
+
+  /**
+   * Pose estimate that down-weights slipping modules, and the only one the robot drives by. YAGSL's own estimator is
+   * only reset alongside it, so maple-sim starts where the robot thinks it is. Main thread only.
+   */
+  private final SlipAwareOdometry odometry;
+
+  /**
+   * Gyro yaw {@link #odometry} was last updated or reset with, published in {@link RobotState} alongside the pose.
+   * Main thread only.
+   */
+  private Rotation2d odometryYaw;
+
+  /**
+   * The main loop's latest {@link RobotState}, read at the start of each drive iteration. Drive thread only.
+   */
+  private final RobotState.Snapshot driveState = new RobotState.Snapshot();
+
+  /**
+   * Pose drift against the simulated ground truth since the last odometry reset.
+   */
+  private double simMaxDrift;
+  private double simDriftSquaredSum;
+  private long   simDriftSamples;
+
+  /**
+   * Rate limited drive telemetry, which also moves the robot on the field widget.
+   */
+  private final TelemetryStream telemetry;
+
+  /**
+   * Limits chassis speed commands to what the wheels can grip. Null if the PathPlanner settings couldn't be loaded.
+   * Only used by the drive thread.
+   */
+  private TractionController traction;
+
+  /**
+   * Limits acceleration to what won't tip the robot and corrects measured tilt. Only used by the drive thread.
+   */
+  private final AntiTipLimiter antiTip;
+
+  /**
+   * Fits the angular velocity compensation coefficient from driving, see {@link SkewConstants}. Commands are handed
+   * over by the drive thread through {@link SkewEstimator#recordCommand}, the rest is main thread only.
+   */
+  private final SkewEstimator skewEstimator = new SkewEstimator(SkewConstants.INITIAL_COEFFICIENT);
+  private double              lastSkewApplyTime = Double.NEGATIVE_INFINITY;
+
+  /**
+   * PathPlanner's follower and robot config, shared by every path and pathfinding command. Null if the PathPlanner
+   * settings couldn't be loaded.
+   */
+  private PPHolonomicDriveController pathController;
+  private RobotConfig                pathConfig;
+  /**
+   * Whether path steps of the auto being built follow their cached ideal trajectory instead of the path. Only set
+   * while {@link #buildAuto} runs.
+   */
+  private boolean                    buildTrajectoryFollowers = false;
+
+  /**
+   * Histograms of how closely each PathPlanner path is followed, kept across runs.
+   */
+  private final PathErrorRecorder pathErrors = new PathErrorRecorder(this::getPose);
+
+  /**
+   * Commanded versus measured tracking of each module. Commands are recorded by whichever thread drives the modules.
+   */
+  private final ModuleDiagnostics moduleDiagnostics;
+
+  /**
+   * Module velocities from encoder positions, which trail the wheels far less than the SPARK MAX's own.
+   */
+  private final ModuleVelocityEstimator velocityEstimator;
+
+  /**
+   * How far the SPARK MAX velocity trails the estimate, and in simulation how far each trails the true speed.
+   */
+  private final LagMeter rawLag          = newLagMeter();
+  private final LagMeter simRawLag       = newLagMeter();
+  private final LagMeter simEstimatedLag = newLagMeter();
+  private Pose2d         simLastTruePose;
+  private double         simLastTrueTime;
+  private int            loopsSinceLagPublish;
+  private boolean        publishLag;
 
   /**
    * Initialize {@link SwerveDrive} with the directory provided.
@@ -73,7 +257,9 @@ public class SwerveSubsystem extends SubsystemBase
                                                                       Meter.of(4)),
                                                     Rotation2d.fromDegrees(180));
     // Configure the Telemetry before creating the SwerveDrive to avoid unnecessary objects being created.
-    SwerveDriveTelemetry.verbosity = TelemetryVerbosity.HIGH;
+    // Module states, trajectories and the slip-aware field pose all go through TelemetryStream instead, so YAGSL
+    // posts nothing.
+    SwerveDriveTelemetry.verbosity = TelemetryVerbosity.NONE;
     try
     {
       swerveDrive = new SwerveParser(directory).createSwerveDrive(Constants.SwerveConstants.MAX_SPEED, startingPose);
@@ -83,16 +269,53 @@ public class SwerveSubsystem extends SubsystemBase
     {
       throw new RuntimeException(e);
     }
+    odometry = new SlipAwareOdometry(swerveDrive.kinematics, swerveDrive.getYaw(), swerveDrive.getModulePositions(),
+                                     startingPose);
+    odometryYaw = swerveDrive.getYaw();
+    Dashboard.putData("Field", swerveDrive.field);
+    telemetry = new TelemetryStream(NetworkTableInstance.getDefault(), swerveDrive.field);
+    antiTip = new AntiTipLimiter(swerveDrive.kinematics.getModules(), Constants.SwerveConstants.CHASSIS);
+    moduleDiagnostics = new ModuleDiagnostics(getModuleNames(), swerveDrive.kinematics.getModules(),
+                                              Constants.SwerveConstants.MAX_SPEED,
+                                              Constants.SwerveConstants.MAIN_LOOP_PERIOD);
+    velocityEstimator = new ModuleVelocityEstimator(swerveDrive.getModules(), swerveDrive.kinematics);
     swerveDrive.setHeadingCorrection(false); // Heading correction should only be used while controlling the robot via angle.
     swerveDrive.setCosineCompensator(false);//!SwerveDriveTelemetry.isSimulation); // Disables cosine compensation for simulations since it causes discrepancies not seen in real life.
     swerveDrive.setAngularVelocityCompensation(true,
                                                true,
-                                               0.1); //Correct for skew that gets worse as angular velocity increases. Start with a coefficient of 0.1.
+                                               SkewConstants.INITIAL_COEFFICIENT); //Correct for skew that gets worse as angular velocity increases. SkewEstimator fits the coefficient while driving.
     swerveDrive.setModuleEncoderAutoSynchronize(false,
-                                                1); // Enable if you want to resynchronize your absolute encoders and motor encoders periodically when they are not moving.
+                                                1); // Every module steers from an absolute encoder attached to its SPARK MAX, so there is no motor encoder to drift or resynchronize.
     // swerveDrive.pushOffsetsToEncoders(); // Set the absolute encoder to be used over the internal encoder and push the offsets onto it. Throws warning if not possible
    
     setupPathPlanner();
+
+    try
+    {
+      traction = new TractionController(swerveDrive.kinematics.getModules(),
+                                        RobotConfig.fromGUISettings().moduleConfig.wheelCOF);
+      setpointGenerator = new SwerveSetpointGenerator(RobotConfig.fromGUISettings(),
+                                                      swerveDrive.getMaximumChassisAngularVelocity());
+    } catch (Exception e)
+    {
+      DriverStation.reportError("Traction control and setpoint generator disabled, no PathPlanner settings: " + e,
+                                false);
+    }
+
+    // The drivetrain is the last to give up current when the battery sags.
+    int driveCurrentLimit = swerveDrive.swerveDriveConfiguration.physicalCharacteristics.driveMotorCurrentLimit;
+    PowerManager.getInstance().register("Drive",
+                                        PowerConstants.DRIVE_PRIORITY,
+                                        swerveDrive.getModules().length,
+                                        PowerConstants.DRIVE_MIN_CURRENT,
+                                        driveCurrentLimit,
+                                        this::getDriveCurrent,
+                                        this::setDriveCurrentLimit);
+
+    if (Constants.SwerveConstants.FAST_DRIVE_LOOP)
+    {
+      startFastDriveLoop();
+    }
   }
 
   /**
@@ -108,80 +331,462 @@ public class SwerveSubsystem extends SubsystemBase
                                   Constants.SwerveConstants.MAX_SPEED,
                                   new Pose2d(new Translation2d(Meter.of(2), Meter.of(0)),
                                              Rotation2d.fromDegrees(0)));
+    odometry = new SlipAwareOdometry(swerveDrive.kinematics, swerveDrive.getYaw(), swerveDrive.getModulePositions(),
+                                     swerveDrive.getPose());
+    odometryYaw = swerveDrive.getYaw();
+    Dashboard.putData("Field", swerveDrive.field);
+    telemetry = new TelemetryStream(NetworkTableInstance.getDefault(), swerveDrive.field);
+    antiTip = new AntiTipLimiter(swerveDrive.kinematics.getModules(), Constants.SwerveConstants.CHASSIS);
+    moduleDiagnostics = new ModuleDiagnostics(getModuleNames(), swerveDrive.kinematics.getModules(),
+                                              Constants.SwerveConstants.MAX_SPEED,
+                                              Constants.SwerveConstants.MAIN_LOOP_PERIOD);
+    velocityEstimator = new ModuleVelocityEstimator(swerveDrive.getModules(), swerveDrive.kinematics);
+  }
+
+  /**
+   * Get the module names from the configuration.
+   *
+   * @return Names in the order of {@link SwerveDrive#getModules()}.
+   */
+  private String[] getModuleNames()
+  {
+    SwerveModule[] modules = swerveDrive.getModules();
+    String[]       names   = new String[modules.length];
+    for (int i = 0; i < modules.length; i++)
+    {
+      names[i] = modules[i].configuration.name;
+    }
+    return names;
+  }
+
+  private static LagMeter newLagMeter()
+  {
+    return new LagMeter(Constants.SwerveConstants.MAIN_LOOP_PERIOD,
+                        VelocityEstimatorConstants.LAG_WINDOW_SIZE,
+                        VelocityEstimatorConstants.MAX_LAG_LOOPS,
+                        VelocityEstimatorConstants.MIN_LAG_VARIANCE);
   }
 
  
 
+  /**
+   * Update the pose and velocity estimates and forget last cycle's memoized reads. Called by {@link frc.robot.Robot}
+   * before the command scheduler runs, so every subsystem and command in the cycle reads the same values, whatever
+   * order they run in.
+   */
+  public void updateOdometry()
+  {
+    Rotation2d yaw = swerveDrive.getYaw();
+    odometry.update(yaw, swerveDrive.getModulePositions(), swerveDrive.getAccel());
+    odometryYaw = yaw;
+    velocityEstimator.update();
+    invalidateCache();
+  }
+
   @Override
   public void periodic()
   {
-   
+    SwerveModuleState[] states = getMeasuredStates();
+    rawLag.add(getSpeed(velocityEstimator.getRobotVelocity()), getSpeed(swerveDrive.getRobotVelocity()));
+    // Searching for the lag costs a few thousand operations, so only do it when it is published.
+    publishLag = ++loopsSinceLagPublish >= VelocityEstimatorConstants.LAG_PUBLISH_PERIOD_LOOPS;
+    if (publishLag)
+    {
+      loopsSinceLagPublish = 0;
+      Dashboard.putNumber("Velocity/RawLag", rawLag.getLag(), Dashboard.Priority.LOW);
+    }
+    telemetry.update(getPose(), states);
+    moduleDiagnostics.update(swerveDrive.getModules(), states);
+    updateSkewCompensation();
+  }
+
+  /**
+   * Total output current of the drive motors.
+   *
+   * @return Current in amps, from each SPARK MAX's last status frame.
+   */
+  private double getDriveCurrent()
+  {
+    double current = 0.0;
+    for (SwerveModule module : swerveDrive.getModules())
+    {
+      if (module.getDriveMotor().getMotor() instanceof SparkMax driveMotor)
+      {
+        current += driveMotor.getOutputCurrent();
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Set the current limit of every drive motor without resetting the rest of its configuration. Blocks until each
+   * controller acknowledges, so {@link PowerManager} calls it off the main thread.
+   *
+   * <p>Goes to the SPARK MAXes directly, since YAGSL's {@code setCurrentLimit} only marks its configuration dirty, and
+   * the next reference it sets then burns the whole configuration to flash, which fails while enabled.
+   *
+   * @param amps Per motor current limit.
+   */
+  private void setDriveCurrentLimit(int amps)
+  {
+    SparkMaxConfig config = new SparkMaxConfig();
+    config.smartCurrentLimit(amps);
+    for (SwerveModule module : swerveDrive.getModules())
+    {
+      if (module.getDriveMotor().getMotor() instanceof SparkMax driveMotor)
+      {
+        driveMotor.configure(config, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+      }
+    }
+  }
+
+  /**
+   * Feed this loop's motion to the skew estimator, and apply its coefficient if live tuning is on and it has moved.
+   */
+  private void updateSkewCompensation()
+  {
+    skewEstimator.update(getFieldVelocity(), getOdometryHeading());
+    double now      = Timer.getFPGATimestamp();
+    double estimate = skewEstimator.getEstimate();
+    if (SkewConstants.APPLY_LIVE && skewEstimator.isConfident()
+        && now - lastSkewApplyTime >= SkewConstants.APPLY_PERIOD
+        && Math.abs(estimate - skewEstimator.getAppliedCoefficient()) >= SkewConstants.APPLY_THRESHOLD)
+    {
+      runOnDriveThread(() -> swerveDrive.setAngularVelocityCompensation(true, true, estimate));
+      skewEstimator.setAppliedCoefficient(estimate);
+      lastSkewApplyTime = now;
+    }
+  }
+
+  /**
+   * Forget the memoized drive reads so the next call to each getter reads the drive again.
+   */
+  private void invalidateCache()
+  {
+    cachedPose = null;
+    cachedRobotVelocity = null;
+    cachedFieldVelocity = null;
   }
 
   @Override
   public void simulationPeriodic()
   {
+    // maple-sim's chassis pose is ground truth, so running each auto in simulation measures how far odometry drifts.
+    swerveDrive.getSimulationDriveTrainPose().ifPresent(truePose -> {
+      double drift = truePose.getTranslation().getDistance(getPose().getTranslation());
+      simMaxDrift = Math.max(simMaxDrift, drift);
+      simDriftSquaredSum += drift * drift;
+      simDriftSamples++;
+      Dashboard.putNumber("Odometry/SimDrift", drift, Dashboard.Priority.LOW);
+      Dashboard.putNumber("Odometry/SimMaxDrift", simMaxDrift, Dashboard.Priority.LOW);
+      Dashboard.putNumber("Odometry/SimRmsDrift", Math.sqrt(simDriftSquaredSum / simDriftSamples),
+                          Dashboard.Priority.LOW);
+
+      // The true speed from consecutive ground truth poses is the reference for both velocity measurements.
+      double now = Timer.getFPGATimestamp();
+      if (simLastTruePose != null && now > simLastTrueTime)
+      {
+        double trueSpeed = truePose.getTranslation().getDistance(simLastTruePose.getTranslation())
+                           / (now - simLastTrueTime);
+        simRawLag.add(trueSpeed, getSpeed(swerveDrive.getRobotVelocity()));
+        simEstimatedLag.add(trueSpeed, getSpeed(velocityEstimator.getRobotVelocity()));
+        if (publishLag)
+        {
+          Dashboard.putNumber("Velocity/SimRawLag", simRawLag.getLag(), Dashboard.Priority.LOW);
+          Dashboard.putNumber("Velocity/SimEstimatedLag", simEstimatedLag.getLag(), Dashboard.Priority.LOW);
+        }
+      }
+      simLastTruePose = truePose;
+      simLastTrueTime = now;
+    });
+  }
+
+  /**
+   * Translational speed of the robot.
+   *
+   * @param speeds Chassis speeds.
+   * @return Speed in meters per second.
+   */
+  private static double getSpeed(ChassisSpeeds speeds)
+  {
+    return Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond);
+  }
+
+  /**
+   * Measured module states, from {@link ModuleVelocityEstimator} unless
+   * {@link VelocityEstimatorConstants#USE_ESTIMATE} is off. Safe to call from the fast drive loop.
+   *
+   * @return Module states, which must not be modified.
+   */
+  private SwerveModuleState[] getMeasuredStates()
+  {
+    return VelocityEstimatorConstants.USE_ESTIMATE ? velocityEstimator.getStates() : swerveDrive.getStates();
+  }
+
+  /**
+   * Measured robot relative velocity, like {@link #getMeasuredStates()}. Safe to call from the fast drive loop.
+   *
+   * @return Robot relative chassis speeds.
+   */
+  private ChassisSpeeds getMeasuredRobotVelocity()
+  {
+    return VelocityEstimatorConstants.USE_ESTIMATE ? velocityEstimator.getRobotVelocity()
+                                                   : swerveDrive.getRobotVelocity();
+  }
+
+  /**
+   * Run module control on its own {@link Notifier} at {@link Constants.SwerveConstants#FAST_DRIVE_LOOP_PERIOD}. The
+   * drive methods then only publish their target, and heading correction, skew compensation and setpoint generation
+   * all run at the faster rate.
+   */
+  private void startFastDriveLoop()
+  {
+    fastDriveLoopEnabled = true;
+    fastDriveLoop = new Notifier(this::runFastDriveLoop);
+    fastDriveLoop.setName("FastDriveLoop");
+    fastDriveLoop.startPeriodic(Constants.SwerveConstants.FAST_DRIVE_LOOP_PERIOD);
   }
 
   /**
-   * Setup AutoBuilder for PathPlanner.
+   * One iteration of the fast drive loop. Stops the robot if the scheduler hasn't published a target recently, so a
+   * finished or stalled command can't leave the robot driving.
+   */
+  private void runFastDriveLoop()
+  {
+    runDriveThreadTasks();
+    double      now    = Timer.getFPGATimestamp();
+    DriveTarget target = driveTarget.get();
+    if (target == null || now - target.timestamp() > Constants.SwerveConstants.FAST_DRIVE_TARGET_TIMEOUT)
+    {
+      writeDriveCommand(new ChassisSpeeds(), null, null);
+      previousSetpoint = null;
+      return;
+    }
+    applyDriveTarget(target, now);
+  }
+
+  /**
+   * Write a target to the modules. Only called on the drive thread. Every driving target is limited by
+   * {@link #limitDriveCommand} and written by {@link #writeDriveCommand}, whichever way it is shaped.
+   *
+   * @param target Target to apply.
+   * @param now    Current FPGA time.
+   */
+  private void applyDriveTarget(DriveTarget target, double now)
+  {
+    RobotState.getInstance().read(driveState);
+    antiTip.setMechanismState(driveState.armRaised, driveState.climberDeployed);
+    if (target.moduleOutput() != null || target.lock())
+    {
+      previousSetpoint = null;
+      if (target.moduleOutput() != null)
+      {
+        target.moduleOutput().accept(swerveDrive.getModules());
+      } else
+      {
+        swerveDrive.lockPose();
+      }
+      return;
+    }
+
+    ChassisSpeeds speeds = limitDriveCommand(target.fieldRelative()
+                                             ? ChassisSpeeds.fromFieldRelativeSpeeds(target.speeds(), getDriveHeading())
+                                             : target.speeds());
+    if (target.useSetpointGenerator() && setpointGenerator != null)
+    {
+      if (previousSetpoint == null || now - previousSetpointTime > Constants.SwerveConstants.FAST_DRIVE_TARGET_TIMEOUT)
+      {
+        // Start from the measured state if the generator wasn't used last time, or not recently.
+        previousSetpoint = new SwerveSetpoint(getMeasuredRobotVelocity(),
+                                              getMeasuredStates(),
+                                              DriveFeedforwards.zeros(swerveDrive.getModules().length));
+        previousSetpointTime = now;
+      }
+      SwerveSetpoint setpoint = setpointGenerator.generateSetpoint(previousSetpoint,
+                                                                   speeds,
+                                                                   now - previousSetpointTime);
+      writeDriveCommand(setpoint.robotRelativeSpeeds(),
+                        setpoint.moduleStates(),
+                        setpoint.feedforwards().linearForces());
+      previousSetpoint = setpoint;
+      previousSetpointTime = now;
+      return;
+    }
+
+    previousSetpoint = null;
+    if (target.feedforwards() != null)
+    {
+      writeDriveCommand(speeds,
+                        swerveDrive.kinematics.toSwerveModuleStates(speeds),
+                        scaleFeedforwards(target.feedforwards()));
+    } else
+    {
+      writeDriveCommand(speeds, null, null);
+    }
+  }
+
+  /**
+   * Run a change to the {@link SwerveDrive}'s control settings on the drive thread, so it can't race a module write.
+   * Runs right away if the main thread is the drive thread.
+   *
+   * @param task Change to make.
+   */
+  private void runOnDriveThread(Runnable task)
+  {
+    if (fastDriveLoopEnabled)
+    {
+      driveThreadTasks.add(task);
+    } else
+    {
+      task.run();
+    }
+  }
+
+  private void runDriveThreadTasks()
+  {
+    Runnable task;
+    while ((task = driveThreadTasks.poll()) != null)
+    {
+      task.run();
+    }
+  }
+
+  /**
+   * Limit robot relative speeds to what won't tip the robot, see {@link AntiTipLimiter}, then to the traction
+   * available, see {@link TractionController}.
+   *
+   * @param robotRelative Requested robot relative speeds.
+   * @return Limited speeds, shaped by the setpoint generator afterwards if the target asks for it.
+   */
+  private ChassisSpeeds limitDriveCommand(ChassisSpeeds robotRelative)
+  {
+    ChassisSpeeds speeds = antiTip.calculate(robotRelative, swerveDrive.getPitch(), swerveDrive.getRoll());
+    if (traction != null)
+    {
+      speeds = traction.calculate(speeds, getMeasuredStates(), swerveDrive.getYaw());
+    }
+    return speeds;
+  }
+
+  /**
+   * Record a drive command with the skew estimator and module diagnostics, and send it to the modules. The only place
+   * the drive thread drives the modules from.
+   *
+   * @param speeds       Robot relative speeds.
+   * @param states       Module states to drive, or null to have YAGSL compute them from {@code speeds}.
+   * @param feedforwards Per module linear force feedforwards, used with {@code states}.
+   */
+  private void writeDriveCommand(ChassisSpeeds speeds, SwerveModuleState[] states, Force[] feedforwards)
+  {
+    skewEstimator.recordCommand(speeds, getDriveHeading());
+    if (states == null)
+    {
+      moduleDiagnostics.recordCommand(speeds);
+      swerveDrive.drive(speeds);
+    } else
+    {
+      moduleDiagnostics.recordCommand(states);
+      swerveDrive.drive(speeds, states, feedforwards);
+    }
+  }
+
+  /**
+   * Scale PathPlanner's module force feedforwards by how much of the requested acceleration the anti-tip and traction
+   * limits allowed.
+   *
+   * @param forces Per module linear forces.
+   * @return The forces, scaled if the last command was limited.
+   */
+  private Force[] scaleFeedforwards(Force[] forces)
+  {
+    double scale = antiTip.getScale() * (traction == null ? 1.0 : traction.getScale());
+    if (scale >= 1.0)
+    {
+      return forces;
+    }
+    Force[] scaled = new Force[forces.length];
+    for (int i = 0; i < forces.length; i++)
+    {
+      scaled[i] = Newtons.of(forces[i].in(Newtons) * scale);
+    }
+    return scaled;
+  }
+
+  /**
+   * Drive toward a target. Every module write goes through here, so the fast drive loop is the only thread writing
+   * the modules while it runs.
+   *
+   * @param speeds               Target chassis speeds.
+   * @param fieldRelative        Whether {@code speeds} are field relative.
+   * @param feedforwards         Per module linear force feedforwards from PathPlanner, or null.
+   * @param useSetpointGenerator Whether to shape the robot relative {@code speeds} with the setpoint generator.
+   * @param lock                 Whether to lock the modules in an X instead of driving.
+   */
+  private void submitDriveTarget(ChassisSpeeds speeds, boolean fieldRelative, Force[] feedforwards,
+                                 boolean useSetpointGenerator, boolean lock)
+  {
+    submitDriveTarget(new DriveTarget(speeds, fieldRelative, feedforwards, useSetpointGenerator, lock, null,
+                                      Timer.getFPGATimestamp()));
+  }
+
+  /**
+   * Write the modules directly instead of driving, for as long as this is called each loop.
+   *
+   * @param moduleOutput Writes the modules, called on the drive thread.
+   */
+  private void submitModuleOutput(Consumer<SwerveModule[]> moduleOutput)
+  {
+    submitDriveTarget(new DriveTarget(null, false, null, false, false, moduleOutput, Timer.getFPGATimestamp()));
+  }
+
+  /**
+   * Hand a target to the fast drive loop if it is running, otherwise apply it now.
+   */
+  private void submitDriveTarget(DriveTarget target)
+  {
+    if (fastDriveLoopEnabled)
+    {
+      driveTarget.set(target);
+      return;
+    }
+    applyDriveTarget(target, target.timestamp());
+  }
+
+  /**
+   * Setup AutoBuilder for PathPlanner. Autos it builds follow their paths through {@link #followPath(String)}, so they
+   * run on the paths {@link AllianceCache} flipped ahead of time instead of flipping them when each path starts.
    */
   public void setupPathPlanner()
   {
     // Load the RobotConfig from the GUI settings. You should probably
     // store this in your Constants file
-    RobotConfig config;
     try
     {
-      config = RobotConfig.fromGUISettings();
+      pathConfig = RobotConfig.fromGUISettings();
+      // PPHolonomicController is the built in path following controller for holonomic drive trains
+      pathController = new PPHolonomicDriveController(
+          new PIDConstants(PathFollowingConstants.TRANSLATION_P, PathFollowingConstants.TRANSLATION_I,
+                           PathFollowingConstants.TRANSLATION_D),
+          // Translation PID constants
+          new PIDConstants(PathFollowingConstants.ROTATION_P, PathFollowingConstants.ROTATION_I,
+                           PathFollowingConstants.ROTATION_D)
+          // Rotation PID constants
+      );
 
-      final boolean enableFeedforward = true;
       // Configure AutoBuilder last
-      AutoBuilder.configure(
+      AutoBuilder.configureCustom(
+          this::buildPathCommand,
+          // Builds each path step of an auto
           this::getPose,
           // Robot pose supplier
           this::resetOdometry,
           // Method to reset odometry (will be called if your auto has a starting pose)
-          this::getRobotVelocity,
-          // ChassisSpeeds supplier. MUST BE ROBOT RELATIVE
-          (speedsRobotRelative, moduleFeedForwards) -> {
-            if (enableFeedforward)
-            {
-              swerveDrive.drive(
-                  speedsRobotRelative,
-                  swerveDrive.kinematics.toSwerveModuleStates(speedsRobotRelative),
-                  moduleFeedForwards.linearForces()
-                               );
-            } else
-            {
-              swerveDrive.setChassisSpeeds(speedsRobotRelative);
-            }
-          },
-          // Method that will drive the robot given ROBOT RELATIVE ChassisSpeeds. Also optionally outputs individual module feedforwards
-          new PPHolonomicDriveController(
-              // PPHolonomicController is the built in path following controller for holonomic drive trains
-              new PIDConstants(5.0, 0.0, 0.0),
-              // Translation PID constants
-              new PIDConstants(5.0, 0.0, 0.0)
-              // Rotation PID constants
-          ),
-          config,
-          // The robot configuration
-          () -> {
-            // Boolean supplier that controls when the path will be mirrored for the red alliance
-            // This will flip the path being followed to the red side of the field.
-            // THE ORIGIN WILL REMAIN ON THE BLUE SIDE
-
-            var alliance = DriverStation.getAlliance();
-            if (alliance.isPresent())
-            {
-              return alliance.get() == DriverStation.Alliance.Red;
-            }
-            return false;
-          },
-          this
-          // Reference to this subsystem to set requirements
-                           );
+          // Boolean supplier that controls when the starting pose will be mirrored for the red alliance
+          // THE ORIGIN WILL REMAIN ON THE BLUE SIDE
+          AllianceCache.getInstance()::isRedAlliance,
+          true
+          // Holonomic drive train
+                                 );
 
     } catch (Exception e)
     {
@@ -191,6 +796,8 @@ public class SwerveSubsystem extends SubsystemBase
 
     //Preload PathPlanner Path finding
     // IF USING CUSTOM PATHFINDER ADD BEFORE THIS LINE
+    // D* Lite repairs the plan around moving obstacles instead of searching again from scratch
+    Pathfinding.setPathfinder(new DStarLitePathfinder());
     PathfindingCommand.warmupCommand().schedule();
   }
 
@@ -206,6 +813,68 @@ public class SwerveSubsystem extends SubsystemBase
     return new PathPlannerAuto(pathName);
   }
 
+  /**
+   * Build a PathPlanner auto with {@link AutoBuilder#buildAuto}.
+   *
+   * @param autoName           Auto name without the .auto extension.
+   * @param followTrajectories Follow each path's cached ideal trajectory with {@link #followTrajectory(String)},
+   *                           rather than having PathPlanner generate one from the robot's speed when the path starts.
+   * @return The auto.
+   */
+  public Command buildAuto(String autoName, boolean followTrajectories)
+  {
+    // PathPlannerAuto builds its path steps while it is constructed.
+    buildTrajectoryFollowers = followTrajectories;
+    try
+    {
+      return AutoBuilder.buildAuto(autoName);
+    } finally
+    {
+      buildTrajectoryFollowers = false;
+    }
+  }
+
+  /**
+   * Path step of an auto. AutoBuilder hands over the path as loaded, and it is looked up again by name so the
+   * alliance's cached copy is followed.
+   */
+  private Command buildPathCommand(PathPlannerPath path)
+  {
+    return buildTrajectoryFollowers ? followTrajectory(path.name) : followPath(path.name);
+  }
+
+  /**
+   * Follow a single path, already flipped by {@link AllianceCache} for the alliance we are on when the command starts.
+   *
+   * @param pathName PathPlanner path name.
+   * @return {@link FollowPathCommand}, or nothing if the path doesn't exist.
+   */
+  public Command followPath(String pathName)
+  {
+    return Commands.defer(() -> {
+      PathPlannerPath path = AllianceCache.getInstance().getPath(pathName);
+      if (path == null || pathController == null)
+      {
+        DriverStation.reportError("Can't follow path " + pathName
+                                  + (path == null ? ", it doesn't exist" : " without the PathPlanner settings"), false);
+        return Commands.none();
+      }
+      // Red paths are marked preventFlipping, so the follower won't flip them again.
+      return new FollowPathCommand(path, this::getPose, this::getRobotVelocity, this::drivePath, pathController,
+                                   pathConfig, AllianceCache.getInstance()::isRedAlliance, this);
+    }, Set.of(this));
+  }
+
+  /**
+   * Drive the robot relative speeds and module feedforwards of PathPlanner's follower.
+   */
+  private void drivePath(ChassisSpeeds speedsRobotRelative, DriveFeedforwards moduleFeedForwards)
+  {
+    final boolean enableFeedforward = true;
+    submitDriveTarget(speedsRobotRelative, false, enableFeedforward ? moduleFeedForwards.linearForces() : null, false,
+                      false);
+  }
+
   /**
    * Use PathPlanner Path finding to go to a point on the field.
    *
@@ -219,12 +888,143 @@ public class SwerveSubsystem extends SubsystemBase
         swerveDrive.getMaximumChassisVelocity(), 4.0,
         swerveDrive.getMaximumChassisAngularVelocity(), Units.degreesToRadians(720));
 
-// Since AutoBuilder is configured, we can use it to build pathfinding commands
-    return AutoBuilder.pathfindToPose(
+    if (pathController == null)
+    {
+      DriverStation.reportError("Can't pathfind without the PathPlanner settings", false);
+      return Commands.none();
+    }
+    return new PathfindingCommand(
         pose,
         constraints,
-        edu.wpi.first.units.Units.MetersPerSecond.of(0) // Goal end velocity in meters/sec
-                                     );
+        edu.wpi.first.units.Units.MetersPerSecond.of(0), // Goal end velocity in meters/sec
+        this::getPose,
+        this::getRobotVelocity,
+        this::drivePath,
+        pathController,
+        pathConfig,
+        this
+                                 );
+  }
+
+  /**
+   * Follow a {@link CompactTrajectory}, sampled each loop without allocating. The trajectory's field velocity is the
+   * feedforward and position and heading errors are corrected with the same gains as the PathPlanner follower.
+   *
+   * @param trajectory Trajectory to follow, in field coordinates.
+   * @return {@link Command} that ends when the trajectory's time is up.
+   */
+  public Command followTrajectory(CompactTrajectory trajectory)
+  {
+    PIDController            xController     = new PIDController(PathFollowingConstants.TRANSLATION_P,
+                                                                  PathFollowingConstants.TRANSLATION_I,
+                                                                  PathFollowingConstants.TRANSLATION_D);
+    PIDController            yController     = new PIDController(PathFollowingConstants.TRANSLATION_P,
+                                                                  PathFollowingConstants.TRANSLATION_I,
+                                                                  PathFollowingConstants.TRANSLATION_D);
+    PIDController            thetaController = new PIDController(PathFollowingConstants.ROTATION_P,
+                                                                  PathFollowingConstants.ROTATION_I,
+                                                                  PathFollowingConstants.ROTATION_D);
+    CompactTrajectory.Sample sample          = new CompactTrajectory.Sample();
+    Timer                    timer           = new Timer();
+    thetaController.enableContinuousInput(-Math.PI, Math.PI);
+
+    return startRun(() -> {
+                      timer.restart();
+                      postTrajectory(trajectory);
+                    },
+                    () -> {
+                      trajectory.sample(timer.get(), sample);
+                      telemetry.setTrajectoryTime(trajectory, sample.time);
+                      Pose2d pose = getPose();
+                      driveFieldOriented(new ChassisSpeeds(
+                          sample.getFieldVx() + xController.calculate(pose.getX(), sample.x),
+                          sample.getFieldVy() + yController.calculate(pose.getY(), sample.y),
+                          sample.angularVelocity + thetaController.calculate(pose.getRotation().getRadians(),
+                                                                             sample.rotation)));
+                    })
+        .until(() -> timer.hasElapsed(trajectory.getTotalTime()));
+  }
+
+  /**
+   * Follow the ideal trajectory of a PathPlanner path as a {@link CompactTrajectory}, flipped for the alliance we are
+   * on when the command starts.
+   *
+   * @param pathName PathPlanner path name.
+   * @return {@link Command} that ends when the trajectory's time is up, or right away if the path has no trajectory.
+   */
+  public Command followTrajectory(String pathName)
+  {
+    return Commands.defer(() -> {
+      CompactTrajectory trajectory = AllianceCache.getInstance().getCompactTrajectory(pathName);
+      if (trajectory == null)
+      {
+        DriverStation.reportError("No trajectory for path " + pathName, false);
+        return Commands.none();
+      }
+      return followTrajectory(trajectory);
+    }, Set.of(this));
+  }
+
+  /**
+   * Drive to the nearest {@link FieldTargets} target of our alliance with profiled controllers. The target is picked
+   * from the pose when the command starts, and the command ends once the robot is lined up.
+   *
+   * @param types Target types to consider, or every type if none are given.
+   * @return {@link Command} to run while the driver holds the align button.
+   */
+  public Command alignToNearestTarget(FieldTargets.Type... types)
+  {
+    ProfiledPIDController xController = new ProfiledPIDController(
+        AlignConstants.TRANSLATION_P, 0, 0,
+        new TrapezoidProfile.Constraints(AlignConstants.MAX_VELOCITY, AlignConstants.MAX_ACCELERATION));
+    ProfiledPIDController yController = new ProfiledPIDController(
+        AlignConstants.TRANSLATION_P, 0, 0,
+        new TrapezoidProfile.Constraints(AlignConstants.MAX_VELOCITY, AlignConstants.MAX_ACCELERATION));
+    ProfiledPIDController thetaController = new ProfiledPIDController(
+        AlignConstants.THETA_P, 0, 0,
+        new TrapezoidProfile.Constraints(AlignConstants.MAX_ANGULAR_VELOCITY,
+                                         AlignConstants.MAX_ANGULAR_ACCELERATION));
+    thetaController.enableContinuousInput(-Math.PI, Math.PI);
+    xController.setTolerance(AlignConstants.TRANSLATION_TOLERANCE);
+    yController.setTolerance(AlignConstants.TRANSLATION_TOLERANCE);
+    thetaController.setTolerance(AlignConstants.THETA_TOLERANCE);
+    AtomicReference<Pose2d> target = new AtomicReference<>();
+
+    return startRun(() -> {
+                      Pose2d        pose     = getPose();
+                      ChassisSpeeds velocity = getFieldVelocity();
+                      target.set(AllianceCache.getInstance().getNearestTarget(pose, types)
+                                              .map(FieldTargets.Target::pose)
+                                              .orElse(null));
+                      if (target.get() == null)
+                      {
+                        return;
+                      }
+                      swerveDrive.field.getObject("alignTarget").setPose(target.get());
+                      xController.reset(pose.getX(), velocity.vxMetersPerSecond);
+                      yController.reset(pose.getY(), velocity.vyMetersPerSecond);
+                      thetaController.reset(pose.getRotation().getRadians(), velocity.omegaRadiansPerSecond);
+                    },
+                    () -> {
+                      if (target.get() == null)
+                      {
+                        return;
+                      }
+                      Pose2d pose = getPose();
+                      Pose2d goal = target.get();
+                      // PID on the profile setpoint plus the profile velocity as feedforward
+                      double vx = xController.calculate(pose.getX(), goal.getX())
+                                  + xController.getSetpoint().velocity;
+                      double vy = yController.calculate(pose.getY(), goal.getY())
+                                  + yController.getSetpoint().velocity;
+                      double omega = thetaController.calculate(pose.getRotation().getRadians(),
+                                                               goal.getRotation().getRadians())
+                                     + thetaController.getSetpoint().velocity;
+                      driveFieldOriented(new ChassisSpeeds(vx, vy, omega));
+                    })
+        .until(() -> target.get() == null
+                     || (xController.atGoal() && yController.atGoal() && thetaController.atGoal()))
+        .finallyDo(() -> swerveDrive.field.getObject("alignTarget").setPoses());
   }
 
   /**
@@ -232,33 +1032,11 @@ public class SwerveSubsystem extends SubsystemBase
    *
    * @param robotRelativeChassisSpeed Robot relative {@link ChassisSpeeds} to achieve.
    * @return {@link Command} to run.
-   * @throws IOException    If the PathPlanner GUI settings is invalid
-   * @throws ParseException If PathPlanner GUI settings is nonexistent.
    */
   private Command driveWithSetpointGenerator(Supplier<ChassisSpeeds> robotRelativeChassisSpeed)
-  throws IOException, ParseException
   {
-    SwerveSetpointGenerator setpointGenerator = new SwerveSetpointGenerator(RobotConfig.fromGUISettings(),
-                                                                            swerveDrive.getMaximumChassisAngularVelocity());
-    AtomicReference<SwerveSetpoint> prevSetpoint
-        = new AtomicReference<>(new SwerveSetpoint(swerveDrive.getRobotVelocity(),
-                                                   swerveDrive.getStates(),
-                                                   DriveFeedforwards.zeros(swerveDrive.getModules().length)));
-    AtomicReference<Double> previousTime = new AtomicReference<>();
-
-    return startRun(() -> previousTime.set(Timer.getFPGATimestamp()),
-                    () -> {
-                      double newTime = Timer.getFPGATimestamp();
-                      SwerveSetpoint newSetpoint = setpointGenerator.generateSetpoint(prevSetpoint.get(),
-                                                                                      robotRelativeChassisSpeed.get(),
-                                                                                      newTime - previousTime.get());
-                      swerveDrive.drive(newSetpoint.robotRelativeSpeeds(),
-                                        newSetpoint.moduleStates(),
-                                        newSetpoint.feedforwards().linearForces());
-                      prevSetpoint.set(newSetpoint);
-                      previousTime.set(newTime);
-
-                    });
+    // The drive thread runs the generator, starting from the measured state.
+    return run(() -> submitDriveTarget(robotRelativeChassisSpeed.get(), false, null, true, false));
   }
 
   /**
@@ -269,47 +1047,140 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public Command driveWithSetpointGeneratorFieldRelative(Supplier<ChassisSpeeds> fieldRelativeSpeeds)
   {
-    try
-    {
-      return driveWithSetpointGenerator(() -> {
-        return ChassisSpeeds.fromFieldRelativeSpeeds(fieldRelativeSpeeds.get(), getHeading());
-
-      });
-    } catch (Exception e)
+    if (setpointGenerator == null)
     {
-      DriverStation.reportError(e.toString(), true);
+      DriverStation.reportError("No setpoint generator, PathPlanner settings couldn't be loaded", true);
+      return Commands.none();
     }
-    return Commands.none();
+    return driveWithSetpointGenerator(() -> {
+      return ChassisSpeeds.fromFieldRelativeSpeeds(fieldRelativeSpeeds.get(), getHeading());
 
+    });
   }
 
 
   /**
-   * Command to characterize the robot drive motors using SysId
+   * Command to characterize the robot drive motors using SysId. The feedforward is also fit on the robot while the
+   * routine runs and published under {@code SysId/Drive}, and applied if
+   * {@link SysIdConstants#APPLY_DRIVE_FEEDFORWARD} is set and the fit is confident.
    *
    * @return SysId Drive Command
    */
   public Command sysIdDriveMotorCommand()
   {
-    return SwerveDriveTest.generateSysIdCommand(
-        SwerveDriveTest.setDriveSysIdRoutine(
-            new Config(),
-            this, swerveDrive, 12, true),
-        3.0, 5.0, 3.0);
+    FeedforwardIdentifier identifier = new FeedforwardIdentifier("SysId/Drive", swerveDrive.getModules().length);
+    return SwerveDriveTest.generateSysIdCommand(driveSysIdRoutine(), 3.0, 5.0, 3.0)
+                          .deadlineFor(identifyFeedforward(identifier, true))
+                          .finallyDo(() -> {
+                            if (SysIdConstants.APPLY_DRIVE_FEEDFORWARD && identifier.isConfident())
+                            {
+                              replaceSwerveModuleFeedforward(identifier.getKs(),
+                                                             identifier.getKv(),
+                                                             identifier.getKa());
+                            }
+                          });
   }
 
   /**
-   * Command to characterize the robot angle motors using SysId
+   * Command to characterize the robot angle motors using SysId. The feedforward, in volts per degree per second, is
+   * also fit on the robot while the routine runs and published under {@code SysId/Angle}.
    *
    * @return SysId Angle Command
    */
   public Command sysIdAngleMotorCommand()
   {
-    return SwerveDriveTest.generateSysIdCommand(
-        SwerveDriveTest.setAngleSysIdRoutine(
-            new Config(),
-            this, swerveDrive),
-        3.0, 5.0, 3.0);
+    FeedforwardIdentifier identifier = new FeedforwardIdentifier("SysId/Angle", swerveDrive.getModules().length);
+    return SwerveDriveTest.generateSysIdCommand(angleSysIdRoutine(), 3.0, 5.0, 3.0)
+                          .deadlineFor(identifyFeedforward(identifier, false));
+  }
+
+  /**
+   * Same routine as {@link SwerveDriveTest#setDriveSysIdRoutine} with spinning, but the voltages go through
+   * {@link #submitModuleOutput} so they are applied on the drive thread.
+   *
+   * @return Drive motor {@link SysIdRoutine}.
+   */
+  private SysIdRoutine driveSysIdRoutine()
+  {
+    Translation2d[] locations = swerveDrive.kinematics.getModules();
+    return new SysIdRoutine(new Config(), new SysIdRoutine.Mechanism(
+        voltage -> {
+          double volts = Math.min(voltage.in(Volts), SysIdConstants.DRIVE_MAX_VOLTAGE);
+          submitModuleOutput(modules -> {
+            for (int i = 0; i < modules.length; i++)
+            {
+              // Point every wheel along the circle through the modules, so the robot spins in place.
+              modules[i].setAngle(locations[i].getAngle().plus(Rotation2d.kCCW_Pi_2).getDegrees());
+              modules[i].getDriveMotor().setVoltage(volts);
+            }
+          });
+        },
+        log -> {
+          for (SwerveModule module : swerveDrive.getModules())
+          {
+            log.motor(module.configuration.name)
+               .voltage(Volts.of(module.getDriveMotor().getVoltage()))
+               .linearPosition(Meters.of(module.getPosition().distanceMeters))
+               .linearVelocity(MetersPerSecond.of(module.getDriveMotor().getVelocity()));
+          }
+        },
+        this));
+  }
+
+  /**
+   * Same routine as {@link SwerveDriveTest#setAngleSysIdRoutine}, but the voltages go through
+   * {@link #submitModuleOutput} so they are applied on the drive thread.
+   *
+   * @return Angle motor {@link SysIdRoutine}.
+   */
+  private SysIdRoutine angleSysIdRoutine()
+  {
+    return new SysIdRoutine(new Config(), new SysIdRoutine.Mechanism(
+        voltage -> {
+          double volts = voltage.in(Volts);
+          submitModuleOutput(modules -> {
+            for (SwerveModule module : modules)
+            {
+              module.getDriveMotor().setVoltage(0.0);
+              module.getAngleMotor().setVoltage(volts);
+            }
+          });
+        },
+        log -> {
+          for (SwerveModule module : swerveDrive.getModules())
+          {
+            log.motor(module.configuration.name)
+               .voltage(Volts.of(module.getAngleMotor().getVoltage()))
+               .angularPosition(Degrees.of(module.getRelativePosition()))
+               .angularVelocity(DegreesPerSecond.of(module.getAngleMotor().getVelocity()));
+          }
+        },
+        this));
+  }
+
+  /**
+   * Sample every module's drive or angle motor into an identifier each loop, publishing the fit as it goes. Doesn't
+   * require the subsystem, so it can run alongside the SysId routine.
+   *
+   * @param identifier Identifier to feed, reset when the command starts.
+   * @param drive      Whether to sample the drive motors, otherwise the angle motors.
+   * @return {@link Command} that runs until interrupted.
+   */
+  private Command identifyFeedforward(FeedforwardIdentifier identifier, boolean drive)
+  {
+    return Commands.startRun(identifier::reset, () -> {
+      double         now     = Timer.getFPGATimestamp();
+      SwerveModule[] modules = swerveDrive.getModules();
+      for (int i = 0; i < modules.length; i++)
+      {
+        SwerveMotor motor = drive ? modules[i].getDriveMotor() : modules[i].getAngleMotor();
+        double velocity = !VelocityEstimatorConstants.USE_ESTIMATE ? motor.getVelocity()
+                          : drive ? velocityEstimator.getDriveVelocity(i)
+                                  : velocityEstimator.getAzimuthVelocity(i);
+        identifier.addMeasurement(i, now, motor.getVoltage(), velocity);
+      }
+      identifier.publish();
+    });
   }
 
   /**
@@ -319,8 +1190,8 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public Command centerModulesCommand()
   {
-    return run(() -> Arrays.asList(swerveDrive.getModules())
-                           .forEach(it -> it.setAngle(0.0)));
+    return run(() -> submitModuleOutput(modules -> Arrays.asList(modules)
+                                                         .forEach(it -> it.setAngle(0.0))));
   }
 
   /**
@@ -333,7 +1204,7 @@ public class SwerveSubsystem extends SubsystemBase
   public Command driveToDistanceCommand(double distanceInMeters, double speedInMetersPerSecond)
   {
     return run(() -> drive(new ChassisSpeeds(speedInMetersPerSecond, 0, 0)))
-        .until(() -> swerveDrive.getPose().getTranslation().getDistance(new Translation2d(0, 0)) >
+        .until(() -> getPose().getTranslation().getDistance(new Translation2d(0, 0)) >
                      distanceInMeters);
   }
 
@@ -346,7 +1217,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void replaceSwerveModuleFeedforward(double kS, double kV, double kA)
   {
-    swerveDrive.replaceSwerveModuleFeedforward(new SimpleMotorFeedforward(kS, kV, kA));
+    runOnDriveThread(() -> swerveDrive.replaceSwerveModuleFeedforward(new SimpleMotorFeedforward(kS, kV, kA)));
   }
 
   /**
@@ -361,12 +1232,10 @@ public class SwerveSubsystem extends SubsystemBase
   {
     return run(() -> {
       // Make the robot move
-      swerveDrive.drive(SwerveMath.scaleTranslation(new Translation2d(
-                            translationX.getAsDouble() * swerveDrive.getMaximumChassisVelocity(),
-                            translationY.getAsDouble() * swerveDrive.getMaximumChassisVelocity()), 0.8),
-                        Math.pow(angularRotationX.getAsDouble(), 3) * swerveDrive.getMaximumChassisAngularVelocity(),
-                        true,
-                        false);
+      drive(new Translation2d(translationX.getAsDouble() * swerveDrive.getMaximumChassisVelocity(),
+                              translationY.getAsDouble() * swerveDrive.getMaximumChassisVelocity()),
+            Math.pow(angularRotationX.getAsDouble(), 3) * swerveDrive.getMaximumChassisAngularVelocity(),
+            true);
     });
   }
 
@@ -385,14 +1254,13 @@ public class SwerveSubsystem extends SubsystemBase
     // swerveDrive.setHeadingCorrection(true); // Normally you would want heading correction for this kind of control.
     return run(() -> {
 
-      Translation2d scaledInputs = SwerveMath.scaleTranslation(new Translation2d(translationX.getAsDouble(),
-                                                                                 translationY.getAsDouble()), 0.8);
+      Translation2d scaledInputs = new Translation2d(translationX.getAsDouble(), translationY.getAsDouble());
 
       // Make the robot move
       driveFieldOriented(swerveDrive.swerveController.getTargetSpeeds(scaledInputs.getX(), scaledInputs.getY(),
                                                                       headingX.getAsDouble(),
                                                                       headingY.getAsDouble(),
-                                                                      swerveDrive.getOdometryHeading().getRadians(),
+                                                                      getOdometryHeading().getRadians(),
                                                                       swerveDrive.getMaximumChassisVelocity()));
     });
   }
@@ -413,10 +1281,9 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void drive(Translation2d translation, double rotation, boolean fieldRelative)
   {
-    swerveDrive.drive(translation,
-                      rotation,
-                      fieldRelative,
-                      false); // Open loop is disabled since it shouldn't be used most of the time.
+    // Closed loop, open loop shouldn't be used most of the time.
+    submitDriveTarget(new ChassisSpeeds(translation.getX(), translation.getY(), rotation),
+                      fieldRelative, null, false, false);
   }
 
   /**
@@ -426,7 +1293,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void driveFieldOriented(ChassisSpeeds velocity)
   {
-    swerveDrive.driveFieldOriented(velocity);
+    submitDriveTarget(velocity, true, null, false, false);
   }
 
   /**
@@ -437,7 +1304,11 @@ public class SwerveSubsystem extends SubsystemBase
   public Command driveFieldOriented(Supplier<ChassisSpeeds> velocity)
   {
     return run(() -> {
-      swerveDrive.driveFieldOriented(velocity.get());
+      ChassisSpeeds targetSpeeds = velocity.get();
+      LatencyTracer.markCommandComputed();
+      // With the fast drive loop running this marks the handoff to it rather than the module write.
+      driveFieldOriented(targetSpeeds);
+      LatencyTracer.markSetpointWritten();
     });
   }
 
@@ -448,7 +1319,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void drive(ChassisSpeeds velocity)
   {
-    swerveDrive.drive(velocity);
+    submitDriveTarget(velocity, false, null, false, false);
   }
 
 
@@ -472,6 +1343,13 @@ public class SwerveSubsystem extends SubsystemBase
   public void resetOdometry(Pose2d initialHolonomicPose)
   {
     swerveDrive.resetOdometry(initialHolonomicPose);
+    Rotation2d yaw = swerveDrive.getYaw();
+    odometry.resetPose(yaw, swerveDrive.getModulePositions(), initialHolonomicPose);
+    odometryYaw = yaw;
+    simMaxDrift = 0.0;
+    simDriftSquaredSum = 0.0;
+    simDriftSamples = 0;
+    invalidateCache();
   }
 
   /**
@@ -481,7 +1359,32 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public Pose2d getPose()
   {
-    return swerveDrive.getPose();
+    if (cachedPose == null)
+    {
+      cachedPose = odometry.getPose();
+    }
+    return cachedPose;
+  }
+
+  /**
+   * Gets the heading of the pose estimate, the one field relative driving uses.
+   *
+   * @return The odometry heading
+   */
+  public Rotation2d getOdometryHeading()
+  {
+    return getPose().getRotation();
+  }
+
+  /**
+   * Heading for field relative driving on the drive thread. The gyro's turn since the pose in {@link #driveState} was
+   * estimated is added to its heading, so the estimator isn't touched off the main thread.
+   *
+   * @return The heading of the pose estimate, updated with the gyro since the main loop published it
+   */
+  private Rotation2d getDriveHeading()
+  {
+    return swerveDrive.getYaw().plus(new Rotation2d(driveState.poseTheta - driveState.gyroYaw));
   }
 
   /**
@@ -491,7 +1394,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void setChassisSpeeds(ChassisSpeeds chassisSpeeds)
   {
-    swerveDrive.setChassisSpeeds(chassisSpeeds);
+    submitDriveTarget(chassisSpeeds, false, null, false, false);
   }
 
   /**
@@ -501,7 +1404,17 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void postTrajectory(Trajectory trajectory)
   {
-    swerveDrive.postTrajectory(trajectory);
+    telemetry.postTrajectory(trajectory);
+  }
+
+  /**
+   * Post a compact trajectory to the field. It is only sent if it differs from the last one posted.
+   *
+   * @param trajectory The trajectory to post.
+   */
+  public void postTrajectory(CompactTrajectory trajectory)
+  {
+    telemetry.postTrajectory(trajectory);
   }
 
   /**
@@ -510,6 +1423,11 @@ public class SwerveSubsystem extends SubsystemBase
   public void zeroGyro()
   {
     swerveDrive.zeroGyro();
+    Rotation2d yaw = swerveDrive.getYaw();
+    odometry.resetPose(yaw, swerveDrive.getModulePositions(),
+                       new Pose2d(odometry.getPose().getTranslation(), Rotation2d.kZero));
+    odometryYaw = yaw;
+    invalidateCache();
   }
 
   /**
@@ -519,8 +1437,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   private boolean isRedAlliance()
   {
-    var alliance = DriverStation.getAlliance();
-    return alliance.isPresent() ? alliance.get() == DriverStation.Alliance.Red : false;
+    return AllianceCache.getInstance().isRedAlliance();
   }
 
   /**
@@ -548,7 +1465,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void setMotorBrake(boolean brake)
   {
-    swerveDrive.setMotorIdleMode(brake);
+    runOnDriveThread(() -> swerveDrive.setMotorIdleMode(brake));
   }
 
   /**
@@ -610,7 +1527,12 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public ChassisSpeeds getFieldVelocity()
   {
-    return swerveDrive.getFieldVelocity();
+    if (cachedFieldVelocity == null)
+    {
+      // Same as SwerveDrive.getFieldVelocity(), but reuses the memoized module read and heading.
+      cachedFieldVelocity = ChassisSpeeds.fromRobotRelativeSpeeds(getRobotVelocity(), getOdometryHeading());
+    }
+    return cachedFieldVelocity;
   }
 
   /**
@@ -620,7 +1542,11 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public ChassisSpeeds getRobotVelocity()
   {
-    return swerveDrive.getRobotVelocity();
+    if (cachedRobotVelocity == null)
+    {
+      cachedRobotVelocity = getMeasuredRobotVelocity();
+    }
+    return cachedRobotVelocity;
   }
 
   /**
@@ -648,7 +1574,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void lock()
   {
-    swerveDrive.lockPose();
+    submitDriveTarget(new ChassisSpeeds(), false, null, false, true);
   }
 
   /**
@@ -666,7 +1592,52 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void addFakeVisionReading()
   {
-    swerveDrive.addVisionMeasurement(new Pose2d(3, 3, Rotation2d.fromDegrees(65)), Timer.getFPGATimestamp());
+    odometry.addVisionMeasurement(new Pose2d(3, 3, Rotation2d.fromDegrees(65)), Timer.getFPGATimestamp());
+    invalidateCache();
+  }
+
+  /**
+   * Fill in the drivetrain part of a {@link RobotState} snapshot from this cycle's memoized drive reads.
+   *
+   * @param state Snapshot to fill.
+   */
+  public void fillRobotState(RobotState.Snapshot state)
+  {
+    Pose2d pose = getPose();
+    ChassisSpeeds robotVelocity = getRobotVelocity();
+    ChassisSpeeds fieldVelocity = getFieldVelocity();
+    state.poseX = pose.getX();
+    state.poseY = pose.getY();
+    state.poseTheta = pose.getRotation().getRadians();
+    state.robotVx = robotVelocity.vxMetersPerSecond;
+    state.robotVy = robotVelocity.vyMetersPerSecond;
+    state.omega = robotVelocity.omegaRadiansPerSecond;
+    state.fieldVx = fieldVelocity.vxMetersPerSecond;
+    state.fieldVy = fieldVelocity.vyMetersPerSecond;
+
+    SwerveModuleState[] moduleStates = getMeasuredStates();
+    for (int i = 0; i < Math.min(moduleStates.length, RobotState.MODULE_COUNT); i++)
+    {
+      state.moduleSpeeds[i] = moduleStates[i].speedMetersPerSecond;
+      state.moduleAngles[i] = moduleStates[i].angle.getRadians();
+    }
+
+    state.gyroYaw = odometryYaw.getRadians();
+    state.gyroPitch = swerveDrive.getPitch().getRadians();
+    state.gyroRoll = swerveDrive.getRoll().getRadians();
+  }
+
+  /**
+   * Fuse a vision pose measurement into the pose estimator.
+   *
+   * @param visionPose       Robot pose measured by vision.
+   * @param timestampSeconds FPGA timestamp of when the measurement was captured.
+   * @param stdDevs          Standard deviations of the measurement in x, y and heading.
+   */
+  public void addVisionMeasurement(Pose2d visionPose, double timestampSeconds, Matrix<N3, N1> stdDevs)
+  {
+    odometry.addVisionMeasurement(visionPose, timestampSeconds, stdDevs);
+    invalidateCache();
   }
 
   /**
@@ -0,0 +1,272 @@
+package frc.robot.subsystems;
+
+import com.pathplanner.lib.pathfinding.Pathfinding;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.util.Dashboard;
+import frc.robot.util.RobotState;
+import frc.robot.vision.ObstacleObservation;
+import frc.robot.vision.PoseObservation;
+import frc.robot.vision.SimVisionCamera;
+import frc.robot.vision.VisionCamera;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class VisionSubsystem extends SubsystemBase {
+
+  /**
+   * A filtered pose observation ready to be fused into the pose estimator.
+   *
+   * @param pose             Estimated robot pose.
+   * @param timestampSeconds FPGA timestamp of the capture.
+   * @param stdDevs          Standard deviations of x, y and heading.
+   */
+  private record VisionMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs) {}
+
+  /**
+   * An obstacle being tracked across frames. Only touched by the main loop.
+   */
+  private static final class TrackedObstacle {
+    Translation2d position;
+    Translation2d publishedPosition;
+    double radius;
+    double lastSeen;
+  }
+
+  private final SwerveSubsystem m_drive;
+  private final List<VisionCamera> m_cameras = new CopyOnWriteArrayList<>();
+  private final AprilTagFieldLayout m_fieldLayout = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
+  private final Notifier m_visionThread = new Notifier(this::processCameras);
+
+  // Filled by the vision thread, drained by the main loop. Lock-free so neither side can stall the other.
+  private final ConcurrentLinkedQueue<VisionMeasurement> m_measurements = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<ObstacleObservation> m_obstacleObservations = new ConcurrentLinkedQueue<>();
+  private final List<TrackedObstacle> m_obstacles = new ArrayList<>();
+  private final AtomicReference<Pose2d> m_simPose = new AtomicReference<>();
+  private final List<Translation2d> m_simRobots = new CopyOnWriteArrayList<>();
+  private final AtomicLong m_acceptedCount = new AtomicLong();
+  private final AtomicLong m_rejectedCount = new AtomicLong();
+  // Vision thread only.
+  private final RobotState.Snapshot m_robotState = new RobotState.Snapshot();
+
+  /**
+   * This subsystem fuses AprilTag pose observations from every camera into the drive pose estimator. Cameras are
+   * polled and filtered on a separate thread so vision processing never extends the main loop.
+   *
+   * @param drive The drivebase whose pose estimator receives the measurements.
+   */
+  public VisionSubsystem(SwerveSubsystem drive) {
+    m_drive = drive;
+
+    m_visionThread.setName("Vision");
+
+    if (RobotBase.isSimulation()) {
+      m_cameras.add(new SimVisionCamera("front",
+                                        m_simPose::get,
+                                        () -> m_simRobots,
+                                        VisionConstants.SIM_ROBOT_RADIUS,
+                                        new Transform2d(0.3, 0.0, Rotation2d.kZero),
+                                        Rotation2d.fromDegrees(VisionConstants.SIM_FOV_DEGREES),
+                                        VisionConstants.SIM_MAX_RANGE,
+                                        VisionConstants.SIM_TRANSLATION_NOISE,
+                                        Rotation2d.fromDegrees(VisionConstants.SIM_ROTATION_NOISE_DEGREES),
+                                        VisionConstants.SIM_LATENCY,
+                                        VisionConstants.SIM_FPS,
+                                        m_fieldLayout));
+      m_cameras.add(new SimVisionCamera("back",
+                                        m_simPose::get,
+                                        () -> m_simRobots,
+                                        VisionConstants.SIM_ROBOT_RADIUS,
+                                        new Transform2d(-0.3, 0.0, Rotation2d.k180deg),
+                                        Rotation2d.fromDegrees(VisionConstants.SIM_FOV_DEGREES),
+                                        VisionConstants.SIM_MAX_RANGE,
+                                        VisionConstants.SIM_TRANSLATION_NOISE,
+                                        Rotation2d.fromDegrees(VisionConstants.SIM_ROTATION_NOISE_DEGREES),
+                                        VisionConstants.SIM_LATENCY,
+                                        VisionConstants.SIM_FPS,
+                                        m_fieldLayout));
+    }
+
+    if (!m_cameras.isEmpty()) {
+      m_visionThread.startPeriodic(VisionConstants.PERIOD);
+    }
+  }
+
+  /**
+   * Add a camera to the pipeline, starting the vision thread if this is the first one.
+   *
+   * @param camera The camera to poll.
+   */
+  public void addCamera(VisionCamera camera) {
+    m_cameras.add(camera);
+    if (m_cameras.size() == 1) {
+      m_visionThread.startPeriodic(VisionConstants.PERIOD);
+    }
+  }
+
+  @Override
+  public void periodic() {
+    // Subsystem periodics run before any command executes, so every command this loop sees the fused pose.
+    VisionMeasurement measurement;
+    while ((measurement = m_measurements.poll()) != null) {
+      m_drive.addVisionMeasurement(measurement.pose(), measurement.timestampSeconds(), measurement.stdDevs());
+    }
+    updateObstacles();
+    Dashboard.putNumber("Vision/Accepted", m_acceptedCount.get(), Dashboard.Priority.LOW);
+    Dashboard.putNumber("Vision/Rejected", m_rejectedCount.get(), Dashboard.Priority.LOW);
+  }
+
+  /**
+   * Place another robot on the simulated field for the cameras to detect.
+   *
+   * @param position Field position of the robot.
+   */
+  public void addSimulatedRobot(Translation2d position) {
+    m_simRobots.add(position);
+  }
+
+  /**
+   * Remove every simulated robot.
+   */
+  public void clearSimulatedRobots() {
+    m_simRobots.clear();
+  }
+
+  /**
+   * Merge new detections into the tracked obstacles and drop the ones that haven't been seen lately. The pathfinder
+   * is only told when an obstacle appears, disappears or moves far enough to matter, so it isn't asked to replan
+   * every loop for detection noise.
+   */
+  private void updateObstacles() {
+    boolean changed = false;
+    ObstacleObservation observation;
+    while ((observation = m_obstacleObservations.poll()) != null) {
+      TrackedObstacle match = null;
+      double matchDistance = VisionConstants.OBSTACLE_MERGE_DISTANCE;
+      for (TrackedObstacle obstacle : m_obstacles) {
+        double distance = obstacle.position.getDistance(observation.position());
+        if (distance < matchDistance) {
+          match = obstacle;
+          matchDistance = distance;
+        }
+      }
+      if (match == null) {
+        match = new TrackedObstacle();
+        match.publishedPosition = observation.position();
+        m_obstacles.add(match);
+        changed = true;
+      }
+      match.position = observation.position();
+      match.radius = observation.radiusMeters();
+      match.lastSeen = Math.max(match.lastSeen, observation.timestampSeconds());
+      if (match.position.getDistance(match.publishedPosition) > VisionConstants.OBSTACLE_MOVE_THRESHOLD) {
+        changed = true;
+      }
+    }
+
+    double now = Timer.getFPGATimestamp();
+    changed |= m_obstacles.removeIf(obstacle -> now - obstacle.lastSeen > VisionConstants.OBSTACLE_TIMEOUT);
+    if (!changed) {
+      return;
+    }
+
+    List<Pair<Translation2d, Translation2d>> boxes = new ArrayList<>(m_obstacles.size());
+    List<Pose2d> poses = new ArrayList<>(m_obstacles.size());
+    for (TrackedObstacle obstacle : m_obstacles) {
+      obstacle.publishedPosition = obstacle.position;
+      double halfSize = obstacle.radius + VisionConstants.OBSTACLE_CLEARANCE;
+      boxes.add(Pair.of(obstacle.position.minus(new Translation2d(halfSize, halfSize)),
+                        obstacle.position.plus(new Translation2d(halfSize, halfSize))));
+      poses.add(new Pose2d(obstacle.position, Rotation2d.kZero));
+    }
+    Pathfinding.setDynamicObstacles(boxes, m_drive.getPose().getTranslation());
+    m_drive.getSwerveDrive().field.getObject("Obstacles").setPoses(poses);
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    m_simPose.set(m_drive.getSwerveDrive().getSimulationDriveTrainPose().orElse(m_drive.getPose()));
+  }
+
+  /**
+   * Runs on the vision thread. Polls every camera, rejects bad observations and queues the rest, along with any
+   * obstacle detections, for the main loop.
+   */
+  private void processCameras() {
+    RobotState.getInstance().read(m_robotState);
+    for (VisionCamera camera : m_cameras) {
+      for (PoseObservation observation : camera.getUnreadObservations()) {
+        if (isValid(observation)) {
+          m_measurements.offer(new VisionMeasurement(observation.pose(),
+                                                     observation.timestampSeconds(),
+                                                     getStdDevs(observation)));
+          m_acceptedCount.incrementAndGet();
+        } else {
+          m_rejectedCount.incrementAndGet();
+        }
+      }
+      m_obstacleObservations.addAll(camera.getUnreadObstacles());
+    }
+  }
+
+  /**
+   * Check an observation against the ambiguity, distance and field bounds limits, and that the robot wasn't spinning
+   * too fast to see the tags sharply as of the last main loop.
+   *
+   * @param observation The observation to check.
+   * @return true if the observation should be used.
+   */
+  private boolean isValid(PoseObservation observation) {
+    if (observation.tagCount() == 0) {
+      return false;
+    }
+    if (observation.tagCount() == 1 && observation.ambiguity() > VisionConstants.MAX_AMBIGUITY) {
+      return false;
+    }
+    if (observation.averageTagDistance() > VisionConstants.MAX_TAG_DISTANCE) {
+      return false;
+    }
+    if (Math.abs(m_robotState.omega) > VisionConstants.MAX_ANGULAR_VELOCITY) {
+      return false;
+    }
+    Pose2d pose = observation.pose();
+    return pose.getX() >= -VisionConstants.FIELD_MARGIN
+           && pose.getX() <= m_fieldLayout.getFieldLength() + VisionConstants.FIELD_MARGIN
+           && pose.getY() >= -VisionConstants.FIELD_MARGIN
+           && pose.getY() <= m_fieldLayout.getFieldWidth() + VisionConstants.FIELD_MARGIN;
+  }
+
+  /**
+   * Trust observations less the further away the tags are, and more the more tags were seen. Single tag headings are
+   * barely trusted at all since they flip easily.
+   *
+   * @param observation The observation to compute standard deviations for.
+   * @return Standard deviations of x, y and heading.
+   */
+  private Matrix<N3, N1> getStdDevs(PoseObservation observation) {
+    double distanceFactor = Math.pow(observation.averageTagDistance(), 2) / observation.tagCount();
+    double xyStdDev = VisionConstants.XY_STD_DEV_BASE * distanceFactor;
+    double thetaStdDev = observation.tagCount() > 1
+                         ? VisionConstants.THETA_STD_DEV_BASE * distanceFactor
+                         : VisionConstants.SINGLE_TAG_THETA_STD_DEV;
+    return VecBuilder.fill(xyStdDev, xyStdDev, thetaStdDev);
+  }
+}
@@ -0,0 +1,87 @@
+package frc.robot.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the parts of a PathPlanner {@code .auto} file the offline tools care about.
+ */
+public final class AutoFile {
+  private AutoFile() {}
+
+  /**
+   * Get every path an auto follows, in order, including ones nested in command groups.
+   *
+   * @param autosDirectory The {@code deploy/pathplanner/autos} directory.
+   * @param autoName       Auto name without the {@code .auto} extension.
+   * @return Path names in the order they appear.
+   * @throws IOException If the file can't be read.
+   */
+  public static List<String> getPathNames(File autosDirectory, String autoName) throws IOException {
+    JsonNode root = new ObjectMapper().readTree(new File(autosDirectory, autoName + ".auto"));
+    List<String> pathNames = new ArrayList<>();
+    collectPathNames(root.get("command"), pathNames);
+    return pathNames;
+  }
+
+  /**
+   * Get the total time an auto spends in wait commands that are not in parallel with anything.
+   *
+   * @param autosDirectory The {@code deploy/pathplanner/autos} directory.
+   * @param autoName       Auto name without the {@code .auto} extension.
+   * @return Total wait time, s.
+   * @throws IOException If the file can't be read.
+   */
+  public static double getWaitTime(File autosDirectory, String autoName) throws IOException {
+    JsonNode root = new ObjectMapper().readTree(new File(autosDirectory, autoName + ".auto"));
+    return getSequentialWaitTime(root.get("command"));
+  }
+
+  /**
+   * @return Names of every auto in the directory.
+   */
+  public static List<String> listAutos(File autosDirectory) {
+    List<String> names = new ArrayList<>();
+    File[] files = autosDirectory.listFiles((dir, file) -> file.endsWith(".auto"));
+    if (files != null) {
+      for (File file : files) {
+        names.add(file.getName().substring(0, file.getName().length() - ".auto".length()));
+      }
+    }
+    return names;
+  }
+
+  private static void collectPathNames(JsonNode command, List<String> pathNames) {
+    if (command == null) {
+      return;
+    }
+    if ("path".equals(command.path("type").asText())) {
+      pathNames.add(command.get("data").get("pathName").asText());
+    }
+    for (JsonNode child : command.path("data").path("commands")) {
+      collectPathNames(child, pathNames);
+    }
+  }
+
+  private static double getSequentialWaitTime(JsonNode command) {
+    if (command == null) {
+      return 0.0;
+    }
+    switch (command.path("type").asText()) {
+      case "wait":
+        return command.get("data").get("waitTime").asDouble();
+      case "sequential":
+        double total = 0.0;
+        for (JsonNode child : command.get("data").get("commands")) {
+          total += getSequentialWaitTime(child);
+        }
+        return total;
+      default:
+        return 0.0;
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package frc.robot.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Searches for faster versions of the paths in an auto. Each path is optimized on its own since the robot stops at
+ * every scoring and pickup pose. The start and end anchors and any linked waypoints stay put; interior anchors,
+ * Bezier control points and constraint zone bounds are perturbed, a batch of candidates is profiled in parallel with
+ * {@link VelocityProfiler} under the path's own constraints, and the fastest candidate that stays out of new
+ * {@code navgrid.json} obstacles is kept. Step sizes shrink when a batch finds nothing better.
+ *
+ * <p>Rotation targets are left alone. They are headings the robot has to reach, and the score is time alone, so the
+ * search would only learn to turn less than it was asked to.
+ *
+ * <p>Run with {@code ./gradlew runTool -Ptool=AutoPathOptimizer -PtoolArgs="scoreThreeCoral scoreTwoCoral-left"}.
+ * Improved paths are written back to the deploy directory unless {@code --dry-run} is passed.
+ */
+public final class AutoPathOptimizer {
+  private static final File PATHPLANNER_DIRECTORY = new File("src/main/deploy/pathplanner");
+  private static final int ITERATIONS = 200;
+  private static final int CANDIDATES_PER_ITERATION = 64;
+  private static final double ANCHOR_STEP = 0.15; // m
+  private static final double CONTROL_ANGLE_STEP = Math.toRadians(10);
+  private static final double CONTROL_LENGTH_STEP = 0.2; // fraction of the handle length
+  private static final double POSITION_STEP = 0.1; // waypoint relative position
+  private static final double MIN_STEP_SCALE = 0.02;
+
+  /**
+   * A scored candidate path.
+   *
+   * @param path     The candidate.
+   * @param time     Time to drive it, s. Infinite if it hits a new obstacle.
+   */
+  private record Candidate(PathFile path, double time) {}
+
+  private AutoPathOptimizer() {}
+
+  public static void main(String[] args) throws Exception {
+    boolean dryRun = false;
+    List<String> autos = new ArrayList<>();
+    for (String arg : args) {
+      if (arg.equals("--dry-run")) {
+        dryRun = true;
+      } else {
+        autos.add(arg);
+      }
+    }
+    if (autos.isEmpty()) {
+      System.out.println("Usage: AutoPathOptimizer [--dry-run] <auto name>...");
+      return;
+    }
+
+    RobotModel model = RobotModel.load(new File(PATHPLANNER_DIRECTORY, "settings.json"));
+    NavGrid navGrid = NavGrid.load(new File(PATHPLANNER_DIRECTORY, "navgrid.json"));
+    File pathsDirectory = new File(PATHPLANNER_DIRECTORY, "paths");
+    File autosDirectory = new File(PATHPLANNER_DIRECTORY, "autos");
+
+    Set<String> pathNames = new LinkedHashSet<>();
+    for (String auto : autos) {
+      pathNames.addAll(AutoFile.getPathNames(autosDirectory, auto));
+    }
+
+    ForkJoinPool pool = new ForkJoinPool();
+    double totalBefore = 0.0;
+    double totalAfter = 0.0;
+    for (String pathName : pathNames) {
+      PathFile original = PathFile.load(pathsDirectory, pathName);
+      Candidate best = optimize(original, model, navGrid, pool);
+      double before = evaluate(original, model, navGrid, navGrid.getObstacleCells(original.sample(model)));
+      totalBefore += before;
+      totalAfter += best.time();
+      System.out.printf("%-48s %6.2f s -> %6.2f s%n", pathName, before, best.time());
+      if (!dryRun && best.time() < before) {
+        best.path().write(pathsDirectory);
+      }
+    }
+    pool.shutdown();
+    System.out.printf("Total driving time %.2f s -> %.2f s%s%n", totalBefore, totalAfter,
+                      dryRun ? " (dry run, nothing written)" : "");
+  }
+
+  /**
+   * Run the search for one path.
+   */
+  private static Candidate optimize(PathFile original, RobotModel model, NavGrid navGrid, ForkJoinPool pool)
+      throws Exception {
+    Set<Integer> allowedCells = navGrid.getObstacleCells(original.sample(model));
+    Candidate best = new Candidate(original, evaluate(original, model, navGrid, allowedCells));
+    double stepScale = 1.0;
+
+    for (int iteration = 0; iteration < ITERATIONS && stepScale > MIN_STEP_SCALE; iteration++) {
+      final Candidate parent = best;
+      final double scale = stepScale;
+      final long seed = (long) iteration * CANDIDATES_PER_ITERATION;
+      Candidate batchBest = pool.submit(() -> IntStream.range(0, CANDIDATES_PER_ITERATION)
+          .parallel()
+          .mapToObj(i -> {
+            PathFile candidate = parent.path().copy();
+            perturb(candidate.getJson(), new SplittableRandom(seed + i), scale);
+            return new Candidate(candidate, evaluate(candidate, model, navGrid, allowedCells));
+          })
+          .min(Comparator.comparingDouble(Candidate::time))
+          .orElseThrow()).get();
+
+      if (batchBest.time() < best.time()) {
+        best = batchBest;
+      } else {
+        stepScale *= 0.7;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @return Time to drive the path under its own constraints, or infinity if it enters a new obstacle cell.
+   */
+  private static double evaluate(PathFile path, RobotModel model, NavGrid navGrid, Set<Integer> allowedCells) {
+    PathSamples samples = path.sample(model);
+    if (!navGrid.isCollisionFree(samples, allowedCells)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return VelocityProfiler.profile(samples, model, true, new double[samples.count]);
+  }
+
+  /**
+   * Randomly nudge the editable parts of a path in place.
+   */
+  private static void perturb(ObjectNode json, SplittableRandom random, double scale) {
+    JsonNode waypoints = json.get("waypoints");
+    int last = waypoints.size() - 1;
+    for (int i = 0; i <= last; i++) {
+      ObjectNode waypoint = (ObjectNode) waypoints.get(i);
+      ObjectNode anchor = (ObjectNode) waypoint.get("anchor");
+      double ax = anchor.get("x").asDouble();
+      double ay = anchor.get("y").asDouble();
+
+      // Interior anchors that aren't linked to another path may move, dragging their handles along.
+      if (i > 0 && i < last && !waypoint.hasNonNull("linkedName")) {
+        double dx = random.nextDouble(-1, 1) * ANCHOR_STEP * scale;
+        double dy = random.nextDouble(-1, 1) * ANCHOR_STEP * scale;
+        ax += dx;
+        ay += dy;
+        anchor.put("x", ax);
+        anchor.put("y", ay);
+        translate(waypoint.get("prevControl"), dx, dy);
+        translate(waypoint.get("nextControl"), dx, dy);
+      }
+
+      // Rotate both handles together so the curve stays smooth, and stretch each one independently.
+      double rotation = random.nextDouble(-1, 1) * CONTROL_ANGLE_STEP * scale;
+      for (String control : new String[] {"prevControl", "nextControl"}) {
+        JsonNode handle = waypoint.get(control);
+        if (handle == null || handle.isNull()) {
+          continue;
+        }
+        double hx = handle.get("x").asDouble() - ax;
+        double hy = handle.get("y").asDouble() - ay;
+        double stretch = 1.0 + random.nextDouble(-1, 1) * CONTROL_LENGTH_STEP * scale;
+        double cos = Math.cos(rotation);
+        double sin = Math.sin(rotation);
+        ((ObjectNode) handle).put("x", ax + (hx * cos - hy * sin) * stretch);
+        ((ObjectNode) handle).put("y", ay + (hx * sin + hy * cos) * stretch);
+      }
+    }
+
+    // Zones only slide along the path. Changing their limits or width would let the search delete every slow zone.
+    for (JsonNode zone : json.path("constraintZones")) {
+      ObjectNode constraintZone = (ObjectNode) zone;
+      double min = constraintZone.get("minWaypointRelativePos").asDouble();
+      double max = constraintZone.get("maxWaypointRelativePos").asDouble();
+      double shift = clamp(random.nextDouble(-1, 1) * POSITION_STEP * scale, -min, last - max);
+      constraintZone.put("minWaypointRelativePos", min + shift);
+      constraintZone.put("maxWaypointRelativePos", max + shift);
+    }
+  }
+
+  private static void translate(JsonNode point, double dx, double dy) {
+    if (point != null && !point.isNull()) {
+      ((ObjectNode) point).put("x", point.get("x").asDouble() + dx);
+      ((ObjectNode) point).put("y", point.get("y").asDouble() + dy);
+    }
+  }
+
+  private static double clamp(double value, double min, double max) {
+    return Math.max(min, Math.min(max, value));
+  }
+}
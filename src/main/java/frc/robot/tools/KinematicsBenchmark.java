@@ -0,0 +1,119 @@
+package frc.robot.tools;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.util.BatchSwerveKinematics;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Offline comparison of {@link BatchSwerveKinematics} against {@link SwerveDriveKinematics}. Checks that both give
+ * the same module speeds and angles and chassis speeds, then times each over the same random chassis speeds.
+ *
+ * <p>Run with {@code ./gradlew runTool -Ptool=KinematicsBenchmark}.
+ */
+public final class KinematicsBenchmark {
+  private static final int SAMPLES = 100_000;
+  private static final int WARMUP_ROUNDS = 20;
+  private static final int TIMED_ROUNDS = 20;
+  private static final int CHECKED_SAMPLES = 1000;
+  private static final double TOLERANCE = 1e-9; // m/s, rad and rad/s
+
+  private KinematicsBenchmark() {}
+
+  public static void main(String[] args) throws IOException {
+    BatchSwerveKinematics batch = BatchSwerveKinematics.fromConfigDirectory(new File("src/main/deploy/swerve/neo"));
+    int modules = batch.getModuleCount();
+    SwerveDriveKinematics wpilib = new SwerveDriveKinematics(batch.getModuleLocations());
+
+    Random random = new Random(6045);
+    double[] vx = new double[SAMPLES];
+    double[] vy = new double[SAMPLES];
+    double[] omega = new double[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) {
+      vx[i] = random.nextDouble(-4.4, 4.4);
+      vy[i] = random.nextDouble(-4.4, 4.4);
+      omega[i] = random.nextDouble(-10, 10);
+    }
+    double[] speed = new double[modules * SAMPLES];
+    double[] angle = new double[modules * SAMPLES];
+    double[] scratchX = new double[modules * SAMPLES];
+    double[] scratchY = new double[modules * SAMPLES];
+    double[] outVx = new double[SAMPLES];
+    double[] outVy = new double[SAMPLES];
+    double[] outOmega = new double[SAMPLES];
+
+    // Both implementations must agree on every output before the timings mean anything.
+    batch.toModuleStates(vx, vy, omega, SAMPLES, speed, angle);
+    batch.toChassisSpeeds(speed, angle, SAMPLES, scratchX, scratchY, outVx, outVy, outOmega);
+    double maxModuleError = 0.0;
+    double maxChassisError = 0.0;
+    for (int i = 0; i < CHECKED_SAMPLES; i++) {
+      SwerveModuleState[] states = wpilib.toSwerveModuleStates(new ChassisSpeeds(vx[i], vy[i], omega[i]));
+      for (int m = 0; m < modules; m++) {
+        int j = m * SAMPLES + i;
+        maxModuleError = Math.max(maxModuleError, Math.abs(states[m].speedMetersPerSecond - speed[j]));
+        maxModuleError = Math.max(maxModuleError,
+                                  Math.abs(MathUtil.angleModulus(states[m].angle.getRadians() - angle[j])));
+      }
+      ChassisSpeeds speeds = wpilib.toChassisSpeeds(states);
+      maxChassisError = Math.max(maxChassisError, Math.abs(speeds.vxMetersPerSecond - outVx[i]));
+      maxChassisError = Math.max(maxChassisError, Math.abs(speeds.vyMetersPerSecond - outVy[i]));
+      maxChassisError = Math.max(maxChassisError, Math.abs(speeds.omegaRadiansPerSecond - outOmega[i]));
+    }
+    System.out.printf("Max difference from WPILib: %.3e in module states, %.3e in chassis speeds%n",
+                      maxModuleError, maxChassisError);
+    if (maxModuleError > TOLERANCE || maxChassisError > TOLERANCE) {
+      throw new IllegalStateException("Batch kinematics disagree with WPILib by more than " + TOLERANCE);
+    }
+
+    double sink = 0.0;
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      sink += runWpilib(wpilib, vx, vy, omega);
+      sink += runBatch(batch, vx, vy, omega, speed, angle, scratchX, scratchY, outVx, outVy, outOmega);
+    }
+
+    long wpilibNanos = 0;
+    long batchNanos = 0;
+    for (int round = 0; round < TIMED_ROUNDS; round++) {
+      long start = System.nanoTime();
+      sink += runWpilib(wpilib, vx, vy, omega);
+      wpilibNanos += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      sink += runBatch(batch, vx, vy, omega, speed, angle, scratchX, scratchY, outVx, outVy, outOmega);
+      batchNanos += System.nanoTime() - start;
+    }
+
+    double samples = (double) SAMPLES * TIMED_ROUNDS;
+    System.out.printf("WPILib round trip: %.1f ns/sample%n", wpilibNanos / samples);
+    System.out.printf("Batch round trip:  %.1f ns/sample%n", batchNanos / samples);
+    System.out.printf("Speedup: %.1fx (checksum %.3f)%n", (double) wpilibNanos / batchNanos, sink);
+  }
+
+  /**
+   * Inverse then forward kinematics for every sample with the WPILib classes.
+   */
+  private static double runWpilib(SwerveDriveKinematics kinematics, double[] vx, double[] vy, double[] omega) {
+    double sum = 0.0;
+    for (int i = 0; i < vx.length; i++) {
+      SwerveModuleState[] states = kinematics.toSwerveModuleStates(new ChassisSpeeds(vx[i], vy[i], omega[i]));
+      sum += kinematics.toChassisSpeeds(states).vxMetersPerSecond;
+    }
+    return sum;
+  }
+
+  /**
+   * Inverse then forward kinematics for every sample with the batch engine.
+   */
+  private static double runBatch(BatchSwerveKinematics kinematics, double[] vx, double[] vy, double[] omega,
+                                 double[] speed, double[] angle, double[] scratchX, double[] scratchY,
+                                 double[] outVx, double[] outVy, double[] outOmega) {
+    kinematics.toModuleStates(vx, vy, omega, vx.length, speed, angle);
+    kinematics.toChassisSpeeds(speed, angle, vx.length, scratchX, scratchY, outVx, outVy, outOmega);
+    return outVx[vx.length / 2];
+  }
+}
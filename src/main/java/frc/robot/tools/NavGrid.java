@@ -0,0 +1,114 @@
+package frc.robot.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The PathPlanner {@code navgrid.json} obstacle grid. Cells are square, rows run along field y and columns along
+ * field x, and a cell is {@code true} when the robot center can't be there.
+ */
+public class NavGrid {
+  private final double nodeSizeMeters;
+  private final double fieldLengthMeters;
+  private final double fieldWidthMeters;
+  private final boolean[][] obstacles;
+
+  private NavGrid(JsonNode json) {
+    nodeSizeMeters = json.get("nodeSizeMeters").asDouble();
+    fieldLengthMeters = json.get("field_size").get("x").asDouble();
+    fieldWidthMeters = json.get("field_size").get("y").asDouble();
+    JsonNode grid = json.get("grid");
+    obstacles = new boolean[grid.size()][];
+    for (int row = 0; row < grid.size(); row++) {
+      obstacles[row] = new boolean[grid.get(row).size()];
+      for (int col = 0; col < grid.get(row).size(); col++) {
+        obstacles[row][col] = grid.get(row).get(col).asBoolean();
+      }
+    }
+  }
+
+  /**
+   * Load the grid.
+   *
+   * @param navGridFile The {@code navgrid.json} file.
+   * @return The grid.
+   * @throws IOException If the file can't be read.
+   */
+  public static NavGrid load(File navGridFile) throws IOException {
+    return new NavGrid(new ObjectMapper().readTree(navGridFile));
+  }
+
+  public double getNodeSize() {
+    return nodeSizeMeters;
+  }
+
+  public int getRows() {
+    return obstacles.length;
+  }
+
+  public int getColumns() {
+    return obstacles[0].length;
+  }
+
+  /**
+   * @return true if the cell is an obstacle or outside the grid.
+   */
+  public boolean isObstacle(int row, int col) {
+    return row < 0 || col < 0 || row >= obstacles.length || col >= obstacles[row].length || obstacles[row][col];
+  }
+
+  /**
+   * @return true if the robot center may be at this field position.
+   */
+  public boolean isFree(double x, double y) {
+    if (x < 0 || y < 0 || x > fieldLengthMeters || y > fieldWidthMeters) {
+      return false;
+    }
+    return !isObstacle((int) (y / nodeSizeMeters), (int) (x / nodeSizeMeters));
+  }
+
+  /**
+   * Get the obstacle cells a path passes through. Paths that start or end against field elements, like every reef
+   * approach, always touch a few.
+   *
+   * @param samples The sampled path.
+   * @return Indices ({@code row * columns + col}) of every obstacle cell a sample lands in, -1 for off the field.
+   */
+  public Set<Integer> getObstacleCells(PathSamples samples) {
+    Set<Integer> cells = new HashSet<>();
+    for (int i = 0; i < samples.count; i++) {
+      if (!isFree(samples.x[i], samples.y[i])) {
+        cells.add(getCellIndex(samples.x[i], samples.y[i]));
+      }
+    }
+    return cells;
+  }
+
+  /**
+   * Check that a path only touches obstacle cells it is allowed to, usually the ones the hand drawn path already
+   * touches at its start and end.
+   *
+   * @param samples      The sampled path.
+   * @param allowedCells Obstacle cells the path may pass through, from {@link #getObstacleCells}.
+   * @return true if no sample lands in any other obstacle cell.
+   */
+  public boolean isCollisionFree(PathSamples samples, Set<Integer> allowedCells) {
+    for (int i = 0; i < samples.count; i++) {
+      if (!isFree(samples.x[i], samples.y[i]) && !allowedCells.contains(getCellIndex(samples.x[i], samples.y[i]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int getCellIndex(double x, double y) {
+    if (x < 0 || y < 0 || x > fieldLengthMeters || y > fieldWidthMeters) {
+      return -1;
+    }
+    return (int) (y / nodeSizeMeters) * getColumns() + (int) (x / nodeSizeMeters);
+  }
+}
@@ -0,0 +1,239 @@
+package frc.robot.tools;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A PathPlanner {@code .path} file kept as its raw JSON tree, so the offline tools can read and edit any field and
+ * write it back without dropping the ones they don't understand.
+ */
+public class PathFile {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final int STEPS_PER_SEGMENT = 200;
+
+  /**
+   * Jackson's pretty printer, changed to write what the PathPlanner GUI does: two space indents on every object and
+   * array, {@code "key": value}, and {@code []} and {@code {}} when empty.
+   */
+  private static final class GuiPrettyPrinter extends DefaultPrettyPrinter {
+    GuiPrettyPrinter() {
+      DefaultIndenter indenter = new DefaultIndenter("  ", "\n");
+      indentObjectsWith(indenter);
+      indentArraysWith(indenter);
+    }
+
+    GuiPrettyPrinter(GuiPrettyPrinter base) {
+      super(base);
+    }
+
+    @Override
+    public DefaultPrettyPrinter createInstance() {
+      return new GuiPrettyPrinter(this);
+    }
+
+    @Override
+    public void writeObjectFieldValueSeparator(JsonGenerator g) throws IOException {
+      g.writeRaw(": ");
+    }
+
+    @Override
+    public void writeEndObject(JsonGenerator g, int nrOfEntries) throws IOException {
+      if (!_objectIndenter.isInline()) {
+        --_nesting;
+      }
+      if (nrOfEntries > 0) {
+        _objectIndenter.writeIndentation(g, _nesting);
+      }
+      g.writeRaw('}');
+    }
+
+    @Override
+    public void writeEndArray(JsonGenerator g, int nrOfValues) throws IOException {
+      if (!_arrayIndenter.isInline()) {
+        --_nesting;
+      }
+      if (nrOfValues > 0) {
+        _arrayIndenter.writeIndentation(g, _nesting);
+      }
+      g.writeRaw(']');
+    }
+  }
+
+  private final String name;
+  private final ObjectNode json;
+
+  private PathFile(String name, ObjectNode json) {
+    this.name = name;
+    this.json = json;
+  }
+
+  /**
+   * Load a path by name.
+   *
+   * @param pathsDirectory The {@code deploy/pathplanner/paths} directory.
+   * @param name           Path name without the {@code .path} extension.
+   * @return The loaded path.
+   * @throws IOException If the file can't be read.
+   */
+  public static PathFile load(File pathsDirectory, String name) throws IOException {
+    return new PathFile(name, (ObjectNode) MAPPER.readTree(new File(pathsDirectory, name + ".path")));
+  }
+
+  /**
+   * Load every path in a directory.
+   *
+   * @param pathsDirectory The {@code deploy/pathplanner/paths} directory.
+   * @return Every path, in no particular order.
+   * @throws IOException If a file can't be read.
+   */
+  public static List<PathFile> loadAll(File pathsDirectory) throws IOException {
+    List<PathFile> paths = new ArrayList<>();
+    File[] files = pathsDirectory.listFiles((dir, file) -> file.endsWith(".path"));
+    if (files == null) {
+      throw new IOException("Not a directory: " + pathsDirectory);
+    }
+    for (File file : files) {
+      paths.add(load(pathsDirectory, file.getName().substring(0, file.getName().length() - ".path".length())));
+    }
+    return paths;
+  }
+
+  /**
+   * Write the path back out, formatted like the PathPlanner GUI does.
+   *
+   * @param pathsDirectory The {@code deploy/pathplanner/paths} directory.
+   * @throws IOException If the file can't be written.
+   */
+  public void write(File pathsDirectory) throws IOException {
+    MAPPER.writer(new GuiPrettyPrinter()).writeValue(new File(pathsDirectory, name + ".path"), json);
+  }
+
+  /**
+   * @return A deep copy that can be edited without touching this path.
+   */
+  public PathFile copy() {
+    return new PathFile(name, json.deepCopy());
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return The raw JSON tree. Edits are reflected in later calls to {@link #sample} and {@link #write}.
+   */
+  public ObjectNode getJson() {
+    return json;
+  }
+
+  /**
+   * Sample the path densely along its Bezier curves.
+   *
+   * @param model Robot model, used for the default constraints.
+   * @return The sampled path.
+   */
+  public PathSamples sample(RobotModel model) {
+    JsonNode waypoints = json.get("waypoints");
+    int segments = waypoints.size() - 1;
+    PathSamples samples = new PathSamples(segments * STEPS_PER_SEGMENT + 1);
+
+    JsonNode globalConstraints = json.path("useDefaultConstraints").asBoolean(false) ? null
+                                 : json.get("globalConstraints");
+    double globalMaxVelocity = getConstraint(globalConstraints, "maxVelocity", model.defaultMaxVelocityMps);
+    double globalMaxAcceleration = getConstraint(globalConstraints, "maxAcceleration",
+                                                 model.defaultMaxAccelerationMpsSq);
+    samples.maxAngularVelocity = Math.toRadians(getConstraint(globalConstraints, "maxAngularVelocity",
+        Math.toDegrees(model.defaultMaxAngularVelocityRadPerSec)));
+    samples.maxAngularAcceleration = Math.toRadians(getConstraint(globalConstraints, "maxAngularAcceleration",
+        Math.toDegrees(model.defaultMaxAngularAccelerationRadPerSecSq)));
+
+    int index = 0;
+    for (int segment = 0; segment < segments; segment++) {
+      JsonNode start = waypoints.get(segment);
+      JsonNode end = waypoints.get(segment + 1);
+      double p0x = start.get("anchor").get("x").asDouble();
+      double p0y = start.get("anchor").get("y").asDouble();
+      double p3x = end.get("anchor").get("x").asDouble();
+      double p3y = end.get("anchor").get("y").asDouble();
+      JsonNode next = start.get("nextControl");
+      JsonNode prev = end.get("prevControl");
+      double p1x = next.isNull() ? p0x : next.get("x").asDouble();
+      double p1y = next.isNull() ? p0y : next.get("y").asDouble();
+      double p2x = prev.isNull() ? p3x : prev.get("x").asDouble();
+      double p2y = prev.isNull() ? p3y : prev.get("y").asDouble();
+
+      for (int step = segment == 0 ? 0 : 1; step <= STEPS_PER_SEGMENT; step++) {
+        double t = (double) step / STEPS_PER_SEGMENT;
+        double u = 1.0 - t;
+        samples.x[index] = u * u * u * p0x + 3 * u * u * t * p1x + 3 * u * t * t * p2x + t * t * t * p3x;
+        samples.y[index] = u * u * u * p0y + 3 * u * u * t * p1y + 3 * u * t * t * p2y + t * t * t * p3y;
+
+        double dx = 3 * u * u * (p1x - p0x) + 6 * u * t * (p2x - p1x) + 3 * t * t * (p3x - p2x);
+        double dy = 3 * u * u * (p1y - p0y) + 6 * u * t * (p2y - p1y) + 3 * t * t * (p3y - p2y);
+        double ddx = 6 * u * (p2x - 2 * p1x + p0x) + 6 * t * (p3x - 2 * p2x + p1x);
+        double ddy = 6 * u * (p2y - 2 * p1y + p0y) + 6 * t * (p3y - 2 * p2y + p1y);
+        double speed = Math.hypot(dx, dy);
+        samples.curvature[index] = speed < 1e-9 ? 0.0 : Math.abs(dx * ddy - dy * ddx) / (speed * speed * speed);
+
+        samples.waypointPos[index] = segment + t;
+        if (index > 0) {
+          samples.distance[index] = samples.distance[index - 1]
+                                    + Math.hypot(samples.x[index] - samples.x[index - 1],
+                                                 samples.y[index] - samples.y[index - 1]);
+        }
+        samples.maxVelocity[index] = globalMaxVelocity;
+        samples.maxAcceleration[index] = globalMaxAcceleration;
+        index++;
+      }
+    }
+
+    for (JsonNode zone : json.path("constraintZones")) {
+      double min = zone.get("minWaypointRelativePos").asDouble();
+      double max = zone.get("maxWaypointRelativePos").asDouble();
+      JsonNode constraints = zone.get("constraints");
+      for (int i = 0; i < samples.count; i++) {
+        if (samples.waypointPos[i] >= min && samples.waypointPos[i] <= max) {
+          samples.maxVelocity[i] = getConstraint(constraints, "maxVelocity", globalMaxVelocity);
+          samples.maxAcceleration[i] = getConstraint(constraints, "maxAcceleration", globalMaxAcceleration);
+        }
+      }
+    }
+
+    samples.startVelocity = json.path("idealStartingState").path("velocity").asDouble(0.0);
+    samples.endVelocity = json.path("goalEndState").path("velocity").asDouble(0.0);
+
+    List<JsonNode> rotationTargets = new ArrayList<>();
+    json.path("rotationTargets").forEach(rotationTargets::add);
+    rotationTargets.sort((a, b) -> Double.compare(a.get("waypointRelativePos").asDouble(),
+                                                  b.get("waypointRelativePos").asDouble()));
+    samples.rotations = new double[rotationTargets.size() + 2];
+    samples.rotations[0] = Math.toRadians(json.path("idealStartingState").path("rotation").asDouble(0.0));
+    for (int i = 0; i < rotationTargets.size(); i++) {
+      samples.rotations[i + 1] = Math.toRadians(rotationTargets.get(i).get("rotationDegrees").asDouble());
+    }
+    samples.rotations[samples.rotations.length - 1] =
+        Math.toRadians(json.path("goalEndState").path("rotation").asDouble(0.0));
+    return samples;
+  }
+
+  /**
+   * Read a constraint, treating {@code unlimited} constraints as infinite.
+   */
+  private static double getConstraint(JsonNode constraints, String field, double defaultValue) {
+    if (constraints == null) {
+      return defaultValue;
+    }
+    if (constraints.path("unlimited").asBoolean(false)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return constraints.path(field).asDouble(defaultValue);
+  }
+}
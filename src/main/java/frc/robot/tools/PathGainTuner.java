@@ -0,0 +1,440 @@
+package frc.robot.tools;
+
+import static edu.wpi.first.units.Units.KilogramSquareMeters;
+import static edu.wpi.first.units.Units.Kilograms;
+import static edu.wpi.first.units.Units.Meters;
+import static edu.wpi.first.units.Units.Volts;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.ironmaple.simulation.SimulatedArena;
+import org.ironmaple.simulation.drivesims.COTS;
+import org.ironmaple.simulation.drivesims.SelfControlledSwerveDriveSimulation;
+import org.ironmaple.simulation.drivesims.SwerveDriveSimulation;
+import org.ironmaple.simulation.drivesims.configs.DriveTrainSimulationConfig;
+import org.ironmaple.simulation.drivesims.configs.SwerveModuleSimulationConfig;
+import org.ironmaple.simulation.seasonspecific.reefscape2025.Arena2025Reefscape;
+
+/**
+ * Tunes the path following PID gains by simulating every path of the autos with candidate gains.
+ *
+ * <p>Each path is profiled with {@link VelocityProfiler} under its own constraints, like PathPlanner does, and
+ * followed by a copy of {@code PPHolonomicDriveController}: the reference velocity plus a PID correction on each of
+ * x, y and heading. The robot is the maple-sim swerve drive the robot simulates with, built from the same
+ * {@code settings.json} mass, module layout, motors, gearing and wheel friction, on the 2025 field. Its modules have
+ * their own motor and steering dynamics and its wheels slip, so the feedforward alone doesn't track the path. The
+ * controller sees maple-sim's odometry estimate from its simulated encoders and gyro, while the error is measured
+ * against the simulated ground truth. Every path is run from several seeded starting pose offsets, the same for every
+ * candidate.
+ *
+ * <p>A run costs its RMS translation and rotation errors while the path runs, each over an acceptable error, plus the
+ * time after the path ends until the robot settles on the end pose. The path's own time doesn't depend on the gains.
+ * The six gains are searched one at a time, stepping each up and down and keeping the best step, and the steps
+ * shrink when no step helps. The simulation runs on the HAL's simulated clock, one run at a time.
+ *
+ * <p>Run with {@code ./gradlew runTool -Ptool=PathGainTuner -PtoolArgs="scoreThreeCoral scoreTwoCoral-left"}, or with
+ * no autos to tune on all of them. Pass {@code --settings <file>} once per robot configuration to tune against other
+ * PathPlanner settings files. The best gains are printed as {@code PathFollowingConstants} to copy into
+ * {@code Constants}.
+ */
+public final class PathGainTuner {
+  private static final File PATHPLANNER_DIRECTORY = new File("src/main/deploy/pathplanner");
+  private static final double LOOP_PERIOD = 0.02; // s
+  private static final double I_ZONE = 1.0; // PIDConstants default
+  private static final int SCENARIOS = 4; // per path
+  private static final double MAX_START_OFFSET = 0.05; // m
+  private static final double MAX_START_ROTATION_OFFSET = Math.toRadians(3);
+  private static final double STOP_TIME = 0.5; // s the robot is stopped for between runs
+  // Module properties settings.json doesn't have, maple-sim's MK4 values.
+  private static final double STEER_GEARING = 12.8;
+  private static final double DRIVE_FRICTION_VOLTAGE = 0.2; // V
+  private static final double STEER_FRICTION_VOLTAGE = 1.0; // V
+  private static final double STEER_INERTIA = 0.03; // kg m^2
+  private static final double SETTLED_TRANSLATION = 0.02; // m
+  private static final double SETTLED_ROTATION = Math.toRadians(2);
+  private static final double MAX_SETTLE_TIME = 1.0; // s after the path ends
+  private static final double DIVERGED_ERROR = 1.0; // m, a run this far off costs as much as never settling
+  private static final double TRANSLATION_ERROR_SCALE = 0.05; // m of RMS error that costs as much as 1 s
+  private static final double ROTATION_ERROR_SCALE = Math.toRadians(3); // rad of RMS error that costs as much as 1 s
+  private static final int MAX_ITERATIONS = 80;
+  private static final double MIN_STEP_SCALE = 0.01;
+
+  private static final String[] GAIN_NAMES = {
+      "TRANSLATION_P", "TRANSLATION_I", "TRANSLATION_D", "ROTATION_P", "ROTATION_I", "ROTATION_D"};
+  private static final double[] INITIAL_GAINS = {5.0, 0.0, 0.0, 5.0, 0.0, 0.0};
+  private static final double[] INITIAL_STEPS = {1.0, 0.2, 0.1, 1.0, 0.2, 0.1};
+  private static final double[] MAX_GAINS = {20.0, 5.0, 2.0, 20.0, 5.0, 2.0};
+
+  /**
+   * A path's profiled reference, sampled along its length.
+   */
+  private record Reference(String name, double[] time, double[] x, double[] y, double[] vx, double[] vy,
+                           double[] rotation, double[] omega) {
+    double getTotalTime() {
+      return time[time.length - 1];
+    }
+  }
+
+  /**
+   * How far off the path's start the robot in a scenario is placed.
+   */
+  private record Scenario(double offsetX, double offsetY, double offsetRotation) {}
+
+  /**
+   * Average outcome of a set of gains over every run.
+   */
+  private record Score(double cost, double translationRms, double rotationRms, double settleTime, double diverged) {}
+
+  /**
+   * What {@code PPHolonomicDriveController}'s {@code PIDController}s compute, without registering a sendable for
+   * every controller the search makes. The first sample seeds the previous error, so a run that starts off the path
+   * doesn't get a derivative kick from an error of zero.
+   */
+  private static final class Pid {
+    private final double kP;
+    private final double kI;
+    private final double kD;
+    private final boolean continuous;
+    private boolean hasPreviousError;
+    private double previousError;
+    private double totalError;
+
+    Pid(double kP, double kI, double kD, boolean continuous) {
+      this.kP = kP;
+      this.kI = kI;
+      this.kD = kD;
+      this.continuous = continuous;
+    }
+
+    double calculate(double measurement, double setpoint) {
+      double error = setpoint - measurement;
+      if (continuous) {
+        error = Math.IEEEremainder(error, 2 * Math.PI);
+      }
+      double derivative = hasPreviousError ? (error - previousError) / LOOP_PERIOD : 0.0;
+      hasPreviousError = true;
+      previousError = error;
+      if (Math.abs(error) > I_ZONE) {
+        totalError = 0.0;
+      } else if (kI != 0.0) {
+        totalError = clamp(totalError + error * LOOP_PERIOD, -1.0 / kI, 1.0 / kI);
+      }
+      return kP * error + kI * totalError + kD * derivative;
+    }
+  }
+
+  private PathGainTuner() {}
+
+  public static void main(String[] args) throws Exception {
+    List<File> settingsFiles = new ArrayList<>();
+    List<String> autos = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--settings") && i + 1 < args.length) {
+        settingsFiles.add(new File(args[++i]));
+      } else {
+        autos.add(args[i]);
+      }
+    }
+    if (settingsFiles.isEmpty()) {
+      settingsFiles.add(new File(PATHPLANNER_DIRECTORY, "settings.json"));
+    }
+    File autosDirectory = new File(PATHPLANNER_DIRECTORY, "autos");
+    if (autos.isEmpty()) {
+      autos.addAll(AutoFile.listAutos(autosDirectory));
+    }
+
+    Set<String> pathNames = new LinkedHashSet<>();
+    for (String auto : autos) {
+      pathNames.addAll(AutoFile.getPathNames(autosDirectory, auto));
+    }
+    File pathsDirectory = new File(PATHPLANNER_DIRECTORY, "paths");
+    List<PathFile> paths = new ArrayList<>();
+    for (String pathName : pathNames) {
+      paths.add(PathFile.load(pathsDirectory, pathName));
+    }
+    if (paths.isEmpty()) {
+      System.out.println("Usage: PathGainTuner [--settings <settings.json>]... [<auto name>...]");
+      return;
+    }
+
+    Scenario[] scenarios = new Scenario[SCENARIOS];
+    SplittableRandom random = new SplittableRandom(6045);
+    for (int i = 0; i < SCENARIOS; i++) {
+      scenarios[i] = new Scenario(random.nextDouble(-1, 1) * MAX_START_OFFSET,
+                                  random.nextDouble(-1, 1) * MAX_START_OFFSET,
+                                  random.nextDouble(-1, 1) * MAX_START_ROTATION_OFFSET);
+    }
+
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Could not initialize the simulated HAL");
+    }
+    SimHooks.pauseTiming();
+    for (File settingsFile : settingsFiles) {
+      RobotModel model = RobotModel.load(settingsFile);
+      List<Reference> references = new ArrayList<>();
+      for (PathFile path : paths) {
+        references.add(buildReference(path, model));
+      }
+      // A field of its own per robot configuration, so the robots of earlier configurations aren't in the way.
+      SimulatedArena arena = new Arena2025Reefscape();
+      SelfControlledSwerveDriveSimulation drive = new SelfControlledSwerveDriveSimulation(
+          new SwerveDriveSimulation(buildDriveConfig(model), Pose2d.kZero));
+      arena.addDriveTrainSimulation(drive.getDriveTrainSimulation());
+
+      double[] best = INITIAL_GAINS.clone();
+      Score initial = evaluate(best, references, scenarios, arena, drive);
+      Score bestScore = initial;
+      double stepScale = 1.0;
+      for (int iteration = 0; iteration < MAX_ITERATIONS && stepScale > MIN_STEP_SCALE; iteration++) {
+        double[] batchBest = null;
+        Score batchBestScore = bestScore;
+        for (int gain = 0; gain < best.length; gain++) {
+          for (int direction = -1; direction <= 1; direction += 2) {
+            double[] candidate = best.clone();
+            candidate[gain] = clamp(candidate[gain] + direction * INITIAL_STEPS[gain] * stepScale, 0.0,
+                                    MAX_GAINS[gain]);
+            if (candidate[gain] == best[gain]) {
+              continue;
+            }
+            Score score = evaluate(candidate, references, scenarios, arena, drive);
+            if (score.cost() < batchBestScore.cost()) {
+              batchBest = candidate;
+              batchBestScore = score;
+            }
+          }
+        }
+        if (batchBest != null) {
+          best = batchBest;
+          bestScore = batchBestScore;
+        } else {
+          stepScale *= 0.5;
+        }
+      }
+
+      System.out.printf("%s: %d paths, %d scenarios each%n", settingsFile, references.size(), SCENARIOS);
+      printScore("Initial", initial);
+      printScore("Tuned", bestScore);
+      System.out.println("  public static final class PathFollowingConstants {");
+      for (int i = 0; i < best.length; i++) {
+        System.out.printf("    public static final double %s = %.3f;%n", GAIN_NAMES[i], best[i]);
+      }
+      System.out.println("  }");
+      System.out.println();
+    }
+    SimHooks.resumeTiming();
+  }
+
+  private static void printScore(String label, Score score) {
+    System.out.printf("  %-8s cost %7.3f, RMS error %5.1f cm %5.2f deg, settling %5.2f s, %4.1f%% diverged%n",
+                      label, score.cost(), score.translationRms() * 100, Math.toDegrees(score.rotationRms()),
+                      score.settleTime(), score.diverged() * 100);
+  }
+
+  /**
+   * Describe the drivetrain to maple-sim with the physics PathPlanner uses.
+   */
+  private static DriveTrainSimulationConfig buildDriveConfig(RobotModel model) {
+    SwerveModuleSimulationConfig module = new SwerveModuleSimulationConfig(
+        model.driveMotor, DCMotor.getNEO(1), model.driveGearing, STEER_GEARING, Volts.of(DRIVE_FRICTION_VOLTAGE),
+        Volts.of(STEER_FRICTION_VOLTAGE), Meters.of(model.wheelRadiusMeters),
+        KilogramSquareMeters.of(STEER_INERTIA), model.wheelCof);
+    return DriveTrainSimulationConfig.Default()
+        .withGyro(COTS.ofNav2X())
+        .withSwerveModule(module)
+        .withCustomModuleTranslations(model.moduleLocations)
+        .withBumperSize(Meters.of(model.robotLengthMeters), Meters.of(model.robotWidthMeters))
+        .withRobotMass(Kilograms.of(model.massKg));
+  }
+
+  /**
+   * Profile a path and lay the reference out in time.
+   */
+  private static Reference buildReference(PathFile path, RobotModel model) {
+    PathSamples samples = path.sample(model);
+    int n = samples.count;
+    double[] velocity = new double[n];
+    VelocityProfiler.profile(samples, model, true, velocity);
+
+    double[] time = new double[n];
+    double[] vx = new double[n];
+    double[] vy = new double[n];
+    for (int i = 0; i < n; i++) {
+      if (i > 0) {
+        double averageVelocity = (velocity[i - 1] + velocity[i]) / 2.0;
+        double ds = samples.distance[i] - samples.distance[i - 1];
+        time[i] = time[i - 1] + (averageVelocity > 1e-9 ? ds / averageVelocity : 0.0);
+      }
+      int previous = Math.max(0, i - 1);
+      int next = Math.min(n - 1, i + 1);
+      double dx = samples.x[next] - samples.x[previous];
+      double dy = samples.y[next] - samples.y[previous];
+      double length = Math.hypot(dx, dy);
+      if (length > 1e-9) {
+        vx[i] = velocity[i] * dx / length;
+        vy[i] = velocity[i] * dy / length;
+      }
+    }
+
+    // Rotation targets sit at waypoint relative positions, with the start and end rotations at the path ends.
+    List<JsonNode> rotationTargets = new ArrayList<>();
+    path.getJson().path("rotationTargets").forEach(rotationTargets::add);
+    rotationTargets.sort((a, b) -> Double.compare(a.get("waypointRelativePos").asDouble(),
+                                                  b.get("waypointRelativePos").asDouble()));
+    double[] targetPositions = new double[samples.rotations.length];
+    for (int i = 0; i < rotationTargets.size(); i++) {
+      targetPositions[i + 1] = rotationTargets.get(i).get("waypointRelativePos").asDouble();
+    }
+    targetPositions[targetPositions.length - 1] = samples.waypointPos[n - 1];
+
+    double[] rotation = new double[n];
+    int target = 0;
+    for (int i = 0; i < n; i++) {
+      double position = samples.waypointPos[i];
+      while (target < targetPositions.length - 2 && position > targetPositions[target + 1]) {
+        target++;
+      }
+      double span = targetPositions[target + 1] - targetPositions[target];
+      double fraction = span > 1e-9 ? clamp((position - targetPositions[target]) / span, 0.0, 1.0) : 1.0;
+      double delta = Math.IEEEremainder(samples.rotations[target + 1] - samples.rotations[target], 2 * Math.PI);
+      rotation[i] = samples.rotations[target] + delta * fraction;
+    }
+    double[] omega = new double[n];
+    for (int i = 0; i < n - 1; i++) {
+      double dt = time[i + 1] - time[i];
+      omega[i] = dt > 1e-9 ? Math.IEEEremainder(rotation[i + 1] - rotation[i], 2 * Math.PI) / dt : 0.0;
+    }
+    return new Reference(path.getName(), time, samples.x, samples.y, vx, vy, rotation, omega);
+  }
+
+  /**
+   * Simulate every path in every scenario with a set of gains.
+   */
+  private static Score evaluate(double[] gains, List<Reference> references, Scenario[] scenarios,
+                                SimulatedArena arena, SelfControlledSwerveDriveSimulation drive) {
+    int runs = references.size() * scenarios.length;
+    double[][] results = new double[runs][];
+    for (int i = 0; i < runs; i++) {
+      results[i] = simulate(references.get(i / scenarios.length), scenarios[i % scenarios.length], gains, arena,
+                            drive);
+    }
+
+    double cost = 0.0;
+    double translationRms = 0.0;
+    double rotationRms = 0.0;
+    double settleTime = 0.0;
+    double diverged = 0.0;
+    for (double[] result : results) {
+      boolean runDiverged = result[3] > 0.0;
+      cost += runDiverged ? MAX_SETTLE_TIME + DIVERGED_ERROR / TRANSLATION_ERROR_SCALE
+                          : result[0] / TRANSLATION_ERROR_SCALE + result[1] / ROTATION_ERROR_SCALE + result[2];
+      translationRms += result[0];
+      rotationRms += result[1];
+      settleTime += result[2];
+      diverged += runDiverged ? 1.0 : 0.0;
+    }
+    return new Score(cost / runs, translationRms / runs, rotationRms / runs, settleTime / runs, diverged / runs);
+  }
+
+  /**
+   * Follow one path in one scenario.
+   *
+   * @return RMS translation error while the path runs, RMS rotation error, time after the path ends to settle, and 1
+   *     if the run diverged or 0 if not.
+   */
+  private static double[] simulate(Reference reference, Scenario scenario, double[] gains, SimulatedArena arena,
+                                   SelfControlledSwerveDriveSimulation drive) {
+    // Bring the robot to a stop from the last run, then place it and its odometry at this run's start.
+    for (int loop = 0; loop < Math.round(STOP_TIME / LOOP_PERIOD); loop++) {
+      step(arena, drive, new ChassisSpeeds(), false);
+    }
+    Pose2d start = new Pose2d(reference.x()[0] + scenario.offsetX(), reference.y()[0] + scenario.offsetY(),
+                              new Rotation2d(reference.rotation()[0] + scenario.offsetRotation()));
+    drive.setSimulationWorldPose(start);
+    drive.resetOdometry(start);
+
+    Pid xController = new Pid(gains[0], gains[1], gains[2], false);
+    Pid yController = new Pid(gains[0], gains[1], gains[2], false);
+    Pid rotationController = new Pid(gains[3], gains[4], gains[5], true);
+
+    double totalTime = reference.getTotalTime();
+    double translationSquared = 0.0;
+    double rotationSquared = 0.0;
+    int trackingLoops = 0;
+    int index = 0;
+    for (double time = 0.0; time <= totalTime + MAX_SETTLE_TIME; time += LOOP_PERIOD) {
+      // Reference at this time, interpolated between samples.
+      double sampleTime = Math.min(time, totalTime);
+      while (index < reference.time().length - 2 && reference.time()[index + 1] < sampleTime) {
+        index++;
+      }
+      double span = reference.time()[index + 1] - reference.time()[index];
+      double f = span > 1e-9 ? clamp((sampleTime - reference.time()[index]) / span, 0.0, 1.0) : 1.0;
+      double targetX = lerp(reference.x(), index, f);
+      double targetY = lerp(reference.y(), index, f);
+      double targetRotation = reference.rotation()[index]
+                              + f * Math.IEEEremainder(reference.rotation()[index + 1] - reference.rotation()[index],
+                                                       2 * Math.PI);
+      boolean ended = time > totalTime;
+      double feedforwardVx = ended ? 0.0 : lerp(reference.vx(), index, f);
+      double feedforwardVy = ended ? 0.0 : lerp(reference.vy(), index, f);
+      double feedforwardOmega = ended ? 0.0 : reference.omega()[index];
+
+      Pose2d actual = drive.getActualPoseInSimulationWorld();
+      double translationError = Math.hypot(targetX - actual.getX(), targetY - actual.getY());
+      double rotationError = Math.abs(Math.IEEEremainder(targetRotation - actual.getRotation().getRadians(),
+                                                         2 * Math.PI));
+      if (translationError > DIVERGED_ERROR) {
+        return new double[] {DIVERGED_ERROR, Math.PI, MAX_SETTLE_TIME, 1.0};
+      }
+      if (!ended) {
+        translationSquared += translationError * translationError;
+        rotationSquared += rotationError * rotationError;
+        trackingLoops++;
+      } else if (translationError < SETTLED_TRANSLATION && rotationError < SETTLED_ROTATION) {
+        return new double[] {Math.sqrt(translationSquared / trackingLoops), Math.sqrt(rotationSquared / trackingLoops),
+                             time - totalTime, 0.0};
+      }
+
+      // The controller only knows where odometry thinks the robot is.
+      Pose2d estimated = drive.getOdometryEstimatedPose();
+      ChassisSpeeds command = new ChassisSpeeds(
+          feedforwardVx + xController.calculate(estimated.getX(), targetX),
+          feedforwardVy + yController.calculate(estimated.getY(), targetY),
+          feedforwardOmega + rotationController.calculate(estimated.getRotation().getRadians(), targetRotation));
+      step(arena, drive, command, true);
+    }
+    return new double[] {Math.sqrt(translationSquared / Math.max(1, trackingLoops)),
+                         Math.sqrt(rotationSquared / Math.max(1, trackingLoops)), MAX_SETTLE_TIME, 0.0};
+  }
+
+  /**
+   * Drive at the given speeds for one loop, and update odometry at the end of it.
+   */
+  private static void step(SimulatedArena arena, SelfControlledSwerveDriveSimulation drive, ChassisSpeeds speeds,
+                           boolean fieldCentric) {
+    drive.runChassisSpeeds(speeds, new Translation2d(), fieldCentric, true);
+    arena.simulationPeriodic();
+    drive.periodic();
+    SimHooks.stepTiming(LOOP_PERIOD);
+  }
+
+  private static double lerp(double[] values, int index, double fraction) {
+    return values[index] + (values[index + 1] - values[index]) * fraction;
+  }
+
+  private static double clamp(double value, double min, double max) {
+    return Math.max(min, Math.min(max, value));
+  }
+}
@@ -0,0 +1,48 @@
+package frc.robot.tools;
+
+/**
+ * A PathPlanner path sampled densely along its Bezier curves, with everything the offline profilers need stored in
+ * parallel arrays.
+ */
+public class PathSamples {
+  public final int count;
+  /** Field x of each sample, m. */
+  public final double[] x;
+  /** Field y of each sample, m. */
+  public final double[] y;
+  /** Distance along the path, m. */
+  public final double[] distance;
+  /** Unsigned curvature, 1/m. */
+  public final double[] curvature;
+  /** Waypoint relative position, segment index plus Bezier parameter. */
+  public final double[] waypointPos;
+  /** Velocity cap from the path's global constraints and constraint zones, m/s. Infinite if unlimited. */
+  public final double[] maxVelocity;
+  /** Acceleration cap from the path's global constraints and constraint zones, m/s^2. Infinite if unlimited. */
+  public final double[] maxAcceleration;
+
+  public double startVelocity;
+  public double endVelocity;
+  /** Holonomic rotations the robot must pass through in order, start and end included, radians. */
+  public double[] rotations;
+  public double maxAngularVelocity;
+  public double maxAngularAcceleration;
+
+  public PathSamples(int count) {
+    this.count = count;
+    x = new double[count];
+    y = new double[count];
+    distance = new double[count];
+    curvature = new double[count];
+    waypointPos = new double[count];
+    maxVelocity = new double[count];
+    maxAcceleration = new double[count];
+  }
+
+  /**
+   * @return Total path length, m.
+   */
+  public double getLength() {
+    return distance[count - 1];
+  }
+}
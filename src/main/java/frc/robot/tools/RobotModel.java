@@ -0,0 +1,141 @@
+package frc.robot.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Drivetrain physics read from the PathPlanner GUI {@code settings.json}, so the offline tools use the same robot
+ * that PathPlanner does.
+ */
+public class RobotModel {
+  private static final double GRAVITY = 9.81;
+
+  public final double massKg;
+  public final double moiKgMetersSq;
+  public final double wheelCof;
+  public final double wheelRadiusMeters;
+  public final double driveGearing;
+  public final double driveCurrentLimitAmps;
+  public final double maxDriveSpeedMps;
+  public final double defaultMaxVelocityMps;
+  public final double defaultMaxAccelerationMpsSq;
+  public final double defaultMaxAngularVelocityRadPerSec;
+  public final double defaultMaxAngularAccelerationRadPerSecSq;
+  public final double robotWidthMeters;
+  public final double robotLengthMeters;
+  public final DCMotor driveMotor;
+  public final Translation2d[] moduleLocations;
+
+  private RobotModel(JsonNode settings) {
+    massKg = settings.get("robotMass").asDouble();
+    moiKgMetersSq = settings.get("robotMOI").asDouble();
+    wheelCof = settings.get("wheelCOF").asDouble();
+    wheelRadiusMeters = settings.get("driveWheelRadius").asDouble();
+    driveGearing = settings.get("driveGearing").asDouble();
+    driveCurrentLimitAmps = settings.get("driveCurrentLimit").asDouble();
+    maxDriveSpeedMps = settings.get("maxDriveSpeed").asDouble();
+    defaultMaxVelocityMps = settings.get("defaultMaxVel").asDouble();
+    defaultMaxAccelerationMpsSq = settings.get("defaultMaxAccel").asDouble();
+    defaultMaxAngularVelocityRadPerSec = Math.toRadians(settings.get("defaultMaxAngVel").asDouble());
+    defaultMaxAngularAccelerationRadPerSecSq = Math.toRadians(settings.get("defaultMaxAngAccel").asDouble());
+    robotWidthMeters = settings.get("robotWidth").asDouble();
+    robotLengthMeters = settings.get("robotLength").asDouble();
+    driveMotor = getMotor(settings.get("driveMotorType").asText());
+    moduleLocations = new Translation2d[] {
+        new Translation2d(settings.get("flModuleX").asDouble(), settings.get("flModuleY").asDouble()),
+        new Translation2d(settings.get("frModuleX").asDouble(), settings.get("frModuleY").asDouble()),
+        new Translation2d(settings.get("blModuleX").asDouble(), settings.get("blModuleY").asDouble()),
+        new Translation2d(settings.get("brModuleX").asDouble(), settings.get("brModuleY").asDouble())};
+  }
+
+  /**
+   * Load the robot model from a PathPlanner settings file.
+   *
+   * @param settingsFile The {@code settings.json} file.
+   * @return The robot model.
+   * @throws IOException If the file can't be read.
+   */
+  public static RobotModel load(File settingsFile) throws IOException {
+    return new RobotModel(new ObjectMapper().readTree(settingsFile));
+  }
+
+  /**
+   * Get a single drive motor model for the motor names PathPlanner uses.
+   */
+  private static DCMotor getMotor(String type) {
+    switch (type) {
+      case "krakenX60":
+        return DCMotor.getKrakenX60(1);
+      case "krakenX60FOC":
+        return DCMotor.getKrakenX60Foc(1);
+      case "falcon500":
+        return DCMotor.getFalcon500(1);
+      case "vortex":
+        return DCMotor.getNeoVortex(1);
+      case "NEO":
+      default:
+        return DCMotor.getNEO(1);
+    }
+  }
+
+  /**
+   * @return Acceleration the wheels can transmit before slipping, m/s^2.
+   */
+  public double getFrictionAccelerationLimit() {
+    return wheelCof * GRAVITY;
+  }
+
+  /**
+   * Acceleration all drive motors together can produce at a given speed, limited by both the current limit and back
+   * EMF at the nominal voltage.
+   *
+   * @param speedMps Robot speed, m/s.
+   * @return Maximum forward acceleration from motor torque, m/s^2.
+   */
+  public double getMotorAccelerationLimit(double speedMps) {
+    double motorRadPerSec = speedMps / wheelRadiusMeters * driveGearing;
+    double availableCurrent = Math.min(driveCurrentLimitAmps, driveMotor.getCurrent(motorRadPerSec, 12.0));
+    return getForceFromCurrent(Math.max(0.0, availableCurrent)) / massKg;
+  }
+
+  /**
+   * Deceleration all drive motors together can produce. Back EMF helps when braking, so only the current limit
+   * matters.
+   *
+   * @return Maximum braking deceleration from motor torque, m/s^2.
+   */
+  public double getMotorDecelerationLimit() {
+    return getForceFromCurrent(driveCurrentLimitAmps) / massKg;
+  }
+
+  /**
+   * @return Top speed, the lower of {@code maxDriveSpeed} and the free speed of the motors.
+   */
+  public double getMaxSpeed() {
+    return Math.min(maxDriveSpeedMps, driveMotor.freeSpeedRadPerSec / driveGearing * wheelRadiusMeters);
+  }
+
+  /**
+   * @return Maximum angular acceleration with every module pushing tangentially at the friction or current limit.
+   */
+  public double getMaxAngularAcceleration() {
+    double moduleForce = Math.min(getForceFromCurrent(driveCurrentLimitAmps), massKg * getFrictionAccelerationLimit())
+                         / moduleLocations.length;
+    double torque = 0.0;
+    for (Translation2d location : moduleLocations) {
+      torque += moduleForce * location.getNorm();
+    }
+    return torque / moiKgMetersSq;
+  }
+
+  /**
+   * @return Total ground force from every drive motor drawing the given current, N.
+   */
+  private double getForceFromCurrent(double currentAmps) {
+    return driveMotor.getTorque(currentAmps) * driveGearing / wheelRadiusMeters * moduleLocations.length;
+  }
+}
@@ -0,0 +1,108 @@
+package frc.robot.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Generates torque and friction limited time-optimal velocity profiles for every path in the deploy directory and
+ * compares them to the constant constraint profiles PathPlanner follows today. Paths are profiled in parallel.
+ *
+ * <p>Run with {@code ./gradlew runTool -Ptool=TrajectoryGenerator}. Per-path profiles are written as CSV to
+ * {@code build/trajectories}.
+ */
+public final class TrajectoryGenerator {
+  private static final File PATHPLANNER_DIRECTORY = new File("src/main/deploy/pathplanner");
+  private static final File OUTPUT_DIRECTORY = new File("build/trajectories");
+
+  /**
+   * Profile times for one path.
+   *
+   * @param name             Path name.
+   * @param length           Path length, m.
+   * @param constrainedTime  Time under the path's PathPlanner constraints, s.
+   * @param optimalTime      Time limited only by the drivetrain physics, s.
+   * @param peakVelocity     Highest speed of the physics limited profile, m/s.
+   */
+  private record Result(String name, double length, double constrainedTime, double optimalTime,
+                        double peakVelocity) {}
+
+  private TrajectoryGenerator() {}
+
+  public static void main(String[] args) throws Exception {
+    RobotModel model = RobotModel.load(new File(PATHPLANNER_DIRECTORY, "settings.json"));
+    List<PathFile> paths = PathFile.loadAll(new File(PATHPLANNER_DIRECTORY, "paths"));
+    OUTPUT_DIRECTORY.mkdirs();
+
+    ForkJoinPool pool = new ForkJoinPool();
+    List<Result> results = pool.submit(() -> paths.parallelStream()
+                                                  .map(path -> profile(path, model))
+                                                  .toList()).get();
+    pool.shutdown();
+
+    System.out.printf("Robot: %.1f kg, COF %.2f, %.0f A, top speed %.2f m/s, grip limit %.2f m/s^2%n",
+                      model.massKg, model.wheelCof, model.driveCurrentLimitAmps, model.getMaxSpeed(),
+                      model.getFrictionAccelerationLimit());
+    System.out.printf("%-48s %8s %12s %10s %8s %10s%n",
+                      "Path", "Length", "Constrained", "Optimal", "Saved", "Peak m/s");
+    Map<String, Result> byName = new HashMap<>();
+    results.stream().sorted(Comparator.comparing(Result::name)).forEach(result -> {
+      byName.put(result.name(), result);
+      System.out.printf("%-48s %8.2f %12.2f %10.2f %8.2f %10.2f%n",
+                        result.name(), result.length(), result.constrainedTime(), result.optimalTime(),
+                        result.constrainedTime() - result.optimalTime(), result.peakVelocity());
+    });
+
+    System.out.println();
+    System.out.printf("%-48s %12s %10s %8s%n", "Auto (driving + waits)", "Constrained", "Optimal", "Saved");
+    File autosDirectory = new File(PATHPLANNER_DIRECTORY, "autos");
+    for (String auto : AutoFile.listAutos(autosDirectory).stream().sorted().toList()) {
+      double waits = AutoFile.getWaitTime(autosDirectory, auto);
+      double constrained = waits;
+      double optimal = waits;
+      for (String pathName : AutoFile.getPathNames(autosDirectory, auto)) {
+        Result result = byName.get(pathName);
+        if (result == null) {
+          System.out.printf("  %s references missing path %s%n", auto, pathName);
+          continue;
+        }
+        constrained += result.constrainedTime();
+        optimal += result.optimalTime();
+      }
+      System.out.printf("%-48s %12.2f %10.2f %8.2f%n", auto, constrained, optimal, constrained - optimal);
+    }
+  }
+
+  /**
+   * Profile one path both ways and write the profiles to CSV.
+   */
+  private static Result profile(PathFile path, RobotModel model) {
+    PathSamples samples = path.sample(model);
+    double[] constrainedVelocity = new double[samples.count];
+    double[] optimalVelocity = new double[samples.count];
+    double constrainedTime = VelocityProfiler.profile(samples, model, true, constrainedVelocity);
+    double optimalTime = VelocityProfiler.profile(samples, model, false, optimalVelocity);
+
+    double peakVelocity = 0.0;
+    for (double v : optimalVelocity) {
+      peakVelocity = Math.max(peakVelocity, v);
+    }
+
+    try (PrintWriter writer = new PrintWriter(new File(OUTPUT_DIRECTORY, path.getName() + ".csv"))) {
+      writer.println("distance,x,y,curvature,constrainedVelocity,optimalVelocity");
+      for (int i = 0; i < samples.count; i++) {
+        writer.printf("%.4f,%.4f,%.4f,%.4f,%.4f,%.4f%n", samples.distance[i], samples.x[i], samples.y[i],
+                      samples.curvature[i], constrainedVelocity[i], optimalVelocity[i]);
+      }
+    } catch (IOException e) {
+      System.err.println("Could not write profile for " + path.getName() + ": " + e.getMessage());
+    }
+
+    return new Result(path.getName(), samples.getLength(), constrainedTime, optimalTime, peakVelocity);
+  }
+}
@@ -0,0 +1,104 @@
+package frc.robot.tools;
+
+/**
+ * Time-optimal velocity profiles along a sampled path with a forward and backward pass. Every point is limited by
+ * wheel friction shared between cornering and acceleration, by drive motor torque at the current limit and back EMF,
+ * and optionally by the path's own PathPlanner constraints.
+ */
+public final class VelocityProfiler {
+  private VelocityProfiler() {}
+
+  /**
+   * Compute the fastest velocity profile along the path.
+   *
+   * @param samples        The sampled path.
+   * @param model          The robot model.
+   * @param useConstraints Whether to also apply the path's PathPlanner velocity and acceleration caps.
+   * @param outVelocity    Velocity at each sample, m/s. At least {@code samples.count} long.
+   * @return Time to drive the path, the longer of the translation and rotation times, s.
+   */
+  public static double profile(PathSamples samples, RobotModel model, boolean useConstraints, double[] outVelocity) {
+    int n = samples.count;
+    double friction = model.getFrictionAccelerationLimit();
+    double maxSpeed = model.getMaxSpeed();
+    double maxDeceleration = model.getMotorDecelerationLimit();
+
+    // Speed limit at each point from top speed, cornering grip and the path constraints.
+    for (int i = 0; i < n; i++) {
+      double limit = maxSpeed;
+      if (samples.curvature[i] > 1e-6) {
+        limit = Math.min(limit, Math.sqrt(friction / samples.curvature[i]));
+      }
+      if (useConstraints) {
+        limit = Math.min(limit, samples.maxVelocity[i]);
+      }
+      outVelocity[i] = limit;
+    }
+
+    // Forward pass: accelerate as hard as the motors and the grip left over from cornering allow.
+    outVelocity[0] = Math.min(outVelocity[0], samples.startVelocity);
+    for (int i = 0; i < n - 1; i++) {
+      double v = outVelocity[i];
+      double acceleration = Math.min(model.getMotorAccelerationLimit(v),
+                                     getLongitudinalGrip(friction, v, samples.curvature[i]));
+      if (useConstraints) {
+        acceleration = Math.min(acceleration, samples.maxAcceleration[i]);
+      }
+      double ds = samples.distance[i + 1] - samples.distance[i];
+      outVelocity[i + 1] = Math.min(outVelocity[i + 1], Math.sqrt(v * v + 2.0 * acceleration * ds));
+    }
+
+    // Backward pass: make sure every point can still brake in time for the next.
+    outVelocity[n - 1] = Math.min(outVelocity[n - 1], samples.endVelocity);
+    for (int i = n - 1; i > 0; i--) {
+      double v = outVelocity[i];
+      double deceleration = Math.min(maxDeceleration, getLongitudinalGrip(friction, v, samples.curvature[i]));
+      if (useConstraints) {
+        deceleration = Math.min(deceleration, samples.maxAcceleration[i]);
+      }
+      double ds = samples.distance[i] - samples.distance[i - 1];
+      outVelocity[i - 1] = Math.min(outVelocity[i - 1], Math.sqrt(v * v + 2.0 * deceleration * ds));
+    }
+
+    double translationTime = 0.0;
+    for (int i = 0; i < n - 1; i++) {
+      double averageVelocity = (outVelocity[i] + outVelocity[i + 1]) / 2.0;
+      if (averageVelocity > 1e-9) {
+        translationTime += (samples.distance[i + 1] - samples.distance[i]) / averageVelocity;
+      }
+    }
+
+    double maxAngularAcceleration = model.getMaxAngularAcceleration();
+    double maxAngularVelocity = maxSpeed / model.moduleLocations[0].getNorm();
+    if (useConstraints) {
+      maxAngularAcceleration = Math.min(maxAngularAcceleration, samples.maxAngularAcceleration);
+      maxAngularVelocity = Math.min(maxAngularVelocity, samples.maxAngularVelocity);
+    }
+    double rotationTime = 0.0;
+    for (int i = 0; i < samples.rotations.length - 1; i++) {
+      double delta = Math.abs(Math.IEEEremainder(samples.rotations[i + 1] - samples.rotations[i], 2 * Math.PI));
+      rotationTime += getMinimumTime(delta, maxAngularVelocity, maxAngularAcceleration);
+    }
+
+    return Math.max(translationTime, rotationTime);
+  }
+
+  /**
+   * @return Grip left for speeding up or slowing down after cornering takes its share, m/s^2.
+   */
+  private static double getLongitudinalGrip(double friction, double velocity, double curvature) {
+    double lateral = velocity * velocity * curvature;
+    return Math.sqrt(Math.max(0.0, friction * friction - lateral * lateral));
+  }
+
+  /**
+   * @return Rest to rest time of a trapezoidal profile over the given distance.
+   */
+  private static double getMinimumTime(double distance, double maxVelocity, double maxAcceleration) {
+    double accelerationDistance = maxVelocity * maxVelocity / maxAcceleration;
+    if (distance <= accelerationDistance) {
+      return 2.0 * Math.sqrt(distance / maxAcceleration);
+    }
+    return 2.0 * maxVelocity / maxAcceleration + (distance - accelerationDistance) / maxVelocity;
+  }
+}
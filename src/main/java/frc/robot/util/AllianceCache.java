@@ -0,0 +1,194 @@
+package frc.robot.util;
+
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.path.PathPlannerPath;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Every path, flipped once for each alliance, the ideal trajectories of the alliance we are on, and its
+ * {@link FieldTargets}. The alliance is only polled while disabled, and a change just switches which set is served, so
+ * nothing is flipped and the Driver Station isn't queried while a match is running.
+ *
+ * <p>Paths are only read and flipped at startup. Generating ideal trajectories is what takes time, so that waits until
+ * the alliance is known and is only done for that alliance, while the robot is still disabled.
+ *
+ * <p>Red paths are flipped ahead of time and marked {@code preventFlipping}, so followers built from them must not
+ * flip them again.
+ */
+public final class AllianceCache {
+  private static AllianceCache s_instance;
+
+  /**
+   * Everything cached for one alliance.
+   */
+  private static final class AllianceData {
+    final Map<String, PathPlannerPath> paths = new HashMap<>();
+    final Map<String, CompactTrajectory> compactTrajectories = new HashMap<>();
+    final Alliance alliance;
+    boolean trajectoriesGenerated;
+
+    AllianceData(Alliance alliance) {
+      this.alliance = alliance;
+    }
+  }
+
+  private final AllianceData m_blue = new AllianceData(Alliance.Blue);
+  private final AllianceData m_red = new AllianceData(Alliance.Red);
+  private final RobotConfig m_config;
+  private volatile boolean m_isRed = false;
+  private volatile AllianceData m_current = m_blue;
+  private boolean m_allianceKnown = false;
+
+  private AllianceCache() {
+    // Index the targets now rather than on the first align.
+    FieldTargets.getInstance();
+
+    RobotConfig config = null;
+    try {
+      config = RobotConfig.fromGUISettings();
+    } catch (Exception e) {
+      DriverStation.reportError("AllianceCache could not load the PathPlanner robot config: " + e, false);
+    }
+    m_config = config;
+
+    File[] pathFiles = new File(Filesystem.getDeployDirectory(), "pathplanner/paths")
+        .listFiles((dir, name) -> name.endsWith(".path"));
+    if (pathFiles == null) {
+      return;
+    }
+    for (File file : pathFiles) {
+      String name = file.getName().substring(0, file.getName().length() - ".path".length());
+      try {
+        PathPlannerPath bluePath = PathPlannerPath.fromPathFile(name);
+        PathPlannerPath redPath = bluePath.flipPath();
+        redPath.preventFlipping = true;
+        m_blue.paths.put(name, bluePath);
+        m_red.paths.put(name, redPath);
+      } catch (Exception e) {
+        DriverStation.reportError("AllianceCache could not load path " + name + ": " + e, false);
+      }
+    }
+  }
+
+  /**
+   * @return The shared cache, loading and flipping every path the first time it is called.
+   */
+  public static synchronized AllianceCache getInstance() {
+    if (s_instance == null) {
+      s_instance = new AllianceCache();
+    }
+    return s_instance;
+  }
+
+  /**
+   * Check the Driver Station for the alliance. Only polls while disabled or until the alliance is first known, so
+   * call it from the disabled and mode init methods. When the alliance becomes known or changes, that alliance's
+   * ideal trajectories are generated, so they are ready before the match starts.
+   */
+  public void update() {
+    if (m_allianceKnown && !DriverStation.isDisabled()) {
+      return;
+    }
+    var alliance = DriverStation.getAlliance();
+    if (alliance.isEmpty()) {
+      return;
+    }
+    m_allianceKnown = true;
+    boolean isRed = alliance.get() == DriverStation.Alliance.Red;
+    if (isRed != m_isRed || !m_current.trajectoriesGenerated) {
+      AllianceData data = isRed ? m_red : m_blue;
+      generateTrajectories(data);
+      m_current = data;
+      m_isRed = isRed;
+    }
+  }
+
+  /**
+   * Generate the ideal trajectory of every path of an alliance. The path keeps its own, which is what PathPlanner's
+   * follower uses when the robot starts the path at rest, and the resampled copy is served by
+   * {@link #getCompactTrajectory}.
+   */
+  private void generateTrajectories(AllianceData data) {
+    for (String name : data.paths.keySet()) {
+      getCompactTrajectory(data, name);
+    }
+    data.trajectoriesGenerated = true;
+  }
+
+  private CompactTrajectory getCompactTrajectory(AllianceData data, String name) {
+    PathPlannerPath path = data.paths.get(name);
+    if (path == null || m_config == null) {
+      return null;
+    }
+    return data.compactTrajectories.computeIfAbsent(
+        name, key -> path.getIdealTrajectory(m_config)
+            .map(trajectory -> CompactTrajectory.fromPathPlanner(trajectory, CompactTrajectory.DEFAULT_SAMPLE_PERIOD))
+            .orElse(null));
+  }
+
+  /**
+   * @return true if the red alliance, false if blue. Defaults to false until the alliance is known.
+   */
+  public boolean isRedAlliance() {
+    return m_isRed;
+  }
+
+  /**
+   * Get a path already flipped for the current alliance.
+   *
+   * @param name Path name.
+   * @return The path, or null if there is no such path.
+   */
+  public PathPlannerPath getPath(String name) {
+    return m_current.paths.get(name);
+  }
+
+  /**
+   * Get a path as flipped for either alliance.
+   *
+   * @param name Path name.
+   * @param red  Whether to get the red alliance version.
+   * @return The path, or null if there is no such path.
+   */
+  public PathPlannerPath getPath(String name, boolean red) {
+    return (red ? m_red : m_blue).paths.get(name);
+  }
+
+  /**
+   * @return Names of every path that loaded.
+   */
+  public Set<String> getPathNames() {
+    return Collections.unmodifiableSet(m_blue.paths.keySet());
+  }
+
+  /**
+   * Get the ideal trajectory of a path for the current alliance, resampled into a {@link CompactTrajectory}. Generated
+   * now if the alliance wasn't known in time. Main thread only.
+   *
+   * @param name Path name.
+   * @return The trajectory, or null if the path has no ideal trajectory.
+   */
+  public CompactTrajectory getCompactTrajectory(String name) {
+    return getCompactTrajectory(m_current, name);
+  }
+
+  /**
+   * Find the current alliance's target closest to a position.
+   *
+   * @param pose  Pose to search from, usually the current robot pose.
+   * @param types Only consider targets of these types, or every type if none are given.
+   * @return The closest target, or empty if there are none.
+   */
+  public Optional<FieldTargets.Target> getNearestTarget(Pose2d pose, FieldTargets.Type... types) {
+    return FieldTargets.getInstance().getNearest(pose, m_current.alliance, types);
+  }
+}
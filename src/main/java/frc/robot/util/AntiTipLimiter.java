@@ -0,0 +1,173 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.AntiTipConstants;
+import swervelib.math.Matter;
+
+/**
+ * Keeps the robot's acceleration below what would tip it, and drives under it if it starts to tip anyway.
+ *
+ * <p>Accelerating by {@code a} moves the point the robot's weight acts through, the zero moment point, by
+ * {@code -a * h / g} from the center of mass, where {@code h} is the height of the center of mass. The robot tips once
+ * that point leaves the rectangle under the wheels. Each loop the change from the last command is scaled so the zero
+ * moment point stays within {@link AntiTipConstants#SAFETY_FACTOR} of the way to the nearest edge. The center of mass
+ * height comes from {@link frc.robot.Constants.SwerveConstants#CHASSIS}, raised while the arm is up or the climber is
+ * deployed.
+ *
+ * <p>If the IMU still reads more pitch or roll than {@link AntiTipConstants#TILT_THRESHOLD}, a velocity toward the low
+ * side is added, which puts the wheels back under the center of mass.
+ */
+public class AntiTipLimiter {
+  private static final double GRAVITY = 9.81; // m/s^2
+
+  private final double m_comX;
+  private final double m_comY;
+  private final double m_chassisComHeight;
+  private final double m_minX;
+  private final double m_maxX;
+  private final double m_minY;
+  private final double m_maxY;
+
+  private boolean m_armRaised;
+  private boolean m_climberDeployed;
+
+  private double m_lastVx;
+  private double m_lastVy;
+  private double m_lastTime = Double.NaN;
+  private double m_scale = 1.0;
+
+  /**
+   * Create a limiter.
+   *
+   * @param moduleLocations Module locations relative to the robot center. The wheels are assumed to be at the corners
+   *                        of their bounding rectangle.
+   * @param chassis         Chassis center of mass, relative to the robot center on the floor.
+   */
+  public AntiTipLimiter(Translation2d[] moduleLocations, Matter chassis) {
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (Translation2d location : moduleLocations) {
+      minX = Math.min(minX, location.getX());
+      maxX = Math.max(maxX, location.getX());
+      minY = Math.min(minY, location.getY());
+      maxY = Math.max(maxY, location.getY());
+    }
+    m_minX = minX;
+    m_maxX = maxX;
+    m_minY = minY;
+    m_maxY = maxY;
+    m_comX = chassis.position.getX();
+    m_comY = chassis.position.getY();
+    m_chassisComHeight = chassis.position.getZ();
+  }
+
+  /**
+   * Tell the limiter how the mechanisms are configured. Call from whichever thread drives the modules.
+   *
+   * @param armRaised       Whether the arm is up.
+   * @param climberDeployed Whether the climber is deployed.
+   */
+  public void setMechanismState(boolean armRaised, boolean climberDeployed) {
+    m_armRaised = armRaised;
+    m_climberDeployed = climberDeployed;
+  }
+
+  /**
+   * @return Height of the center of mass above the floor for the current mechanism configuration, m.
+   */
+  public double getComHeight() {
+    double height = m_chassisComHeight;
+    if (m_armRaised) {
+      height += AntiTipConstants.ARM_RAISED_COM_RAISE;
+    }
+    if (m_climberDeployed) {
+      height += AntiTipConstants.CLIMBER_DEPLOYED_COM_RAISE;
+    }
+    return height;
+  }
+
+  /**
+   * Limit a robot relative command so it doesn't accelerate hard enough to tip, and correct any tilt already present.
+   *
+   * @param desired Requested robot relative speeds.
+   * @param pitch   IMU pitch, positive nose down.
+   * @param roll    IMU roll, positive left side up.
+   * @return Robot relative speeds to drive at.
+   */
+  public ChassisSpeeds calculate(ChassisSpeeds desired, Rotation2d pitch, Rotation2d roll) {
+    double now = Timer.getFPGATimestamp();
+    double dt = now - m_lastTime;
+    m_lastTime = now;
+    if (Double.isNaN(dt) || dt <= 0.0 || dt > AntiTipConstants.RESET_TIMEOUT) {
+      // No recent command to slew from, so trust the request and just remember it.
+      m_lastVx = desired.vxMetersPerSecond;
+      m_lastVy = desired.vyMetersPerSecond;
+      m_scale = 1.0;
+      return desired;
+    }
+
+    double deltaVx = desired.vxMetersPerSecond - m_lastVx;
+    double deltaVy = desired.vyMetersPerSecond - m_lastVy;
+    double deltaV = Math.hypot(deltaVx, deltaVy);
+    double scale = 1.0;
+    if (deltaV > 1e-9) {
+      double maxAcceleration = getMaxAcceleration(deltaVx / deltaV, deltaVy / deltaV);
+      scale = Math.min(1.0, maxAcceleration * dt / deltaV);
+    }
+    m_scale = scale;
+    m_lastVx += deltaVx * scale;
+    m_lastVy += deltaVy * scale;
+
+    // Drive toward the low side when tilting past the threshold.
+    double correctionVx = AntiTipConstants.TILT_CORRECTION_GAIN
+                          * MathUtil.applyDeadband(pitch.getRadians(), AntiTipConstants.TILT_THRESHOLD, Math.PI);
+    double correctionVy = -AntiTipConstants.TILT_CORRECTION_GAIN
+                          * MathUtil.applyDeadband(roll.getRadians(), AntiTipConstants.TILT_THRESHOLD, Math.PI);
+    correctionVx = MathUtil.clamp(correctionVx, -AntiTipConstants.MAX_CORRECTION_SPEED,
+                                  AntiTipConstants.MAX_CORRECTION_SPEED);
+    correctionVy = MathUtil.clamp(correctionVy, -AntiTipConstants.MAX_CORRECTION_SPEED,
+                                  AntiTipConstants.MAX_CORRECTION_SPEED);
+    boolean correcting = correctionVx != 0.0 || correctionVy != 0.0;
+
+    Dashboard.putNumber("AntiTip/Scale", scale, Dashboard.Priority.LOW);
+    Dashboard.putBoolean("AntiTip/Correcting", correcting, Dashboard.Priority.HIGH);
+    return new ChassisSpeeds(m_lastVx + correctionVx, m_lastVy + correctionVy, desired.omegaRadiansPerSecond);
+  }
+
+  /**
+   * @return Fraction of the requested change the last {@link #calculate} allowed, 1 if it wasn't limited.
+   */
+  public double getScale() {
+    return m_scale;
+  }
+
+  /**
+   * Largest acceleration along a direction that keeps the zero moment point inside the safe part of the wheelbase.
+   *
+   * @param ux Unit direction x, robot relative.
+   * @param uy Unit direction y, robot relative.
+   * @return Acceleration, m/s^2.
+   */
+  private double getMaxAcceleration(double ux, double uy) {
+    // The zero moment point moves opposite the acceleration, so find how far the center of mass is from the edge
+    // behind it.
+    double distance = Double.POSITIVE_INFINITY;
+    if (ux > 0.0) {
+      distance = Math.min(distance, (m_comX - m_minX) / ux);
+    } else if (ux < 0.0) {
+      distance = Math.min(distance, (m_maxX - m_comX) / -ux);
+    }
+    if (uy > 0.0) {
+      distance = Math.min(distance, (m_comY - m_minY) / uy);
+    } else if (uy < 0.0) {
+      distance = Math.min(distance, (m_maxY - m_comY) / -uy);
+    }
+    return AntiTipConstants.SAFETY_FACTOR * GRAVITY * Math.max(0.0, distance) / getComHeight();
+  }
+}
@@ -0,0 +1,231 @@
+package frc.robot.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.util.Units;
+import java.io.File;
+import java.io.IOException;
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Swerve kinematics for many chassis states at once, without allocating a {@link
+ * edu.wpi.first.math.kinematics.ChassisSpeeds} or {@link edu.wpi.first.math.kinematics.SwerveModuleState} per call.
+ *
+ * <p>All buffers are structure-of-arrays. Chassis buffers hold one sample per index. Module buffers are module-major,
+ * so module {@code m} of sample {@code i} lives at {@code m * count + i}. Keeping each module contiguous lets the JIT
+ * turn the inner loops into SIMD instructions on its own, which is why there is no hand written vector code here.
+ */
+public class BatchSwerveKinematics {
+  private final int moduleCount;
+  private final double[] moduleX;
+  private final double[] moduleY;
+  // Rows of the pseudo-inverse of the inverse kinematics matrix, used for forward kinematics.
+  private final double[] forwardVx;
+  private final double[] forwardVy;
+  private final double[] forwardOmega;
+
+  /**
+   * Create batch kinematics for the given module locations.
+   *
+   * @param moduleLocations Module locations relative to the robot center, in the same order as the module buffers.
+   */
+  public BatchSwerveKinematics(Translation2d... moduleLocations) {
+    moduleCount = moduleLocations.length;
+    moduleX = new double[moduleCount];
+    moduleY = new double[moduleCount];
+
+    // Same 2n x 3 matrix as SwerveDriveKinematics, rows interleaved as (vx, vy) per module.
+    SimpleMatrix inverseKinematics = new SimpleMatrix(moduleCount * 2, 3);
+    for (int m = 0; m < moduleCount; m++) {
+      moduleX[m] = moduleLocations[m].getX();
+      moduleY[m] = moduleLocations[m].getY();
+      inverseKinematics.setRow(m * 2, 0, 1, 0, -moduleY[m]);
+      inverseKinematics.setRow(m * 2 + 1, 0, 0, 1, moduleX[m]);
+    }
+    SimpleMatrix forwardKinematics = inverseKinematics.pseudoInverse();
+
+    forwardVx = new double[moduleCount * 2];
+    forwardVy = new double[moduleCount * 2];
+    forwardOmega = new double[moduleCount * 2];
+    for (int j = 0; j < moduleCount * 2; j++) {
+      forwardVx[j] = forwardKinematics.get(0, j);
+      forwardVy[j] = forwardKinematics.get(1, j);
+      forwardOmega[j] = forwardKinematics.get(2, j);
+    }
+  }
+
+  /**
+   * Load the module locations from a YAGSL config directory, in the order listed by {@code swervedrive.json}.
+   *
+   * @param directory Directory of swerve drive config files, e.g. {@code deploy/swerve/neo}.
+   * @return Batch kinematics for the configured modules.
+   * @throws IOException If the config files can't be read.
+   */
+  public static BatchSwerveKinematics fromConfigDirectory(File directory) throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    JsonNode modules = mapper.readTree(new File(directory, "swervedrive.json")).get("modules");
+    Translation2d[] locations = new Translation2d[modules.size()];
+    for (int m = 0; m < modules.size(); m++) {
+      JsonNode location = mapper.readTree(new File(directory, "modules/" + modules.get(m).asText())).get("location");
+      locations[m] = new Translation2d(Units.inchesToMeters(location.get("front").asDouble()),
+                                       Units.inchesToMeters(location.get("left").asDouble()));
+    }
+    return new BatchSwerveKinematics(locations);
+  }
+
+  /**
+   * @return The number of modules.
+   */
+  public int getModuleCount() {
+    return moduleCount;
+  }
+
+  /**
+   * @return The module locations relative to the robot center.
+   */
+  public Translation2d[] getModuleLocations() {
+    Translation2d[] locations = new Translation2d[moduleCount];
+    for (int m = 0; m < moduleCount; m++) {
+      locations[m] = new Translation2d(moduleX[m], moduleY[m]);
+    }
+    return locations;
+  }
+
+  /**
+   * Inverse kinematics to module velocity vectors. This is the linear part of
+   * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#toSwerveModuleStates}.
+   *
+   * @param vx    Robot relative x velocities, m/s.
+   * @param vy    Robot relative y velocities, m/s.
+   * @param omega Angular velocities, rad/s.
+   * @param count Number of samples to convert.
+   * @param outVx Module x velocities, module-major, at least {@code moduleCount * count} long.
+   * @param outVy Module y velocities, module-major, at least {@code moduleCount * count} long.
+   */
+  public void toModuleVelocities(double[] vx, double[] vy, double[] omega, int count,
+                                 double[] outVx, double[] outVy) {
+    for (int m = 0; m < moduleCount; m++) {
+      double x = moduleX[m];
+      double y = moduleY[m];
+      int offset = m * count;
+      for (int i = 0; i < count; i++) {
+        outVx[offset + i] = vx[i] - omega[i] * y;
+        outVy[offset + i] = vy[i] + omega[i] * x;
+      }
+    }
+  }
+
+  /**
+   * Inverse kinematics to module speeds and angles, equivalent to
+   * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#toSwerveModuleStates}. Modules that are not moving
+   * keep the angle already in {@code outAngle}, like WPILib keeps the previous module heading.
+   *
+   * @param vx       Robot relative x velocities, m/s.
+   * @param vy       Robot relative y velocities, m/s.
+   * @param omega    Angular velocities, rad/s.
+   * @param count    Number of samples to convert.
+   * @param outSpeed Module speeds in m/s, module-major.
+   * @param outAngle Module angles in radians, module-major.
+   */
+  public void toModuleStates(double[] vx, double[] vy, double[] omega, int count,
+                             double[] outSpeed, double[] outAngle) {
+    for (int m = 0; m < moduleCount; m++) {
+      double x = moduleX[m];
+      double y = moduleY[m];
+      int offset = m * count;
+      for (int i = 0; i < count; i++) {
+        double moduleVx = vx[i] - omega[i] * y;
+        double moduleVy = vy[i] + omega[i] * x;
+        double speed = Math.sqrt(moduleVx * moduleVx + moduleVy * moduleVy);
+        outSpeed[offset + i] = speed;
+        if (speed > 1e-6) {
+          outAngle[offset + i] = Math.atan2(moduleVy, moduleVx);
+        }
+      }
+    }
+  }
+
+  /**
+   * Scale module speeds down so none exceed the maximum, equivalent to
+   * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#desaturateWheelSpeeds} applied to every sample.
+   *
+   * @param speed    Module speeds in m/s, module-major. Modified in place.
+   * @param count    Number of samples.
+   * @param maxSpeed Maximum module speed, m/s.
+   */
+  public void desaturate(double[] speed, int count, double maxSpeed) {
+    for (int i = 0; i < count; i++) {
+      double max = 0.0;
+      for (int m = 0; m < moduleCount; m++) {
+        max = Math.max(max, Math.abs(speed[m * count + i]));
+      }
+      if (max > maxSpeed) {
+        double scale = maxSpeed / max;
+        for (int m = 0; m < moduleCount; m++) {
+          speed[m * count + i] *= scale;
+        }
+      }
+    }
+  }
+
+  /**
+   * Forward kinematics from module velocity vectors, the least squares fit used by
+   * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#toChassisSpeeds}.
+   *
+   * @param moduleVx Module x velocities, module-major.
+   * @param moduleVy Module y velocities, module-major.
+   * @param count    Number of samples to convert.
+   * @param outVx    Robot relative x velocities, m/s.
+   * @param outVy    Robot relative y velocities, m/s.
+   * @param outOmega Angular velocities, rad/s.
+   */
+  public void toChassisSpeeds(double[] moduleVx, double[] moduleVy, int count,
+                              double[] outVx, double[] outVy, double[] outOmega) {
+    for (int i = 0; i < count; i++) {
+      outVx[i] = 0.0;
+      outVy[i] = 0.0;
+      outOmega[i] = 0.0;
+    }
+    for (int m = 0; m < moduleCount; m++) {
+      double kxx = forwardVx[m * 2];
+      double kxy = forwardVx[m * 2 + 1];
+      double kyx = forwardVy[m * 2];
+      double kyy = forwardVy[m * 2 + 1];
+      double kwx = forwardOmega[m * 2];
+      double kwy = forwardOmega[m * 2 + 1];
+      int offset = m * count;
+      for (int i = 0; i < count; i++) {
+        double mvx = moduleVx[offset + i];
+        double mvy = moduleVy[offset + i];
+        outVx[i] += kxx * mvx + kxy * mvy;
+        outVy[i] += kyx * mvx + kyy * mvy;
+        outOmega[i] += kwx * mvx + kwy * mvy;
+      }
+    }
+  }
+
+  /**
+   * Forward kinematics from module speeds and angles, equivalent to
+   * {@link edu.wpi.first.math.kinematics.SwerveDriveKinematics#toChassisSpeeds}.
+   *
+   * @param speed    Module speeds in m/s, module-major.
+   * @param angle    Module angles in radians, module-major.
+   * @param count    Number of samples to convert.
+   * @param scratchX Scratch buffer, at least {@code moduleCount * count} long.
+   * @param scratchY Scratch buffer, at least {@code moduleCount * count} long.
+   * @param outVx    Robot relative x velocities, m/s.
+   * @param outVy    Robot relative y velocities, m/s.
+   * @param outOmega Angular velocities, rad/s.
+   */
+  public void toChassisSpeeds(double[] speed, double[] angle, int count,
+                              double[] scratchX, double[] scratchY,
+                              double[] outVx, double[] outVy, double[] outOmega) {
+    int total = moduleCount * count;
+    for (int j = 0; j < total; j++) {
+      scratchX[j] = speed[j] * Math.cos(angle[j]);
+      scratchY[j] = speed[j] * Math.sin(angle[j]);
+    }
+    toChassisSpeeds(scratchX, scratchY, count, outVx, outVy, outOmega);
+  }
+}
@@ -0,0 +1,272 @@
+package frc.robot.util;
+
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A trajectory resampled at a fixed time step into parallel {@code double[]} arrays. Sampling is an index computation
+ * and one interpolation into a caller owned {@link Sample}, with no search and no allocation, and a trajectory takes
+ * a few tens of kilobytes instead of a list of {@link Trajectory.State} objects each holding a {@link Pose2d}.
+ *
+ * <p>Sample {@code i} is at {@code i} periods, except the last, which is at the end of the trajectory and so can be
+ * less than a period after the one before it. Angles are stored unwrapped so interpolating between samples never
+ * goes the long way around.
+ */
+public class CompactTrajectory {
+  /** Default resampling period, s. Twice the robot loop rate so interpolation error stays well under a centimeter. */
+  public static final double DEFAULT_SAMPLE_PERIOD = 0.01;
+
+  private final double samplePeriod;
+  private final double totalTime;
+  private final int count;
+  private final double[] x;
+  private final double[] y;
+  private final double[] heading;
+  private final double[] velocity;
+  private final double[] acceleration;
+  private final double[] curvature;
+  private final double[] rotation;
+  private final double[] angularVelocity;
+  private long contentHash;
+
+  /**
+   * One sampled point. Create one per user and reuse it.
+   */
+  public static final class Sample {
+    /** Time since the start of the trajectory, s. */
+    public double time;
+    /** Field position, m. */
+    public double x;
+    public double y;
+    /** Direction of travel, rad. */
+    public double heading;
+    /** Speed along the path, m/s, and its rate of change, m/s^2. */
+    public double velocity;
+    public double acceleration;
+    /** Path curvature, rad/m. */
+    public double curvature;
+    /** Robot heading, rad, and its rate of change, rad/s. */
+    public double rotation;
+    public double angularVelocity;
+
+    /**
+     * @return Field relative x velocity, m/s.
+     */
+    public double getFieldVx() {
+      return velocity * Math.cos(heading);
+    }
+
+    /**
+     * @return Field relative y velocity, m/s.
+     */
+    public double getFieldVy() {
+      return velocity * Math.sin(heading);
+    }
+  }
+
+  /**
+   * Resample a trajectory given as arrays of time stamped states.
+   *
+   * @param samplePeriod Output sample period, s.
+   * @param times        Source state times, increasing, s.
+   */
+  private CompactTrajectory(double samplePeriod, double[] times, double[] sourceX, double[] sourceY,
+                            double[] sourceHeading, double[] sourceVelocity, double[] sourceAcceleration,
+                            double[] sourceCurvature, double[] sourceRotation, double[] sourceAngularVelocity) {
+    this.samplePeriod = samplePeriod;
+    this.totalTime = times.length > 0 ? times[times.length - 1] : 0.0;
+    this.count = (int) Math.ceil(totalTime / samplePeriod) + 1;
+    x = new double[count];
+    y = new double[count];
+    heading = new double[count];
+    velocity = new double[count];
+    acceleration = new double[count];
+    curvature = new double[count];
+    rotation = new double[count];
+    angularVelocity = new double[count];
+    if (times.length == 0) {
+      return;
+    }
+
+    unwrap(sourceHeading);
+    unwrap(sourceRotation);
+    int source = 0;
+    for (int i = 0; i < count; i++) {
+      double t = Math.min(i * samplePeriod, totalTime);
+      // Output times only increase, so the source index only ever walks forward.
+      while (source < times.length - 2 && times[source + 1] < t) {
+        source++;
+      }
+      int next = Math.min(source + 1, times.length - 1);
+      double span = times[next] - times[source];
+      double fraction = span > 0.0 ? MathUtil.clamp((t - times[source]) / span, 0.0, 1.0) : 0.0;
+      x[i] = lerp(sourceX, source, next, fraction);
+      y[i] = lerp(sourceY, source, next, fraction);
+      heading[i] = lerp(sourceHeading, source, next, fraction);
+      velocity[i] = lerp(sourceVelocity, source, next, fraction);
+      acceleration[i] = lerp(sourceAcceleration, source, next, fraction);
+      curvature[i] = lerp(sourceCurvature, source, next, fraction);
+      rotation[i] = lerp(sourceRotation, source, next, fraction);
+      angularVelocity[i] = lerp(sourceAngularVelocity, source, next, fraction);
+    }
+  }
+
+  /**
+   * Compact a PathPlanner trajectory, such as a path's ideal trajectory.
+   *
+   * @param trajectory   The trajectory.
+   * @param samplePeriod Output sample period, s.
+   * @return The trajectory.
+   */
+  public static CompactTrajectory fromPathPlanner(PathPlannerTrajectory trajectory, double samplePeriod) {
+    List<PathPlannerTrajectoryState> states = trajectory.getStates();
+    int n = states.size();
+    double[] times = new double[n];
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    double[] headings = new double[n];
+    double[] velocities = new double[n];
+    double[] accelerations = new double[n];
+    double[] curvatures = new double[n];
+    double[] rotations = new double[n];
+    double[] angularVelocities = new double[n];
+    for (int i = 0; i < n; i++) {
+      PathPlannerTrajectoryState state = states.get(i);
+      times[i] = state.timeSeconds;
+      xs[i] = state.pose.getX();
+      ys[i] = state.pose.getY();
+      headings[i] = state.heading.getRadians();
+      velocities[i] = state.linearVelocity;
+      rotations[i] = state.pose.getRotation().getRadians();
+      angularVelocities[i] = state.fieldSpeeds.omegaRadiansPerSecond;
+    }
+    // PathPlanner doesn't store acceleration or curvature, so difference them out of the neighbouring states.
+    for (int i = 0; i < n; i++) {
+      int previous = Math.max(0, i - 1);
+      int next = Math.min(n - 1, i + 1);
+      double dt = times[next] - times[previous];
+      double distance = Math.hypot(xs[next] - xs[previous], ys[next] - ys[previous]);
+      accelerations[i] = dt > 0.0 ? (velocities[next] - velocities[previous]) / dt : 0.0;
+      curvatures[i] = distance > 1e-6
+                      ? MathUtil.angleModulus(headings[next] - headings[previous]) / distance
+                      : 0.0;
+    }
+    return new CompactTrajectory(samplePeriod, times, xs, ys, headings, velocities, accelerations, curvatures,
+                                 rotations, angularVelocities);
+  }
+
+  /**
+   * @return Time to drive the whole trajectory, s.
+   */
+  public double getTotalTime() {
+    return totalTime;
+  }
+
+  /**
+   * @return Number of stored samples.
+   */
+  public int getSampleCount() {
+    return count;
+  }
+
+  /**
+   * @return A hash of the sampled positions, so the same trajectory can be recognized without comparing arrays.
+   */
+  public long getContentHash() {
+    if (contentHash == 0) {
+      long hash = Double.hashCode(samplePeriod);
+      for (int i = 0; i < count; i++) {
+        hash = 31 * hash + Double.hashCode(x[i]);
+        hash = 31 * hash + Double.hashCode(y[i]);
+        hash = 31 * hash + Double.hashCode(rotation[i]);
+      }
+      contentHash = hash == 0 ? 1 : hash;
+    }
+    return contentHash;
+  }
+
+  /**
+   * @param time Time since the start of the trajectory, s.
+   * @return Index of the stored sample at or just before that time.
+   */
+  public int getIndex(double time) {
+    return Math.min((int) (MathUtil.clamp(time, 0.0, totalTime) / samplePeriod), count - 1);
+  }
+
+  /**
+   * Sample the trajectory. Times outside the trajectory are clamped to its ends.
+   *
+   * @param time Time since the start of the trajectory, s.
+   * @param out  Sample to write into.
+   * @return {@code out}, for chaining.
+   */
+  public Sample sample(double time, Sample out) {
+    double t = MathUtil.clamp(time, 0.0, totalTime);
+    int i = Math.min((int) (t / samplePeriod), count - 1);
+    int next = Math.min(i + 1, count - 1);
+    // The last span ends at the total time rather than a whole period later.
+    double start = i * samplePeriod;
+    double span = Math.min(next * samplePeriod, totalTime) - start;
+    double fraction = span > 0.0 ? MathUtil.clamp((t - start) / span, 0.0, 1.0) : 0.0;
+
+    out.time = t;
+    out.x = lerp(x, i, next, fraction);
+    out.y = lerp(y, i, next, fraction);
+    out.heading = MathUtil.angleModulus(lerp(heading, i, next, fraction));
+    out.velocity = lerp(velocity, i, next, fraction);
+    out.acceleration = lerp(acceleration, i, next, fraction);
+    out.curvature = lerp(curvature, i, next, fraction);
+    out.rotation = MathUtil.angleModulus(lerp(rotation, i, next, fraction));
+    out.angularVelocity = lerp(angularVelocity, i, next, fraction);
+    return out;
+  }
+
+  /**
+   * @return The robot pose at the end of the trajectory.
+   */
+  public Pose2d getFinalPose() {
+    return new Pose2d(x[count - 1], y[count - 1], new Rotation2d(rotation[count - 1]));
+  }
+
+  /**
+   * Expand back into a WPILib trajectory, for APIs that need one like {@link swervelib.SwerveDrive#postTrajectory}.
+   * This allocates every state, so don't call it every loop.
+   *
+   * @param stride Keep every {@code stride}th sample. Plotting doesn't need every 10 ms.
+   * @return The trajectory, with poses facing along the path.
+   */
+  public Trajectory toTrajectory(int stride) {
+    List<Trajectory.State> states = new ArrayList<>(count / Math.max(1, stride) + 2);
+    for (int i = 0; i < count; i += Math.max(1, stride)) {
+      states.add(toState(i));
+    }
+    if ((count - 1) % Math.max(1, stride) != 0) {
+      states.add(toState(count - 1));
+    }
+    return new Trajectory(states);
+  }
+
+  private Trajectory.State toState(int i) {
+    return new Trajectory.State(Math.min(i * samplePeriod, totalTime), velocity[i], acceleration[i],
+                                new Pose2d(x[i], y[i], new Rotation2d(heading[i])), curvature[i]);
+  }
+
+  private static double lerp(double[] values, int from, int to, double fraction) {
+    return values[from] + (values[to] - values[from]) * fraction;
+  }
+
+  /**
+   * Remove the jumps at +-pi so consecutive angles differ by less than pi.
+   */
+  private static void unwrap(double[] angles) {
+    for (int i = 1; i < angles.length; i++) {
+      angles[i] = angles[i - 1] + MathUtil.angleModulus(angles[i] - angles[i - 1]);
+    }
+  }
+}
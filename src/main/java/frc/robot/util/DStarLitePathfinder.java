@@ -0,0 +1,620 @@
+package frc.robot.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.Waypoint;
+import com.pathplanner.lib.pathfinding.Pathfinder;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotController;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental replacement for PathPlanner's {@code LocalADStar}, using D* Lite on the {@code navgrid.json} grid.
+ *
+ * <p>The search runs backwards from the goal, so when the robot moves or dynamic obstacles change only the cells
+ * whose cost-to-goal actually changed are expanded again. The goal changing is the only thing that needs a search
+ * from scratch. Planning happens on its own thread, like {@code LocalADStar}, and the finished path is picked up by
+ * {@link com.pathplanner.lib.commands.PathfindingCommand}.
+ *
+ * <p>Install with {@code Pathfinding.setPathfinder(new DStarLitePathfinder())} before any pathfinding command is
+ * created.
+ */
+public class DStarLitePathfinder implements Pathfinder {
+  private static final double SQRT2 = Math.sqrt(2.0);
+  private static final double INF = Double.POSITIVE_INFINITY;
+  private static final double HEURISTIC_SCALE = 1.0 - 1e-9;
+
+  private double nodeSize = 0.2;
+  private double fieldLength = 16.54;
+  private double fieldWidth = 8.07;
+  private int rows;
+  private int cols;
+  private boolean[] staticObstacles;
+
+  // Planner state, only touched by the planning thread.
+  private final boolean[] dynamicObstacles;
+  private final double[] g;
+  private final double[] rhs;
+  private final IndexedHeap open;
+  private int startCell = -1;
+  private int goalCell = -1;
+  private int lastStartCell = -1;
+  private double km;
+
+  // Requests from the main thread, guarded by this.
+  private Translation2d requestedStart = Translation2d.kZero;
+  private Translation2d requestedGoal = Translation2d.kZero;
+  private List<Pair<Translation2d, Translation2d>> requestedObstacles = List.of();
+  private boolean startChanged = false;
+  private boolean goalChanged = false;
+  private boolean obstaclesChanged = false;
+
+  // Latest result, guarded by this.
+  private List<Translation2d> currentPoints = List.of();
+  private boolean newPathAvailable = false;
+
+  /**
+   * Load the grid from the deploy directory and start the planning thread.
+   */
+  public DStarLitePathfinder() {
+    try {
+      JsonNode json = new ObjectMapper().readTree(new File(Filesystem.getDeployDirectory(),
+                                                           "pathplanner/navgrid.json"));
+      nodeSize = json.get("nodeSizeMeters").asDouble();
+      fieldLength = json.get("field_size").get("x").asDouble();
+      fieldWidth = json.get("field_size").get("y").asDouble();
+      JsonNode grid = json.get("grid");
+      rows = grid.size();
+      cols = grid.get(0).size();
+      staticObstacles = new boolean[rows * cols];
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < cols; col++) {
+          staticObstacles[row * cols + col] = grid.get(row).get(col).asBoolean();
+        }
+      }
+    } catch (Exception e) {
+      DriverStation.reportError("D* Lite could not load navgrid.json, planning on an empty field: " + e, false);
+      rows = (int) Math.ceil(fieldWidth / nodeSize);
+      cols = (int) Math.ceil(fieldLength / nodeSize);
+      staticObstacles = new boolean[rows * cols];
+    }
+
+    dynamicObstacles = new boolean[rows * cols];
+    g = new double[rows * cols];
+    rhs = new double[rows * cols];
+    open = new IndexedHeap(rows * cols);
+
+    Thread planningThread = new Thread(this::runPlanningThread, "D* Lite Planning Thread");
+    planningThread.setDaemon(true);
+    planningThread.start();
+  }
+
+  /**
+   * Plan on a given grid, without a planning thread. Call {@link #plan} directly.
+   *
+   * @param grid     Static obstacles, indexed by row (y) then column (x).
+   * @param nodeSize Cell size, m.
+   */
+  DStarLitePathfinder(boolean[][] grid, double nodeSize) {
+    this.nodeSize = nodeSize;
+    rows = grid.length;
+    cols = grid[0].length;
+    fieldLength = cols * nodeSize;
+    fieldWidth = rows * nodeSize;
+    staticObstacles = new boolean[rows * cols];
+    for (int row = 0; row < rows; row++) {
+      System.arraycopy(grid[row], 0, staticObstacles, row * cols, cols);
+    }
+    dynamicObstacles = new boolean[rows * cols];
+    g = new double[rows * cols];
+    rhs = new double[rows * cols];
+    open = new IndexedHeap(rows * cols);
+  }
+
+  @Override
+  public synchronized boolean isNewPathAvailable() {
+    return newPathAvailable;
+  }
+
+  @Override
+  public PathPlannerPath getCurrentPath(PathConstraints constraints, GoalEndState goalEndState) {
+    List<Translation2d> points;
+    synchronized (this) {
+      points = currentPoints;
+      newPathAvailable = false;
+    }
+    if (points.size() < 2) {
+      return null;
+    }
+
+    // Head along the path at every point, using the direction from the previous to the next point to keep it smooth.
+    List<Pose2d> poses = new ArrayList<>(points.size());
+    for (int i = 0; i < points.size(); i++) {
+      Translation2d from = points.get(Math.max(0, i - 1));
+      Translation2d to = points.get(Math.min(points.size() - 1, i + 1));
+      poses.add(new Pose2d(points.get(i), to.minus(from).getAngle()));
+    }
+    List<Waypoint> waypoints = PathPlannerPath.waypointsFromPoses(poses);
+    return new PathPlannerPath(waypoints, constraints, null, goalEndState);
+  }
+
+  @Override
+  public synchronized void setStartPosition(Translation2d startPosition) {
+    requestedStart = startPosition;
+    startChanged = true;
+    notifyAll();
+  }
+
+  @Override
+  public synchronized void setGoalPosition(Translation2d goalPosition) {
+    requestedGoal = goalPosition;
+    goalChanged = true;
+    notifyAll();
+  }
+
+  @Override
+  public synchronized void setDynamicObstacles(List<Pair<Translation2d, Translation2d>> obs,
+                                               Translation2d currentRobotPos) {
+    requestedObstacles = List.copyOf(obs);
+    requestedStart = currentRobotPos;
+    obstaclesChanged = true;
+    startChanged = true;
+    notifyAll();
+  }
+
+  private void runPlanningThread() {
+    while (!Thread.currentThread().isInterrupted()) {
+      Translation2d start;
+      Translation2d goal;
+      List<Pair<Translation2d, Translation2d>> obstacles = null;
+      boolean replanFromScratch;
+      synchronized (this) {
+        while (!startChanged && !goalChanged && !obstaclesChanged) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        start = requestedStart;
+        goal = requestedGoal;
+        if (obstaclesChanged) {
+          obstacles = requestedObstacles;
+        }
+        replanFromScratch = goalChanged;
+        startChanged = false;
+        goalChanged = false;
+        obstaclesChanged = false;
+      }
+
+      long startMicros = RobotController.getFPGATime();
+      int expandedBefore = open.getPopCount();
+      List<Translation2d> points = plan(start, goal, obstacles, replanFromScratch);
+      synchronized (this) {
+        currentPoints = points;
+        newPathAvailable = true;
+      }
+
+      Dashboard.putNumber("Pathfinding/ReplanMs", (RobotController.getFPGATime() - startMicros) / 1000.0,
+                          Dashboard.Priority.LOW);
+      Dashboard.putNumber("Pathfinding/Expanded", open.getPopCount() - expandedBefore, Dashboard.Priority.LOW);
+    }
+  }
+
+  /**
+   * Plan a path, repairing the last search unless the goal moved. Only call from the planning thread.
+   *
+   * @param start             Robot position.
+   * @param goal              Goal position.
+   * @param obstacles         Dynamic obstacle boxes, or null if they haven't changed.
+   * @param replanFromScratch Throw the last search away even if the goal cell is the same.
+   * @return Simplified path from {@code start} to {@code goal}, or an empty list if the goal can't be reached.
+   */
+  List<Translation2d> plan(Translation2d start, Translation2d goal, List<Pair<Translation2d, Translation2d>> obstacles,
+                           boolean replanFromScratch) {
+    int[] changedCells = obstacles != null ? rasterizeObstacles(obstacles) : new int[0];
+    int newGoalCell = findClosestFreeCell(getCell(goal));
+    int newStartCell = findClosestFreeCell(getCell(start));
+    if (replanFromScratch || lastStartCell < 0 || newGoalCell != goalCell) {
+      goalCell = newGoalCell;
+      initialize(newStartCell);
+    } else {
+      if (newStartCell != startCell) {
+        // The robot moved, so every key in the queue is off by the heuristic distance it travelled.
+        km += heuristic(lastStartCell, newStartCell);
+        lastStartCell = newStartCell;
+        startCell = newStartCell;
+      }
+      for (int cell : changedCells) {
+        // A cell's edges are all to its neighbours, so only it and they can have a stale rhs.
+        updateVertex(cell);
+        updateNeighbours(cell);
+      }
+    }
+    computeShortestPath();
+    return extractPath(start, goal);
+  }
+
+  /**
+   * @return Length of the grid path the last {@link #plan} found, between the start and goal cells, m. Infinite if
+   *     there is none.
+   */
+  double getPathLength() {
+    return g[startCell] * nodeSize;
+  }
+
+  /**
+   * Reset the search for a new goal.
+   */
+  private void initialize(int newStartCell) {
+    open.clear();
+    Arrays.fill(g, INF);
+    Arrays.fill(rhs, INF);
+    km = 0.0;
+    startCell = newStartCell;
+    lastStartCell = newStartCell;
+    rhs[goalCell] = 0.0;
+    open.insert(goalCell, heuristic(startCell, goalCell), 0.0);
+  }
+
+  /**
+   * Rasterize the obstacle boxes into the dynamic obstacle grid.
+   *
+   * @return Every cell that changed.
+   */
+  private int[] rasterizeObstacles(List<Pair<Translation2d, Translation2d>> obstacles) {
+    boolean[] updated = new boolean[dynamicObstacles.length];
+    for (Pair<Translation2d, Translation2d> box : obstacles) {
+      int minCol = Math.max(0, (int) (Math.min(box.getFirst().getX(), box.getSecond().getX()) / nodeSize));
+      int maxCol = Math.min(cols - 1, (int) (Math.max(box.getFirst().getX(), box.getSecond().getX()) / nodeSize));
+      int minRow = Math.max(0, (int) (Math.min(box.getFirst().getY(), box.getSecond().getY()) / nodeSize));
+      int maxRow = Math.min(rows - 1, (int) (Math.max(box.getFirst().getY(), box.getSecond().getY()) / nodeSize));
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int col = minCol; col <= maxCol; col++) {
+          updated[row * cols + col] = true;
+        }
+      }
+    }
+
+    int[] changed = new int[updated.length];
+    int changedCount = 0;
+    for (int cell = 0; cell < updated.length; cell++) {
+      if (updated[cell] != dynamicObstacles[cell]) {
+        dynamicObstacles[cell] = updated[cell];
+        changed[changedCount++] = cell;
+      }
+    }
+    return Arrays.copyOf(changed, changedCount);
+  }
+
+  private void computeShortestPath() {
+    while (!open.isEmpty()) {
+      double startKey1 = Math.min(g[startCell], rhs[startCell]) + km;
+      double startKey2 = Math.min(g[startCell], rhs[startCell]);
+      if (!keyLess(open.topKey1(), open.topKey2(), startKey1, startKey2) && rhs[startCell] == g[startCell]) {
+        return;
+      }
+
+      double oldKey1 = open.topKey1();
+      double oldKey2 = open.topKey2();
+      int u = open.pop();
+      double newKey2 = Math.min(g[u], rhs[u]);
+      double newKey1 = newKey2 + heuristic(startCell, u) + km;
+      if (keyLess(oldKey1, oldKey2, newKey1, newKey2)) {
+        open.insert(u, newKey1, newKey2);
+      } else if (g[u] > rhs[u]) {
+        g[u] = rhs[u];
+        updateNeighbours(u);
+      } else {
+        g[u] = INF;
+        updateVertex(u);
+        updateNeighbours(u);
+      }
+    }
+  }
+
+  private void updateNeighbours(int cell) {
+    int row = cell / cols;
+    int col = cell % cols;
+    for (int dr = -1; dr <= 1; dr++) {
+      for (int dc = -1; dc <= 1; dc++) {
+        if ((dr != 0 || dc != 0) && inBounds(row + dr, col + dc)) {
+          updateVertex((row + dr) * cols + col + dc);
+        }
+      }
+    }
+  }
+
+  private void updateVertex(int cell) {
+    if (cell != goalCell) {
+      double best = INF;
+      int row = cell / cols;
+      int col = cell % cols;
+      for (int dr = -1; dr <= 1; dr++) {
+        for (int dc = -1; dc <= 1; dc++) {
+          if ((dr != 0 || dc != 0) && inBounds(row + dr, col + dc)) {
+            int neighbour = (row + dr) * cols + col + dc;
+            best = Math.min(best, cost(cell, neighbour) + g[neighbour]);
+          }
+        }
+      }
+      rhs[cell] = best;
+    }
+    open.remove(cell);
+    if (g[cell] != rhs[cell]) {
+      double key2 = Math.min(g[cell], rhs[cell]);
+      open.insert(cell, key2 + heuristic(startCell, cell) + km, key2);
+    }
+  }
+
+  /**
+   * Cost of moving between two neighbouring cells, in cells. Diagonal moves can't cut the corner of an obstacle.
+   */
+  private double cost(int from, int to) {
+    if (isBlocked(from) || isBlocked(to)) {
+      return INF;
+    }
+    int fromRow = from / cols;
+    int fromCol = from % cols;
+    int toRow = to / cols;
+    int toCol = to % cols;
+    if (fromRow != toRow && fromCol != toCol) {
+      if (isBlocked(fromRow * cols + toCol) || isBlocked(toRow * cols + fromCol)) {
+        return INF;
+      }
+      return SQRT2;
+    }
+    return 1.0;
+  }
+
+  /**
+   * Octile distance, which never overestimates on an 8-connected grid. Shrunk very slightly so rounding can never
+   * make it larger than the true step cost, which would let the search stop one cell early.
+   */
+  private double heuristic(int a, int b) {
+    int dr = Math.abs(a / cols - b / cols);
+    int dc = Math.abs(a % cols - b % cols);
+    return (SQRT2 * Math.min(dr, dc) + Math.abs(dr - dc)) * HEURISTIC_SCALE;
+  }
+
+  /**
+   * Follow the cheapest neighbours from the start to the goal, then drop every point that the segment between its
+   * neighbours can skip without touching an obstacle.
+   */
+  private List<Translation2d> extractPath(Translation2d realStart, Translation2d realGoal) {
+    if (g[startCell] == INF) {
+      return List.of();
+    }
+
+    List<Translation2d> cells = new ArrayList<>();
+    int current = startCell;
+    cells.add(realStart);
+    for (int steps = 0; current != goalCell && steps < g.length; steps++) {
+      int row = current / cols;
+      int col = current % cols;
+      int next = -1;
+      double best = INF;
+      for (int dr = -1; dr <= 1; dr++) {
+        for (int dc = -1; dc <= 1; dc++) {
+          if ((dr != 0 || dc != 0) && inBounds(row + dr, col + dc)) {
+            int neighbour = (row + dr) * cols + col + dc;
+            double total = cost(current, neighbour) + g[neighbour];
+            if (total < best) {
+              best = total;
+              next = neighbour;
+            }
+          }
+        }
+      }
+      if (next < 0) {
+        return List.of();
+      }
+      current = next;
+      if (current != goalCell) {
+        cells.add(getCellCenter(current));
+      }
+    }
+    cells.add(realGoal);
+
+    List<Translation2d> simplified = new ArrayList<>();
+    simplified.add(cells.get(0));
+    int anchor = 0;
+    for (int i = 2; i < cells.size(); i++) {
+      if (!isWalkable(cells.get(anchor), cells.get(i))) {
+        simplified.add(cells.get(i - 1));
+        anchor = i - 1;
+      }
+    }
+    simplified.add(cells.get(cells.size() - 1));
+    return simplified;
+  }
+
+  private boolean isWalkable(Translation2d from, Translation2d to) {
+    double distance = from.getDistance(to);
+    int steps = (int) Math.ceil(distance / (nodeSize / 2.0));
+    for (int i = 1; i < steps; i++) {
+      Translation2d point = from.interpolate(to, (double) i / steps);
+      int cell = getCell(point);
+      if (cell >= 0 && isBlocked(cell)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Find the nearest free cell, searching outwards in rings. The robot is often pressed against a field element, so
+   * its own cell may be blocked.
+   */
+  private int findClosestFreeCell(int cell) {
+    int row = Math.max(0, Math.min(rows - 1, cell / cols));
+    int col = Math.max(0, Math.min(cols - 1, cell % cols));
+    for (int radius = 0; radius < Math.max(rows, cols); radius++) {
+      int closest = -1;
+      double closestDistance = INF;
+      for (int dr = -radius; dr <= radius; dr++) {
+        for (int dc = -radius; dc <= radius; dc++) {
+          if (Math.max(Math.abs(dr), Math.abs(dc)) != radius || !inBounds(row + dr, col + dc)) {
+            continue;
+          }
+          int candidate = (row + dr) * cols + col + dc;
+          double distance = Math.hypot(dr, dc);
+          if (!isBlocked(candidate) && distance < closestDistance) {
+            closest = candidate;
+            closestDistance = distance;
+          }
+        }
+      }
+      if (closest >= 0) {
+        return closest;
+      }
+    }
+    return row * cols + col;
+  }
+
+  private int getCell(Translation2d position) {
+    int row = (int) Math.floor(position.getY() / nodeSize);
+    int col = (int) Math.floor(position.getX() / nodeSize);
+    return Math.max(0, Math.min(rows - 1, row)) * cols + Math.max(0, Math.min(cols - 1, col));
+  }
+
+  private Translation2d getCellCenter(int cell) {
+    return new Translation2d((cell % cols + 0.5) * nodeSize, (cell / cols + 0.5) * nodeSize);
+  }
+
+  private boolean inBounds(int row, int col) {
+    return row >= 0 && col >= 0 && row < rows && col < cols;
+  }
+
+  private boolean isBlocked(int cell) {
+    return staticObstacles[cell] || dynamicObstacles[cell];
+  }
+
+  private static boolean keyLess(double a1, double a2, double b1, double b2) {
+    return a1 < b1 || (a1 == b1 && a2 < b2);
+  }
+
+  /**
+   * Binary min-heap over cell indices with a position table, so D* Lite can remove and re-key cells in log time.
+   */
+  private static final class IndexedHeap {
+    private final int[] heap;
+    private final int[] position;
+    private final double[] key1;
+    private final double[] key2;
+    private int size;
+    private int popCount;
+
+    IndexedHeap(int capacity) {
+      heap = new int[capacity];
+      position = new int[capacity];
+      key1 = new double[capacity];
+      key2 = new double[capacity];
+      Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    int getPopCount() {
+      return popCount;
+    }
+
+    double topKey1() {
+      return key1[heap[0]];
+    }
+
+    double topKey2() {
+      return key2[heap[0]];
+    }
+
+    void clear() {
+      for (int i = 0; i < size; i++) {
+        position[heap[i]] = -1;
+      }
+      size = 0;
+    }
+
+    void insert(int cell, double k1, double k2) {
+      key1[cell] = k1;
+      key2[cell] = k2;
+      heap[size] = cell;
+      position[cell] = size;
+      siftUp(size++);
+    }
+
+    int pop() {
+      int top = heap[0];
+      removeAt(0);
+      popCount++;
+      return top;
+    }
+
+    void remove(int cell) {
+      if (position[cell] >= 0) {
+        removeAt(position[cell]);
+      }
+    }
+
+    private void removeAt(int index) {
+      position[heap[index]] = -1;
+      size--;
+      if (index == size) {
+        return;
+      }
+      int moved = heap[size];
+      heap[index] = moved;
+      position[moved] = index;
+      siftUp(index);
+      siftDown(position[moved]);
+    }
+
+    private void siftUp(int index) {
+      int cell = heap[index];
+      while (index > 0) {
+        int parent = (index - 1) / 2;
+        if (!keyLess(key1[cell], key2[cell], key1[heap[parent]], key2[heap[parent]])) {
+          break;
+        }
+        heap[index] = heap[parent];
+        position[heap[index]] = index;
+        index = parent;
+      }
+      heap[index] = cell;
+      position[cell] = index;
+    }
+
+    private void siftDown(int index) {
+      int cell = heap[index];
+      while (true) {
+        int child = 2 * index + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && keyLess(key1[heap[child + 1]], key2[heap[child + 1]],
+                                        key1[heap[child]], key2[heap[child]])) {
+          child++;
+        }
+        if (!keyLess(key1[heap[child]], key2[heap[child]], key1[cell], key2[cell])) {
+          break;
+        }
+        heap[index] = heap[child];
+        position[heap[index]] = index;
+        index = child;
+      }
+      heap[index] = cell;
+      position[cell] = index;
+    }
+  }
+}
@@ -0,0 +1,321 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.GenericPublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import edu.wpi.first.util.sendable.Sendable;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants.DashboardConstants;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every dashboard value goes through here instead of {@link SmartDashboard}, so robot code sends a bounded number
+ * of bytes per second.
+ *
+ * <p>{@code put} calls only record the latest value. {@link #flush()} runs once per loop and sends the values that
+ * changed since they were last sent, no faster than each key's {@link Priority} allows. Sends come out of a token
+ * bucket refilled at {@link DashboardConstants#BYTES_PER_SECOND}. {@link Priority#HIGH} values always go out, and
+ * lower priorities wait for budget and are sent on a later loop. Publishers that manage their own topics, like
+ * {@link TelemetryStream}, reserve budget with {@link #tryReserve}.
+ *
+ * <p>Measured bytes per second for each key are published once a second under {@code Bandwidth/}. Sendables given to
+ * {@link #putData} update themselves through {@link SmartDashboard} and aren't counted.
+ */
+public final class Dashboard {
+  // Approximate NT4 framing for one value update: topic id, timestamp, type and msgpack headers.
+  private static final int MESSAGE_OVERHEAD_BYTES = 16;
+
+  /**
+   * How urgently a value needs to reach the dashboard.
+   */
+  public enum Priority {
+    /** Sent every loop it changes, even over budget. For values the drive team watches live. */
+    HIGH(DashboardConstants.HIGH_PRIORITY_PERIOD),
+    /** The default. */
+    NORMAL(DashboardConstants.NORMAL_PRIORITY_PERIOD),
+    /** Diagnostics. Sent last, and only when there is budget left. */
+    LOW(DashboardConstants.LOW_PRIORITY_PERIOD);
+
+    private final double period;
+
+    Priority(double period) {
+      this.period = period;
+    }
+  }
+
+  private enum Type {
+    NUMBER("double"),
+    BOOLEAN("boolean"),
+    STRING("string"),
+    EXTERNAL(null);
+
+    private final String ntType;
+
+    Type(String ntType) {
+      this.ntType = ntType;
+    }
+  }
+
+  /**
+   * One dashboard key. Numbers and booleans share the number fields, booleans as 0 or 1, so nothing is boxed.
+   */
+  private static final class Entry {
+    final String key;
+    final Type type;
+    final Priority priority;
+    final GenericPublisher publisher;
+    double pendingNumber;
+    String pendingString;
+    double sentNumber;
+    String sentString;
+    boolean sent;
+    boolean dirty;
+    double nextTime;
+    long windowBytes;
+
+    Entry(String key, Type type, Priority priority) {
+      this.key = key;
+      this.type = type;
+      this.priority = priority;
+      this.publisher = type.ntType != null ? s_table.getTopic(key).genericPublish(type.ntType) : null;
+    }
+  }
+
+  private static final NetworkTable s_table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+  private static final NetworkTable s_bandwidthTable = NetworkTableInstance.getDefault().getTable("Bandwidth");
+  private static final Map<String, Entry> s_entries = new HashMap<>();
+  private static final List<List<Entry>> s_byPriority = new ArrayList<>();
+  private static final List<Entry> s_allEntries = new ArrayList<>();
+
+  static {
+    for (int i = 0; i < Priority.values().length; i++) {
+      s_byPriority.add(new ArrayList<>());
+    }
+  }
+
+  private static final StringArrayPublisher s_keysPublisher = s_bandwidthTable.getStringArrayTopic("Keys").publish();
+  private static final DoubleArrayPublisher s_ratesPublisher =
+      s_bandwidthTable.getDoubleArrayTopic("BytesPerSecond").publish();
+  private static final DoublePublisher s_totalPublisher = s_bandwidthTable.getDoubleTopic("Total").publish();
+  private static final IntegerPublisher s_deferredPublisher = s_bandwidthTable.getIntegerTopic("Deferred").publish();
+
+  private static double s_tokens = DashboardConstants.BURST_BYTES;
+  private static double s_lastFlushTime = Double.NaN;
+  private static double s_windowStart = Double.NaN;
+  private static long s_deferred;
+  private static boolean s_keysChanged;
+  private static double[] s_rates = new double[0];
+
+  private Dashboard() {}
+
+  public static void putNumber(String key, double value) {
+    putNumber(key, value, Priority.NORMAL);
+  }
+
+  /**
+   * Set a number to send on the next {@link #flush()} if it changed.
+   *
+   * @param key      SmartDashboard key.
+   * @param value    The value.
+   * @param priority Priority for this key. Only the priority given the first time a key is used counts.
+   */
+  public static synchronized void putNumber(String key, double value, Priority priority) {
+    Entry entry = getEntry(key, Type.NUMBER, priority);
+    if (entry != null) {
+      setPending(entry, value);
+    }
+  }
+
+  public static void putBoolean(String key, boolean value) {
+    putBoolean(key, value, Priority.NORMAL);
+  }
+
+  /**
+   * Set a boolean to send on the next {@link #flush()} if it changed.
+   *
+   * @param key      SmartDashboard key.
+   * @param value    The value.
+   * @param priority Priority for this key. Only the priority given the first time a key is used counts.
+   */
+  public static synchronized void putBoolean(String key, boolean value, Priority priority) {
+    Entry entry = getEntry(key, Type.BOOLEAN, priority);
+    if (entry != null) {
+      setPending(entry, value ? 1.0 : 0.0);
+    }
+  }
+
+  public static void putString(String key, String value) {
+    putString(key, value, Priority.NORMAL);
+  }
+
+  /**
+   * Set a string to send on the next {@link #flush()} if it changed.
+   *
+   * @param key      SmartDashboard key.
+   * @param value    The value.
+   * @param priority Priority for this key. Only the priority given the first time a key is used counts.
+   */
+  public static synchronized void putString(String key, String value, Priority priority) {
+    Entry entry = getEntry(key, Type.STRING, priority);
+    if (entry != null) {
+      entry.pendingString = value;
+      entry.dirty = !entry.sent || !value.equals(entry.sentString);
+    }
+  }
+
+  /**
+   * Put a sendable, like an auto chooser, on the dashboard. Sendables publish their own properties when they change.
+   *
+   * @param key  SmartDashboard key.
+   * @param data The sendable.
+   */
+  public static void putData(String key, Sendable data) {
+    SmartDashboard.putData(key, data);
+  }
+
+  /**
+   * Put a sendable on the dashboard under its registered name.
+   *
+   * @param data The sendable.
+   */
+  public static void putData(Sendable data) {
+    SmartDashboard.putData(data);
+  }
+
+  /**
+   * Ask for budget to publish on a topic this class doesn't own. The bytes are counted against the key either way
+   * for {@link Priority#HIGH}, and only when granted for lower priorities.
+   *
+   * @param key      Topic name, for the bandwidth report.
+   * @param bytes    Payload size in bytes.
+   * @param priority Priority of the publish.
+   * @return true if the caller may publish now.
+   */
+  public static synchronized boolean tryReserve(String key, int bytes, Priority priority) {
+    Entry entry = getEntry(key, Type.EXTERNAL, priority);
+    return entry != null && consume(entry, bytes + MESSAGE_OVERHEAD_BYTES);
+  }
+
+  /**
+   * Send every changed value the rate limits and budget allow, and publish the bandwidth report once a second. Call
+   * once per loop.
+   */
+  public static synchronized void flush() {
+    double now = Timer.getFPGATimestamp();
+    if (Double.isNaN(s_lastFlushTime)) {
+      s_windowStart = now;
+    } else {
+      s_tokens = Math.min(DashboardConstants.BURST_BYTES,
+                          s_tokens + (now - s_lastFlushTime) * DashboardConstants.BYTES_PER_SECOND);
+    }
+    s_lastFlushTime = now;
+
+    for (Priority priority : Priority.values()) {
+      List<Entry> entries = s_byPriority.get(priority.ordinal());
+      for (int i = 0; i < entries.size(); i++) {
+        Entry entry = entries.get(i);
+        if (entry.dirty && now >= entry.nextTime && consume(entry, getSize(entry))) {
+          send(entry);
+          entry.nextTime = now + priority.period;
+        }
+      }
+    }
+
+    if (now - s_windowStart >= DashboardConstants.BANDWIDTH_REPORT_PERIOD) {
+      publishBandwidth(now - s_windowStart);
+      s_windowStart = now;
+    }
+  }
+
+  private static Entry getEntry(String key, Type type, Priority priority) {
+    Entry entry = s_entries.get(key);
+    if (entry == null) {
+      entry = new Entry(key, type, priority);
+      s_entries.put(key, entry);
+      s_byPriority.get(priority.ordinal()).add(entry);
+      s_allEntries.add(entry);
+      s_keysChanged = true;
+    } else if (entry.type != type) {
+      DriverStation.reportError("Dashboard key " + key + " is a " + entry.type + ", not a " + type, false);
+      return null;
+    }
+    return entry;
+  }
+
+  private static void setPending(Entry entry, double value) {
+    entry.pendingNumber = value;
+    entry.dirty = !entry.sent || Double.doubleToLongBits(value) != Double.doubleToLongBits(entry.sentNumber);
+  }
+
+  /**
+   * Take bytes out of the budget for an entry. High priority always succeeds, even if that overdraws the bucket.
+   */
+  private static boolean consume(Entry entry, int bytes) {
+    if (entry.priority != Priority.HIGH && s_tokens < bytes) {
+      s_deferred++;
+      return false;
+    }
+    s_tokens -= bytes;
+    entry.windowBytes += bytes;
+    return true;
+  }
+
+  private static int getSize(Entry entry) {
+    return MESSAGE_OVERHEAD_BYTES + switch (entry.type) {
+      case NUMBER -> Double.BYTES;
+      case BOOLEAN -> 1;
+      case STRING -> entry.pendingString.length();
+      case EXTERNAL -> 0;
+    };
+  }
+
+  private static void send(Entry entry) {
+    switch (entry.type) {
+      case NUMBER -> entry.publisher.setDouble(entry.pendingNumber);
+      case BOOLEAN -> entry.publisher.setBoolean(entry.pendingNumber != 0.0);
+      case STRING -> entry.publisher.setString(entry.pendingString);
+      case EXTERNAL -> {
+        return;
+      }
+    }
+    entry.sentNumber = entry.pendingNumber;
+    entry.sentString = entry.pendingString;
+    entry.sent = true;
+    entry.dirty = false;
+  }
+
+  /**
+   * Publish bytes per second for each key, and the total. The key list is only resent when a key is added.
+   */
+  private static void publishBandwidth(double windowSeconds) {
+    int count = s_allEntries.size();
+    if (s_keysChanged) {
+      String[] keys = new String[count];
+      for (int i = 0; i < count; i++) {
+        keys[i] = s_allEntries.get(i).key;
+      }
+      s_keysPublisher.set(keys);
+      s_rates = new double[count];
+      s_keysChanged = false;
+    }
+    double total = 0.0;
+    for (int i = 0; i < count; i++) {
+      Entry entry = s_allEntries.get(i);
+      s_rates[i] = entry.windowBytes / windowSeconds;
+      total += s_rates[i];
+      entry.windowBytes = 0;
+    }
+    s_ratesPublisher.set(s_rates);
+    s_totalPublisher.set(total);
+    s_deferredPublisher.set(s_deferred);
+  }
+}
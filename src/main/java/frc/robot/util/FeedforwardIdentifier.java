@@ -0,0 +1,201 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import frc.robot.Constants.SysIdConstants;
+import java.util.Arrays;
+
+/**
+ * Fits {@code voltage = kS * sign(velocity) + kV * velocity + kA * acceleration} while a SysId routine runs, so the
+ * gains are on the dashboard as soon as the routine ends instead of after the logs are copied off and analyzed.
+ *
+ * <p>Each channel, usually one motor, is sampled once per loop. Acceleration is the central difference of the
+ * neighbouring velocity samples, so each sample is used one loop late. Samples slower than
+ * {@link SysIdConstants#MIN_VELOCITY} are dropped, since static friction isn't a clean {@code kS * sign(velocity)}
+ * there, and so are samples with no voltage applied, which are the motor coasting or braking between tests. All
+ * channels feed one recursive least squares fit, which is O(1) per sample.
+ *
+ * <p>The standard deviation of each gain is estimated from the fit's covariance and the residual variance, and the fit
+ * counts as confident once there are {@link SysIdConstants#MIN_SAMPLES} samples and {@code kV} and {@code kA} are known
+ * to within {@link SysIdConstants#MAX_RELATIVE_STD_DEV}.
+ */
+public class FeedforwardIdentifier {
+  private static final int PARAMETERS = 3;
+
+  private final String m_name;
+  private final double[] m_previousTime;
+  private final double[] m_previousVelocity;
+  private final double[] m_currentTime;
+  private final double[] m_currentVelocity;
+  private final double[] m_currentVoltage;
+  private final int[] m_history;
+
+  // Gains kS, kV, kA and their covariance, up to the residual variance.
+  private final double[] m_theta = new double[PARAMETERS];
+  private final double[][] m_covariance = new double[PARAMETERS][PARAMETERS];
+  private final double[] m_phi = new double[PARAMETERS];
+  private final double[] m_gain = new double[PARAMETERS];
+  private final double[] m_covariancePhi = new double[PARAMETERS];
+  private double m_residualVariance;
+  private long m_samples;
+
+  /**
+   * Create an identifier.
+   *
+   * @param name     Dashboard prefix, like {@code SysId/Drive}.
+   * @param channels Number of motors sampled each loop.
+   */
+  public FeedforwardIdentifier(String name, int channels) {
+    m_name = name;
+    m_previousTime = new double[channels];
+    m_previousVelocity = new double[channels];
+    m_currentTime = new double[channels];
+    m_currentVelocity = new double[channels];
+    m_currentVoltage = new double[channels];
+    m_history = new int[channels];
+    reset();
+  }
+
+  /**
+   * Forget every sample and start a new fit.
+   */
+  public void reset() {
+    for (int i = 0; i < PARAMETERS; i++) {
+      m_theta[i] = 0.0;
+      for (int j = 0; j < PARAMETERS; j++) {
+        m_covariance[i][j] = i == j ? SysIdConstants.INITIAL_COVARIANCE : 0.0;
+      }
+    }
+    Arrays.fill(m_history, 0);
+    m_residualVariance = 0.0;
+    m_samples = 0;
+  }
+
+  /**
+   * Add one loop's measurement from a channel.
+   *
+   * @param channel   Channel index.
+   * @param timestamp Time of the measurement, s.
+   * @param voltage   Applied voltage, V.
+   * @param velocity  Measured velocity.
+   */
+  public void addMeasurement(int channel, double timestamp, double voltage, double velocity) {
+    // The middle of the last three samples gets the central difference acceleration.
+    if (m_history[channel] >= 2) {
+      double dt = timestamp - m_previousTime[channel];
+      if (dt > 0.0) {
+        double acceleration = (velocity - m_previousVelocity[channel]) / dt;
+        addSample(m_currentVoltage[channel], m_currentVelocity[channel], acceleration);
+      }
+    }
+    if (m_history[channel] >= 1) {
+      m_previousTime[channel] = m_currentTime[channel];
+      m_previousVelocity[channel] = m_currentVelocity[channel];
+    }
+    m_currentTime[channel] = timestamp;
+    m_currentVelocity[channel] = velocity;
+    m_currentVoltage[channel] = voltage;
+    m_history[channel] = Math.min(m_history[channel] + 1, 2);
+  }
+
+  /**
+   * Add a sample with a known acceleration.
+   *
+   * @param voltage      Applied voltage, V.
+   * @param velocity     Velocity.
+   * @param acceleration Acceleration.
+   */
+  public void addSample(double voltage, double velocity, double acceleration) {
+    if (Math.abs(velocity) < SysIdConstants.MIN_VELOCITY || Math.abs(voltage) < SysIdConstants.MIN_VOLTAGE) {
+      return;
+    }
+    m_phi[0] = Math.signum(velocity);
+    m_phi[1] = velocity;
+    m_phi[2] = acceleration;
+
+    double lambda = SysIdConstants.FORGETTING_FACTOR;
+    double denominator = lambda;
+    for (int i = 0; i < PARAMETERS; i++) {
+      double sum = 0.0;
+      for (int j = 0; j < PARAMETERS; j++) {
+        sum += m_covariance[i][j] * m_phi[j];
+      }
+      m_covariancePhi[i] = sum;
+      denominator += m_phi[i] * sum;
+    }
+    double error = voltage;
+    for (int i = 0; i < PARAMETERS; i++) {
+      m_gain[i] = m_covariancePhi[i] / denominator;
+      error -= m_theta[i] * m_phi[i];
+    }
+    for (int i = 0; i < PARAMETERS; i++) {
+      m_theta[i] += m_gain[i] * error;
+      for (int j = 0; j < PARAMETERS; j++) {
+        // P is symmetric, so phi' P is the transpose of P phi.
+        m_covariance[i][j] = (m_covariance[i][j] - m_gain[i] * m_covariancePhi[j]) / lambda;
+      }
+    }
+
+    // A posteriori error, averaged over the samples so far.
+    double residual = voltage;
+    for (int i = 0; i < PARAMETERS; i++) {
+      residual -= m_theta[i] * m_phi[i];
+    }
+    m_samples++;
+    m_residualVariance += (residual * residual - m_residualVariance) / m_samples;
+  }
+
+  public double getKs() {
+    return m_theta[0];
+  }
+
+  public double getKv() {
+    return m_theta[1];
+  }
+
+  public double getKa() {
+    return m_theta[2];
+  }
+
+  /**
+   * @param parameter 0 for kS, 1 for kV, 2 for kA.
+   * @return Estimated standard deviation of the gain.
+   */
+  public double getStdDev(int parameter) {
+    return Math.sqrt(Math.max(0.0, m_covariance[parameter][parameter] * m_residualVariance));
+  }
+
+  public long getSampleCount() {
+    return m_samples;
+  }
+
+  /**
+   * @return Whether there are enough samples and {@code kV} and {@code kA} are known well enough to use.
+   */
+  public boolean isConfident() {
+    return m_samples >= SysIdConstants.MIN_SAMPLES
+           && getKv() > 0.0 && getKa() > 0.0
+           && getStdDev(1) <= SysIdConstants.MAX_RELATIVE_STD_DEV * getKv()
+           && getStdDev(2) <= SysIdConstants.MAX_RELATIVE_STD_DEV * getKa();
+  }
+
+  /**
+   * @return The fitted gains as a feedforward.
+   */
+  public SimpleMotorFeedforward getFeedforward() {
+    return new SimpleMotorFeedforward(getKs(), getKv(), getKa());
+  }
+
+  /**
+   * Put the gains, their standard deviations and whether they are confident on the dashboard.
+   */
+  public void publish() {
+    Dashboard.putNumber(m_name + "/kS", getKs());
+    Dashboard.putNumber(m_name + "/kV", getKv());
+    Dashboard.putNumber(m_name + "/kA", getKa());
+    Dashboard.putNumber(m_name + "/kSStdDev", getStdDev(0), Dashboard.Priority.LOW);
+    Dashboard.putNumber(m_name + "/kVStdDev", getStdDev(1), Dashboard.Priority.LOW);
+    Dashboard.putNumber(m_name + "/kAStdDev", getStdDev(2), Dashboard.Priority.LOW);
+    Dashboard.putNumber(m_name + "/Samples", m_samples, Dashboard.Priority.LOW);
+    Dashboard.putBoolean(m_name + "/Confident", isConfident());
+  }
+}
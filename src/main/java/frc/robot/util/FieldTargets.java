@@ -0,0 +1,144 @@
+package frc.robot.util;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.Constants.AlignConstants;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Every pose the robot lines up at: both branches of each reef face, the coral station slots and the processor, for
+ * both alliances. Poses are built from the AprilTag layout, so they follow the tags rather than hand measured
+ * numbers, and are indexed in a {@link KdTree} per alliance and type for nearest target lookups.
+ */
+public final class FieldTargets {
+  private static final int[] BLUE_REEF_TAGS = {17, 18, 19, 20, 21, 22};
+  private static final int[] RED_REEF_TAGS = {6, 7, 8, 9, 10, 11};
+  private static final int[] BLUE_CORAL_STATION_TAGS = {12, 13};
+  private static final int[] RED_CORAL_STATION_TAGS = {1, 2};
+  private static final int BLUE_PROCESSOR_TAG = 16;
+  private static final int RED_PROCESSOR_TAG = 3;
+
+  private static FieldTargets s_instance;
+
+  /**
+   * What the robot does at a target.
+   */
+  public enum Type {
+    REEF_BRANCH,
+    CORAL_STATION,
+    PROCESSOR
+  }
+
+  /**
+   * A pose to line up at.
+   *
+   * @param name     Name for telemetry, like "Blue reef 18 left".
+   * @param type     What the target is for.
+   * @param alliance Alliance the target belongs to.
+   * @param pose     Field pose of the robot center when lined up, facing the target.
+   */
+  public record Target(String name, Type type, Alliance alliance, Pose2d pose) {}
+
+  private final List<Target> m_targets = new ArrayList<>();
+  private final Map<Alliance, Map<Type, KdTree<Target>>> m_index = new EnumMap<>(Alliance.class);
+
+  private FieldTargets() {
+    AprilTagFieldLayout layout = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
+    addAlliance(layout, Alliance.Blue, BLUE_REEF_TAGS, BLUE_CORAL_STATION_TAGS, BLUE_PROCESSOR_TAG);
+    addAlliance(layout, Alliance.Red, RED_REEF_TAGS, RED_CORAL_STATION_TAGS, RED_PROCESSOR_TAG);
+
+    for (Alliance alliance : Alliance.values()) {
+      Map<Type, KdTree<Target>> trees = new EnumMap<>(Type.class);
+      for (Type type : Type.values()) {
+        trees.put(type, new KdTree<>(m_targets.stream()
+                                              .filter(target -> target.alliance() == alliance
+                                                                && target.type() == type)
+                                              .toList(),
+                                     target -> target.pose().getTranslation()));
+      }
+      m_index.put(alliance, trees);
+    }
+  }
+
+  /**
+   * @return The shared registry, built the first time it is called.
+   */
+  public static synchronized FieldTargets getInstance() {
+    if (s_instance == null) {
+      s_instance = new FieldTargets();
+    }
+    return s_instance;
+  }
+
+  private void addAlliance(AprilTagFieldLayout layout, Alliance alliance, int[] reefTags, int[] coralStationTags,
+                           int processorTag) {
+    for (int tag : reefTags) {
+      addTarget(layout, alliance, Type.REEF_BRANCH, tag, -AlignConstants.REEF_BRANCH_OFFSET, "left");
+      addTarget(layout, alliance, Type.REEF_BRANCH, tag, AlignConstants.REEF_BRANCH_OFFSET, "right");
+    }
+    for (int tag : coralStationTags) {
+      for (int slot = 0; slot < AlignConstants.CORAL_STATION_SLOT_OFFSETS.length; slot++) {
+        addTarget(layout, alliance, Type.CORAL_STATION, tag, AlignConstants.CORAL_STATION_SLOT_OFFSETS[slot],
+                  "slot " + slot);
+      }
+    }
+    addTarget(layout, alliance, Type.PROCESSOR, processorTag, 0.0, "");
+  }
+
+  /**
+   * Stand off from a tag, facing it, shifted sideways along its face.
+   *
+   * @param lateralOffset Sideways offset, positive to the robot's right when facing the tag.
+   */
+  private void addTarget(AprilTagFieldLayout layout, Alliance alliance, Type type, int tag, double lateralOffset,
+                         String suffix) {
+    layout.getTagPose(tag).ifPresent(tagPose -> {
+      Pose2d pose = tagPose.toPose2d().transformBy(new Transform2d(AlignConstants.STANDOFF,
+                                                                   lateralOffset,
+                                                                   Rotation2d.k180deg));
+      String name = alliance + " " + type.name().toLowerCase().replace('_', ' ') + " " + tag
+                    + (suffix.isEmpty() ? "" : " " + suffix);
+      m_targets.add(new Target(name, type, alliance, pose));
+    });
+  }
+
+  /**
+   * @return Every target on the field.
+   */
+  public List<Target> getTargets() {
+    return Collections.unmodifiableList(m_targets);
+  }
+
+  /**
+   * Find the target closest to a position.
+   *
+   * @param pose     Pose to search from, usually the current robot pose.
+   * @param alliance Only consider targets of this alliance.
+   * @param types    Only consider targets of these types, or every type if none are given.
+   * @return The closest target, or empty if there are none.
+   */
+  public Optional<Target> getNearest(Pose2d pose, Alliance alliance, Type... types) {
+    Map<Type, KdTree<Target>> trees = m_index.get(alliance);
+    Type[] searched = types.length > 0 ? types : Type.values();
+    KdTree<Target> bestTree = null;
+    double bestDistance = Double.POSITIVE_INFINITY;
+    for (Type type : searched) {
+      KdTree<Target> tree = trees.get(type);
+      double distance = tree.nearestDistanceSquared(pose.getTranslation());
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        bestTree = tree;
+      }
+    }
+    return bestTree == null ? Optional.empty() : bestTree.nearest(pose.getTranslation());
+  }
+}
@@ -0,0 +1,118 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Static 2D k-d tree for nearest neighbour lookups. Built once, balanced by splitting at the median and stored as an
+ * implicit tree in flat arrays, so a query visits O(log n) nodes on average.
+ *
+ * @param <T> Item type.
+ */
+public class KdTree<T> {
+  private final Object[] items;
+  private final double[] xs;
+  private final double[] ys;
+
+  /**
+   * Build the tree.
+   *
+   * @param items    Items to index.
+   * @param position Position of each item.
+   */
+  public KdTree(List<T> items, Function<T, Translation2d> position) {
+    int count = items.size();
+    this.items = new Object[count];
+    this.xs = new double[count];
+    this.ys = new double[count];
+    build(new ArrayList<>(items), position, 0, count, 0);
+  }
+
+  public int size() {
+    return items.length;
+  }
+
+  /**
+   * Find the item closest to a position.
+   *
+   * @param position Position to search from.
+   * @return The closest item, or empty if the tree is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public Optional<T> nearest(Translation2d position) {
+    if (items.length == 0) {
+      return Optional.empty();
+    }
+    int best = nearest(position.getX(), position.getY(), 0, items.length, 0, -1);
+    return Optional.of((T) items[best]);
+  }
+
+  /**
+   * Squared distance from a position to the item {@link #nearest} would return.
+   *
+   * @param position Position to search from.
+   * @return Squared distance in m^2, infinite if the tree is empty.
+   */
+  public double nearestDistanceSquared(Translation2d position) {
+    if (items.length == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    int best = nearest(position.getX(), position.getY(), 0, items.length, 0, -1);
+    return distanceSquared(best, position.getX(), position.getY());
+  }
+
+  /**
+   * Store the median of {@code [from, to)} at the middle index, then recurse into each half on the other axis.
+   */
+  private void build(List<T> remaining, Function<T, Translation2d> position, int from, int to, int depth) {
+    if (from >= to) {
+      return;
+    }
+    List<T> slice = remaining.subList(from, to);
+    Comparator<T> byAxis = depth % 2 == 0
+                           ? Comparator.comparingDouble(item -> position.apply(item).getX())
+                           : Comparator.comparingDouble(item -> position.apply(item).getY());
+    slice.sort(byAxis);
+    int middle = (from + to) >>> 1;
+    T median = remaining.get(middle);
+    items[middle] = median;
+    xs[middle] = position.apply(median).getX();
+    ys[middle] = position.apply(median).getY();
+    build(remaining, position, from, middle, depth + 1);
+    build(remaining, position, middle + 1, to, depth + 1);
+  }
+
+  private int nearest(double x, double y, int from, int to, int depth, int best) {
+    if (from >= to) {
+      return best;
+    }
+    int middle = (from + to) >>> 1;
+    if (best < 0 || distanceSquared(middle, x, y) < distanceSquared(best, x, y)) {
+      best = middle;
+    }
+    double offset = depth % 2 == 0 ? x - xs[middle] : y - ys[middle];
+    // Search the side the point is on first, and only cross the split if the best circle reaches over it.
+    if (offset < 0) {
+      best = nearest(x, y, from, middle, depth + 1, best);
+      if (offset * offset < distanceSquared(best, x, y)) {
+        best = nearest(x, y, middle + 1, to, depth + 1, best);
+      }
+    } else {
+      best = nearest(x, y, middle + 1, to, depth + 1, best);
+      if (offset * offset < distanceSquared(best, x, y)) {
+        best = nearest(x, y, from, middle, depth + 1, best);
+      }
+    }
+    return best;
+  }
+
+  private double distanceSquared(int index, double x, double y) {
+    double dx = xs[index] - x;
+    double dy = ys[index] - y;
+    return dx * dx + dy * dy;
+  }
+}
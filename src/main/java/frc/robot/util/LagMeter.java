@@ -0,0 +1,87 @@
+package frc.robot.util;
+
+/**
+ * Measures how far one signal trails another, as the delay in whole loops that best lines the two up over a window.
+ * Adding a sample is cheap, but {@link #getLag()} searches the whole window, so call it only as often as the result is
+ * used.
+ */
+public class LagMeter {
+  private final double[] m_reference;
+  private final double[] m_measured;
+  private final double m_period;
+  private final int m_maxLag;
+  private final double m_minVariance;
+  private int m_index;
+  private int m_count;
+
+  /**
+   * Create a meter.
+   *
+   * @param period      Period of the loop that adds the samples, s.
+   * @param windowSize  Loops compared.
+   * @param maxLag      Largest lag looked for, in loops.
+   * @param minVariance Variance the reference must have over the window for the lag to be measurable.
+   */
+  public LagMeter(double period, int windowSize, int maxLag, double minVariance) {
+    m_period = period;
+    m_reference = new double[windowSize];
+    m_measured = new double[windowSize];
+    m_maxLag = maxLag;
+    m_minVariance = minVariance;
+  }
+
+  /**
+   * Add one loop's samples.
+   *
+   * @param reference Signal being followed.
+   * @param measured  Signal whose lag is measured.
+   */
+  public void add(double reference, double measured) {
+    m_reference[m_index] = reference;
+    m_measured[m_index] = measured;
+    m_index = (m_index + 1) % m_reference.length;
+    m_count = Math.min(m_count + 1, m_reference.length);
+  }
+
+  /**
+   * @return Lag in seconds, or NaN if the reference didn't change enough over the window to tell.
+   */
+  public double getLag() {
+    int count = m_count;
+    if (count <= m_maxLag) {
+      return Double.NaN;
+    }
+    int size = m_reference.length;
+    // Oldest sample in the ring.
+    int start = count < size ? 0 : m_index;
+
+    double mean = 0.0;
+    for (int k = 0; k < count; k++) {
+      mean += m_reference[(start + k) % size];
+    }
+    mean /= count;
+    double variance = 0.0;
+    for (int k = 0; k < count; k++) {
+      double deviation = m_reference[(start + k) % size] - mean;
+      variance += deviation * deviation;
+    }
+    if (variance / count < m_minVariance) {
+      return Double.NaN;
+    }
+
+    int bestLag = 0;
+    double bestError = Double.POSITIVE_INFINITY;
+    for (int lag = 0; lag <= m_maxLag; lag++) {
+      double error = 0.0;
+      for (int k = m_maxLag; k < count; k++) {
+        double difference = m_measured[(start + k) % size] - m_reference[(start + k - lag) % size];
+        error += difference * difference;
+      }
+      if (error < bestError) {
+        bestError = error;
+        bestLag = lag;
+      }
+    }
+    return bestLag * m_period;
+  }
+}
@@ -0,0 +1,140 @@
+package frc.robot.util;
+
+import edu.wpi.first.hal.DriverStationJNI;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.RobotController;
+import java.util.Arrays;
+
+/**
+ * Measures how long it takes driver input to reach the drive motors. Each loop is stamped with the FPGA time of
+ * four events:
+ *
+ * <ol>
+ *   <li>the last Driver Station packet arriving, caught by a thread waiting on the DS new data event,
+ *   <li>the {@link swervelib.SwerveInputStream} reading the joystick axes,
+ *   <li>the chassis speeds being handed to {@link swervelib.SwerveDrive} to compute module states,
+ *   <li>{@link swervelib.SwerveDrive} returning after writing the last module setpoint.
+ * </ol>
+ *
+ * <p>Latencies between the stamps are kept in fixed size windows and their percentiles published to the dashboard,
+ * so nothing here allocates once running. This only covers the software path, the motor controllers' own velocity
+ * filtering comes on top.
+ */
+public final class LatencyTracer {
+  private static final int WINDOW_SIZE = 500; // 10 s of loops
+  private static final int PUBLISH_PERIOD_LOOPS = 25;
+  private static final String[] STAGE_NAMES = {"DSToInput", "InputToCompute", "ComputeToWrite", "Total"};
+  private static final String[] PERCENTILE_NAMES = {"p50", "p95", "p99", "max"};
+  private static final double[] PERCENTILES = {0.50, 0.95, 0.99, 1.0};
+  private static final String[][] KEYS = new String[STAGE_NAMES.length][PERCENTILE_NAMES.length];
+
+  static {
+    for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+      for (int p = 0; p < PERCENTILE_NAMES.length; p++) {
+        KEYS[stage][p] = "Latency/" + STAGE_NAMES[stage] + "/" + PERCENTILE_NAMES[p];
+      }
+    }
+  }
+
+  private static volatile long s_lastPacketMicros;
+  private static long s_packetMicros;
+  private static long s_inputMicros;
+  private static long s_computeMicros;
+  private static boolean s_inputRead;
+
+  private static final double[][] s_windows = new double[STAGE_NAMES.length][WINDOW_SIZE];
+  private static final double[] s_sorted = new double[WINDOW_SIZE];
+  private static int s_windowIndex;
+  private static int s_windowCount;
+  private static int s_loopsSincePublish;
+  private static Thread s_packetThread;
+
+  private LatencyTracer() {}
+
+  /**
+   * Start listening for Driver Station packets. Call once from robot init.
+   */
+  public static synchronized void start() {
+    if (s_packetThread != null) {
+      return;
+    }
+    int event = WPIUtilJNI.createEvent(false, false);
+    // The HAL signals this as each packet arrives. DriverStation's refreshed data event would only fire when the
+    // robot loop picks the data up, which is the start of the loop rather than the packet.
+    DriverStationJNI.provideNewDataEventHandle(event);
+    s_packetThread = new Thread(() -> {
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          WPIUtilJNI.waitForObject(event);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        s_lastPacketMicros = RobotController.getFPGATime();
+      }
+    }, "DSPacketTimestamp");
+    s_packetThread.setDaemon(true);
+    s_packetThread.start();
+  }
+
+  /**
+   * Stamp the joystick axes being read. Call from the first axis supplier of the input stream.
+   */
+  public static void markInputRead() {
+    s_packetMicros = s_lastPacketMicros;
+    s_inputMicros = RobotController.getFPGATime();
+    s_inputRead = true;
+  }
+
+  /**
+   * Stamp the target chassis speeds being handed to the swerve drive.
+   */
+  public static void markCommandComputed() {
+    s_computeMicros = RobotController.getFPGATime();
+  }
+
+  /**
+   * Stamp the last module setpoint being written and record the latencies for this loop. Loops where the joystick
+   * wasn't read, like autonomous, are skipped.
+   */
+  public static void markSetpointWritten() {
+    if (!s_inputRead) {
+      return;
+    }
+    s_inputRead = false;
+    long writeMicros = RobotController.getFPGATime();
+    boolean havePacket = s_packetMicros > 0;
+    s_windows[0][s_windowIndex] = havePacket ? (s_inputMicros - s_packetMicros) / 1000.0 : Double.NaN;
+    s_windows[1][s_windowIndex] = (s_computeMicros - s_inputMicros) / 1000.0;
+    s_windows[2][s_windowIndex] = (writeMicros - s_computeMicros) / 1000.0;
+    s_windows[3][s_windowIndex] = havePacket ? (writeMicros - s_packetMicros) / 1000.0 : Double.NaN;
+    s_windowIndex = (s_windowIndex + 1) % WINDOW_SIZE;
+    s_windowCount = Math.min(s_windowCount + 1, WINDOW_SIZE);
+  }
+
+  /**
+   * Publish latency percentiles in milliseconds. Call every loop, it only does work every few loops.
+   */
+  public static void publish() {
+    if (++s_loopsSincePublish < PUBLISH_PERIOD_LOOPS || s_windowCount == 0) {
+      return;
+    }
+    s_loopsSincePublish = 0;
+    for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+      System.arraycopy(s_windows[stage], 0, s_sorted, 0, s_windowCount);
+      // NaN sorts last, so only count the real samples.
+      Arrays.sort(s_sorted, 0, s_windowCount);
+      int valid = s_windowCount;
+      while (valid > 0 && Double.isNaN(s_sorted[valid - 1])) {
+        valid--;
+      }
+      if (valid == 0) {
+        continue;
+      }
+      for (int p = 0; p < PERCENTILES.length; p++) {
+        Dashboard.putNumber(KEYS[stage][p], s_sorted[Math.min(valid - 1, (int) (valid * PERCENTILES[p]))],
+                            Dashboard.Priority.LOW);
+      }
+    }
+  }
+}
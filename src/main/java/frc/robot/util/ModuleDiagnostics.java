@@ -0,0 +1,306 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.ModuleDiagnosticsConstants;
+import java.util.Arrays;
+import swervelib.SwerveModule;
+
+/**
+ * Compares each module's commanded and measured drive velocity and azimuth every loop, so one sick module shows up
+ * instead of hiding in the chassis telemetry.
+ *
+ * <p>The last command sent to the drive is turned into module states the way YAGSL does, desaturated and flipped to
+ * the nearer direction of the measured azimuth. While the robot is enabled and the command is fresh, each loop's
+ * velocity error, and azimuth error once the module is commanded to move, go into fixed size windows like
+ * {@link LatencyTracer}'s. Every {@link ModuleDiagnosticsConstants#PUBLISH_PERIOD_LOOPS} loops the percentiles are
+ * published under {@code Modules/<name>/}, along with:
+ *
+ * <ul>
+ *   <li>the response lag, the delay that best lines the measured speed up with the commanded one,
+ *   <li>how many loops the drive and azimuth motors were saturated at the battery voltage,
+ *   <li>whether the module is degraded.
+ * </ul>
+ *
+ * <p>A module is degraded when its 95th percentile velocity or azimuth error is {@link
+ * ModuleDiagnosticsConstants#DEGRADED_RATIO} times that of the median other module, or of its own first full window
+ * this power cycle, and above an absolute floor. Becoming degraded is reported to the Driver Station once.
+ */
+public class ModuleDiagnostics {
+  private static final double[] PERCENTILES = {0.50, 0.95, 1.0};
+  private static final String[] PERCENTILE_NAMES = {"P50", "P95", "Max"};
+
+  private final Translation2d[] m_locations;
+  private final int m_count;
+  private final double m_maxSpeed;
+
+  // Latest command, written by whichever thread drives the modules.
+  private final double[] m_commandSpeed;
+  private final double[] m_commandAngle;
+  private double m_commandTime = Double.NEGATIVE_INFINITY;
+
+  // Only touched by the main thread.
+  private final double[] m_targetSpeed;
+  private final double[] m_targetAngle;
+  private final double[][] m_velocityErrors;
+  private final double[][] m_azimuthErrors;
+  private final LagMeter[] m_lagMeters;
+  private final int[] m_azimuthIndex;
+  private final int[] m_azimuthCount;
+  private final long[] m_driveSaturated;
+  private final long[] m_angleSaturated;
+  private final double[] m_velocityP95;
+  private final double[] m_azimuthP95;
+  private final double[] m_velocityBaseline;
+  private final double[] m_azimuthBaseline;
+  private final boolean[] m_degraded;
+  private final double[] m_sorted = new double[ModuleDiagnosticsConstants.WINDOW_SIZE];
+  private final double[] m_others;
+  private int m_windowIndex;
+  private int m_windowCount;
+  private int m_loopsSincePublish;
+
+  private final String[] m_names;
+  private final String[][] m_velocityKeys;
+  private final String[][] m_azimuthKeys;
+  private final String[] m_lagKeys;
+  private final String[] m_driveSaturatedKeys;
+  private final String[] m_angleSaturatedKeys;
+  private final String[] m_degradedKeys;
+
+  /**
+   * Create the diagnostics.
+   *
+   * @param names     Module names, for the dashboard.
+   * @param locations Module locations relative to the robot center, in the same order.
+   * @param maxSpeed  Module speed commands are desaturated to, m/s.
+   * @param period    Period of the loop {@link #update} is called from, s.
+   */
+  public ModuleDiagnostics(String[] names, Translation2d[] locations, double maxSpeed, double period) {
+    m_names = names;
+    m_locations = locations;
+    m_count = locations.length;
+    m_maxSpeed = maxSpeed;
+    m_commandSpeed = new double[m_count];
+    m_commandAngle = new double[m_count];
+    m_targetSpeed = new double[m_count];
+    m_targetAngle = new double[m_count];
+    m_velocityErrors = new double[m_count][ModuleDiagnosticsConstants.WINDOW_SIZE];
+    m_azimuthErrors = new double[m_count][ModuleDiagnosticsConstants.WINDOW_SIZE];
+    m_lagMeters = new LagMeter[m_count];
+    m_azimuthIndex = new int[m_count];
+    m_azimuthCount = new int[m_count];
+    m_driveSaturated = new long[m_count];
+    m_angleSaturated = new long[m_count];
+    m_velocityP95 = new double[m_count];
+    m_azimuthP95 = new double[m_count];
+    m_velocityBaseline = new double[m_count];
+    m_azimuthBaseline = new double[m_count];
+    Arrays.fill(m_velocityBaseline, Double.NaN);
+    Arrays.fill(m_azimuthBaseline, Double.NaN);
+    m_degraded = new boolean[m_count];
+    m_others = new double[Math.max(1, m_count - 1)];
+
+    m_velocityKeys = new String[m_count][PERCENTILES.length];
+    m_azimuthKeys = new String[m_count][PERCENTILES.length];
+    m_lagKeys = new String[m_count];
+    m_driveSaturatedKeys = new String[m_count];
+    m_angleSaturatedKeys = new String[m_count];
+    m_degradedKeys = new String[m_count];
+    for (int i = 0; i < m_count; i++) {
+      String prefix = "Modules/" + names[i] + "/";
+      for (int p = 0; p < PERCENTILES.length; p++) {
+        m_velocityKeys[i][p] = prefix + "VelocityError" + PERCENTILE_NAMES[p];
+        m_azimuthKeys[i][p] = prefix + "AzimuthError" + PERCENTILE_NAMES[p];
+      }
+      m_lagKeys[i] = prefix + "Lag";
+      m_lagMeters[i] = new LagMeter(period, ModuleDiagnosticsConstants.WINDOW_SIZE,
+                                    ModuleDiagnosticsConstants.MAX_LAG_LOOPS,
+                                    ModuleDiagnosticsConstants.MIN_LAG_VARIANCE);
+      m_driveSaturatedKeys[i] = prefix + "DriveSaturatedLoops";
+      m_angleSaturatedKeys[i] = prefix + "AngleSaturatedLoops";
+      m_degradedKeys[i] = prefix + "Degraded";
+    }
+  }
+
+  /**
+   * Record robot relative speeds sent to the drive.
+   *
+   * @param robotRelative Robot relative speeds.
+   */
+  public synchronized void recordCommand(ChassisSpeeds robotRelative) {
+    double fastest = 0.0;
+    for (int i = 0; i < m_count; i++) {
+      double vx = robotRelative.vxMetersPerSecond - robotRelative.omegaRadiansPerSecond * m_locations[i].getY();
+      double vy = robotRelative.vyMetersPerSecond + robotRelative.omegaRadiansPerSecond * m_locations[i].getX();
+      m_commandSpeed[i] = Math.hypot(vx, vy);
+      m_commandAngle[i] = Math.atan2(vy, vx);
+      fastest = Math.max(fastest, m_commandSpeed[i]);
+    }
+    if (fastest > m_maxSpeed) {
+      for (int i = 0; i < m_count; i++) {
+        m_commandSpeed[i] *= m_maxSpeed / fastest;
+      }
+    }
+    m_commandTime = Timer.getFPGATimestamp();
+  }
+
+  /**
+   * Record module states sent to the drive directly.
+   *
+   * @param states Module states, in the order of the module locations.
+   */
+  public synchronized void recordCommand(SwerveModuleState[] states) {
+    for (int i = 0; i < m_count; i++) {
+      m_commandSpeed[i] = states[i].speedMetersPerSecond;
+      m_commandAngle[i] = states[i].angle.getRadians();
+    }
+    m_commandTime = Timer.getFPGATimestamp();
+  }
+
+  /**
+   * Compare the last command with the modules. Call once per loop.
+   *
+   * @param modules  The modules, in the order of the module locations.
+   * @param measured Measured module states, in the same order.
+   */
+  public void update(SwerveModule[] modules, SwerveModuleState[] measured) {
+    double now = Timer.getFPGATimestamp();
+    synchronized (this) {
+      if (now - m_commandTime > ModuleDiagnosticsConstants.COMMAND_TIMEOUT) {
+        return;
+      }
+      System.arraycopy(m_commandSpeed, 0, m_targetSpeed, 0, m_count);
+      System.arraycopy(m_commandAngle, 0, m_targetAngle, 0, m_count);
+    }
+    if (!DriverStation.isEnabled()) {
+      return;
+    }
+
+    double saturationVoltage = ModuleDiagnosticsConstants.SATURATION_FRACTION * RobotController.getBatteryVoltage();
+    for (int i = 0; i < m_count; i++) {
+      double measuredAngle = measured[i].angle.getRadians();
+      double targetSpeed = m_targetSpeed[i];
+      double azimuthError = MathUtil.angleModulus(measuredAngle - m_targetAngle[i]);
+      // YAGSL drives backwards rather than turning more than a quarter turn.
+      if (Math.abs(azimuthError) > Math.PI / 2) {
+        targetSpeed = -targetSpeed;
+        azimuthError = MathUtil.angleModulus(azimuthError + Math.PI);
+      }
+      double measuredSpeed = measured[i].speedMetersPerSecond * Math.cos(azimuthError);
+      m_velocityErrors[i][m_windowIndex] = Math.abs(targetSpeed - measuredSpeed);
+      m_lagMeters[i].add(targetSpeed, measuredSpeed);
+      // A module commanded to stand still keeps its last azimuth.
+      if (Math.abs(targetSpeed) >= ModuleDiagnosticsConstants.MIN_AZIMUTH_SPEED) {
+        m_azimuthErrors[i][m_azimuthIndex[i]] = Math.abs(azimuthError);
+        m_azimuthIndex[i] = (m_azimuthIndex[i] + 1) % ModuleDiagnosticsConstants.WINDOW_SIZE;
+        m_azimuthCount[i] = Math.min(m_azimuthCount[i] + 1, ModuleDiagnosticsConstants.WINDOW_SIZE);
+      }
+      if (Math.abs(modules[i].getDriveMotor().getVoltage()) >= saturationVoltage) {
+        m_driveSaturated[i]++;
+      }
+      if (Math.abs(modules[i].getAngleMotor().getVoltage()) >= saturationVoltage) {
+        m_angleSaturated[i]++;
+      }
+    }
+    m_windowIndex = (m_windowIndex + 1) % ModuleDiagnosticsConstants.WINDOW_SIZE;
+    m_windowCount = Math.min(m_windowCount + 1, ModuleDiagnosticsConstants.WINDOW_SIZE);
+
+    if (++m_loopsSincePublish >= ModuleDiagnosticsConstants.PUBLISH_PERIOD_LOOPS) {
+      m_loopsSincePublish = 0;
+      publish();
+    }
+  }
+
+  /**
+   * @param module Module index.
+   * @return Whether the module was degraded at the last publish.
+   */
+  public boolean isDegraded(int module) {
+    return m_degraded[module];
+  }
+
+  private void publish() {
+    for (int i = 0; i < m_count; i++) {
+      m_velocityP95[i] = publishPercentiles(m_velocityErrors[i], m_windowCount, m_velocityKeys[i]);
+      m_azimuthP95[i] = publishPercentiles(m_azimuthErrors[i], m_azimuthCount[i], m_azimuthKeys[i]);
+      double lag = m_lagMeters[i].getLag();
+      if (!Double.isNaN(lag)) {
+        Dashboard.putNumber(m_lagKeys[i], lag, Dashboard.Priority.LOW);
+      }
+      Dashboard.putNumber(m_driveSaturatedKeys[i], m_driveSaturated[i], Dashboard.Priority.LOW);
+      Dashboard.putNumber(m_angleSaturatedKeys[i], m_angleSaturated[i], Dashboard.Priority.LOW);
+
+      // The first full window of the power cycle is what the module looked like healthy.
+      if (Double.isNaN(m_velocityBaseline[i]) && m_windowCount == ModuleDiagnosticsConstants.WINDOW_SIZE) {
+        m_velocityBaseline[i] = m_velocityP95[i];
+      }
+      if (Double.isNaN(m_azimuthBaseline[i]) && m_azimuthCount[i] == ModuleDiagnosticsConstants.WINDOW_SIZE) {
+        m_azimuthBaseline[i] = m_azimuthP95[i];
+      }
+    }
+
+    for (int i = 0; i < m_count; i++) {
+      boolean degraded = isWorse(m_velocityP95, i, m_velocityBaseline[i],
+                                 ModuleDiagnosticsConstants.DEGRADED_MIN_VELOCITY_ERROR)
+                         || isWorse(m_azimuthP95, i, m_azimuthBaseline[i],
+                                    ModuleDiagnosticsConstants.DEGRADED_MIN_AZIMUTH_ERROR);
+      if (degraded && !m_degraded[i]) {
+        DriverStation.reportWarning("Swerve module " + m_names[i] + " is degraded, P95 velocity error "
+                                    + m_velocityP95[i] + " m/s, azimuth error " + m_azimuthP95[i] + " rad", false);
+      }
+      m_degraded[i] = degraded;
+      Dashboard.putBoolean(m_degradedKeys[i], degraded, Dashboard.Priority.HIGH);
+    }
+  }
+
+  /**
+   * @return Whether a module's error is past the floor and a multiple of the median other module's or its baseline.
+   */
+  private boolean isWorse(double[] errors, int module, double baseline, double floor) {
+    double error = errors[module];
+    if (Double.isNaN(error) || error < floor) {
+      return false;
+    }
+    int others = 0;
+    for (int j = 0; j < m_count; j++) {
+      if (j != module && !Double.isNaN(errors[j])) {
+        m_others[others++] = errors[j];
+      }
+    }
+    if (others > 0) {
+      Arrays.sort(m_others, 0, others);
+      if (error > ModuleDiagnosticsConstants.DEGRADED_RATIO * m_others[others / 2]) {
+        return true;
+      }
+    }
+    return !Double.isNaN(baseline) && error > ModuleDiagnosticsConstants.DEGRADED_RATIO * baseline;
+  }
+
+  /**
+   * Publish the percentiles of a window.
+   *
+   * @return The 95th percentile, or NaN if the window is empty.
+   */
+  private double publishPercentiles(double[] window, int count, String[] keys) {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    System.arraycopy(window, 0, m_sorted, 0, count);
+    Arrays.sort(m_sorted, 0, count);
+    double p95 = Double.NaN;
+    for (int p = 0; p < PERCENTILES.length; p++) {
+      double value = m_sorted[Math.min(count - 1, (int) (count * PERCENTILES[p]))];
+      Dashboard.putNumber(keys[p], value, Dashboard.Priority.LOW);
+      if (PERCENTILES[p] == 0.95) {
+        p95 = value;
+      }
+    }
+    return p95;
+  }
+}
@@ -0,0 +1,162 @@
+package frc.robot.util;
+
+import com.revrobotics.spark.SparkMax;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.VelocityEstimatorConstants;
+import swervelib.SwerveModule;
+
+/**
+ * Estimates each module's drive and azimuth velocity from timestamped encoder positions, instead of the SPARK MAX's
+ * own velocity measurement.
+ *
+ * <p>The SPARK MAX averages its velocity over a long window, so what it reports trails the wheel by around 110 ms.
+ * Positions aren't filtered, so the slope of a least squares line through the last
+ * {@link VelocityEstimatorConstants#WINDOW_SIZE} positions against their times trails by only half the window. Drive
+ * positions are fit against when their CAN frame arrived, from {@link SparkFrameClock}, so neither the frame's age when
+ * read nor loop jitter shows up in the estimate. The azimuth is fit against read times, and is unwrapped first, so
+ * crossing a full turn doesn't look like a spin.
+ *
+ * <p>The latest states and chassis speeds are replaced, not modified, each {@link #update()}, so whichever thread
+ * drives the modules can read them while the main thread updates.
+ */
+public class ModuleVelocityEstimator {
+  private final SwerveModule[] m_modules;
+  private final SwerveDriveKinematics m_kinematics;
+  private final int m_count;
+  private final SparkFrameClock m_frameClock;
+
+  // Only touched by the main thread.
+  private final double[] m_times;
+  private final double[][] m_driveTimes;
+  private final double[][] m_distances;
+  private final double[][] m_azimuths;
+  private final double[] m_lastRawAzimuth;
+  private final double[] m_driveVelocity;
+  private final double[] m_azimuthVelocity;
+  private int m_index;
+  private int m_samples;
+
+  private volatile SwerveModuleState[] m_states;
+  private volatile ChassisSpeeds m_speeds = new ChassisSpeeds();
+
+  /**
+   * Create an estimator.
+   *
+   * @param modules    The modules.
+   * @param kinematics Kinematics of the same modules, for the chassis speeds.
+   */
+  public ModuleVelocityEstimator(SwerveModule[] modules, SwerveDriveKinematics kinematics) {
+    m_modules = modules;
+    m_kinematics = kinematics;
+    m_count = modules.length;
+    int size = VelocityEstimatorConstants.WINDOW_SIZE;
+    m_times = new double[size];
+    m_driveTimes = new double[m_count][size];
+    m_distances = new double[m_count][size];
+    m_azimuths = new double[m_count][size];
+    m_lastRawAzimuth = new double[m_count];
+    m_driveVelocity = new double[m_count];
+    m_azimuthVelocity = new double[m_count];
+    m_states = new SwerveModuleState[m_count];
+    int[] driveIds = new int[m_count];
+    for (int i = 0; i < m_count; i++) {
+      m_states[i] = new SwerveModuleState();
+      driveIds[i] = modules[i].getDriveMotor().getMotor() instanceof SparkMax driveMotor
+                    ? driveMotor.getDeviceId() : -1;
+    }
+    m_frameClock = new SparkFrameClock(driveIds);
+  }
+
+  /**
+   * Read every module's encoders and update the estimates. Call once per loop from the main thread.
+   */
+  public void update() {
+    int size = VelocityEstimatorConstants.WINDOW_SIZE;
+    m_frameClock.update();
+    double readTime = Timer.getFPGATimestamp();
+    m_times[m_index] = readTime;
+    SwerveModulePosition[] positions = new SwerveModulePosition[m_count];
+    for (int i = 0; i < m_count; i++) {
+      SwerveModulePosition position = m_modules[i].getPosition();
+      positions[i] = position;
+      double rawAzimuth = m_modules[i].getRelativePosition();
+      double previous = m_azimuths[i][(m_index + size - 1) % size];
+      m_distances[i][m_index] = position.distanceMeters;
+      m_driveTimes[i][m_index] = m_frameClock.getFrameTime(i, readTime);
+      m_azimuths[i][m_index] = m_samples == 0
+                               ? rawAzimuth
+                               : previous + Math.IEEEremainder(rawAzimuth - m_lastRawAzimuth[i], 360.0);
+      m_lastRawAzimuth[i] = rawAzimuth;
+    }
+    m_index = (m_index + 1) % size;
+    m_samples = Math.min(m_samples + 1, size);
+
+    SwerveModuleState[] states = new SwerveModuleState[m_count];
+    for (int i = 0; i < m_count; i++) {
+      m_driveVelocity[i] = slope(m_driveTimes[i], m_distances[i], m_driveVelocity[i]);
+      m_azimuthVelocity[i] = slope(m_times, m_azimuths[i], m_azimuthVelocity[i]);
+      states[i] = new SwerveModuleState(m_driveVelocity[i], positions[i].angle);
+    }
+    m_states = states;
+    m_speeds = m_kinematics.toChassisSpeeds(states);
+  }
+
+  /**
+   * Least squares slope of the window's samples against their times.
+   *
+   * @param times    Sample times, s.
+   * @param values   Samples.
+   * @param previous Slope to keep if every sample has the same time.
+   */
+  private double slope(double[] times, double[] values, double previous) {
+    double meanTime = 0.0;
+    double meanValue = 0.0;
+    for (int k = 0; k < m_samples; k++) {
+      meanTime += times[k];
+      meanValue += values[k];
+    }
+    meanTime /= m_samples;
+    meanValue /= m_samples;
+    double timeVariance = 0.0;
+    double covariance = 0.0;
+    for (int k = 0; k < m_samples; k++) {
+      timeVariance += (times[k] - meanTime) * (times[k] - meanTime);
+      covariance += (times[k] - meanTime) * (values[k] - meanValue);
+    }
+    return timeVariance > 0.0 ? covariance / timeVariance : previous;
+  }
+
+  /**
+   * @return Estimated module states, with the measured azimuths. Shared, so callers must not modify them.
+   */
+  public SwerveModuleState[] getStates() {
+    return m_states;
+  }
+
+  /**
+   * @return Robot relative chassis speeds from the estimated module states.
+   */
+  public ChassisSpeeds getRobotVelocity() {
+    return m_speeds;
+  }
+
+  /**
+   * @param module Module index.
+   * @return Estimated drive velocity in meters per second.
+   */
+  public double getDriveVelocity(int module) {
+    return m_driveVelocity[module];
+  }
+
+  /**
+   * @param module Module index.
+   * @return Estimated azimuth velocity in degrees per second.
+   */
+  public double getAzimuthVelocity(int module) {
+    return m_azimuthVelocity[module];
+  }
+}
@@ -0,0 +1,435 @@
+package frc.robot.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pathplanner.lib.events.EventMarker;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPoint;
+import com.pathplanner.lib.util.PathPlannerLogging;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.PathErrorConstants;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records how far the estimated pose is from the {@link com.pathplanner.lib.controllers.PPHolonomicDriveController}
+ * target while {@link com.pathplanner.lib.auto.AutoBuilder} follows a path.
+ *
+ * <p>PathPlanner logs the poses of each path it starts following and the target pose every loop. The logged path is
+ * matched to a path file by its ends, and each loop's translation and rotation errors are counted in fixed bin
+ * histograms for the whole path, for the segment between the waypoints the target is on, and for any event marker
+ * the target is at: the loop it passes a point marker, or every loop inside a zoned one. Nothing allocates while
+ * recording.
+ *
+ * <p>When a path ends its percentiles are published under {@code PathError/<path name>/}, and every histogram is
+ * written to {@link PathErrorConstants#FILE_NAME} on a background thread, so counts add up over matches and practice.
+ * Delete the file to start over. Histograms whose bins or segments no longer match the constants or the path are
+ * dropped when loading.
+ */
+public class PathErrorRecorder {
+  private static final double[] PERCENTILES = {0.50, 0.95, 1.0};
+  private static final String[] PERCENTILE_NAMES = {"P50", "P95", "Max"};
+
+  /**
+   * Counts of an error in fixed width bins. Errors past the last bin are counted in it.
+   */
+  private static final class ErrorHistogram {
+    final double binWidth;
+    final long[] counts;
+    long total;
+
+    ErrorHistogram(double binWidth, int bins) {
+      this.binWidth = binWidth;
+      counts = new long[bins];
+    }
+
+    void add(double error) {
+      counts[Math.min((int) (error / binWidth), counts.length - 1)]++;
+      total++;
+    }
+
+    /**
+     * @return Upper edge of the bin holding the percentile, or NaN with no samples.
+     */
+    double getPercentile(double percentile) {
+      if (total == 0) {
+        return Double.NaN;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile * total));
+      long cumulative = 0;
+      for (int i = 0; i < counts.length; i++) {
+        cumulative += counts[i];
+        if (cumulative >= rank) {
+          return (i + 1) * binWidth;
+        }
+      }
+      return counts.length * binWidth;
+    }
+
+    ArrayNode toJson(ObjectMapper mapper) {
+      ArrayNode json = mapper.createArrayNode();
+      for (long count : counts) {
+        json.add(count);
+      }
+      return json;
+    }
+
+    void load(JsonNode json) {
+      if (json == null || !json.isArray() || json.size() != counts.length) {
+        return;
+      }
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += json.get(i).asLong();
+        total += json.get(i).asLong();
+      }
+    }
+  }
+
+  /**
+   * Translation and rotation error of one part of a path.
+   */
+  private static final class ErrorRecord {
+    final ErrorHistogram translation = new ErrorHistogram(PathErrorConstants.TRANSLATION_BIN_WIDTH,
+                                                          PathErrorConstants.TRANSLATION_BINS);
+    final ErrorHistogram rotation = new ErrorHistogram(PathErrorConstants.ROTATION_BIN_WIDTH,
+                                                       PathErrorConstants.ROTATION_BINS);
+
+    void add(double translationError, double rotationError) {
+      translation.add(translationError);
+      rotation.add(rotationError);
+    }
+
+    ObjectNode toJson(ObjectMapper mapper) {
+      ObjectNode json = mapper.createObjectNode();
+      json.set("translation", translation.toJson(mapper));
+      json.set("rotation", rotation.toJson(mapper));
+      return json;
+    }
+
+    void load(JsonNode json) {
+      if (json == null) {
+        return;
+      }
+      translation.load(json.get("translation"));
+      rotation.load(json.get("rotation"));
+    }
+
+    void publish(String prefix) {
+      for (int p = 0; p < PERCENTILES.length; p++) {
+        Dashboard.putNumber(prefix + "Translation" + PERCENTILE_NAMES[p], translation.getPercentile(PERCENTILES[p]),
+                            Dashboard.Priority.LOW);
+        Dashboard.putNumber(prefix + "Rotation" + PERCENTILE_NAMES[p], rotation.getPercentile(PERCENTILES[p]),
+                            Dashboard.Priority.LOW);
+      }
+      Dashboard.putNumber(prefix + "Samples", translation.total, Dashboard.Priority.LOW);
+    }
+  }
+
+  /**
+   * Everything recorded for one path, shared by both alliances' versions of it.
+   */
+  private static final class PathRecord {
+    final String name;
+    final ErrorRecord path = new ErrorRecord();
+    final ErrorRecord[] segments;
+    final String[] markerNames;
+    final ErrorRecord[] markers;
+    long runs;
+
+    PathRecord(String name, int segmentCount, String[] markerNames) {
+      this.name = name;
+      this.markerNames = markerNames;
+      segments = new ErrorRecord[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        segments[i] = new ErrorRecord();
+      }
+      markers = new ErrorRecord[markerNames.length];
+      for (int i = 0; i < markers.length; i++) {
+        markers[i] = new ErrorRecord();
+      }
+    }
+  }
+
+  /**
+   * One alliance's version of a path: its points, for matching it and finding where along it the target is, and its
+   * event markers.
+   */
+  private static final class PathGeometry {
+    final PathRecord record;
+    final double[] x;
+    final double[] y;
+    final double[] position;
+    final double[] markerStart;
+    final double[] markerEnd;
+    final boolean[] markerZoned;
+    final boolean[] markerPassed;
+
+    PathGeometry(PathRecord record, PathPlannerPath path) {
+      this.record = record;
+      List<PathPoint> points = path.getAllPathPoints();
+      x = new double[points.size()];
+      y = new double[points.size()];
+      position = new double[points.size()];
+      for (int i = 0; i < points.size(); i++) {
+        x[i] = points.get(i).position.getX();
+        y[i] = points.get(i).position.getY();
+        position[i] = points.get(i).waypointRelativePos;
+      }
+      List<EventMarker> markers = path.getEventMarkers();
+      markerStart = new double[markers.size()];
+      markerEnd = new double[markers.size()];
+      markerZoned = new boolean[markers.size()];
+      markerPassed = new boolean[markers.size()];
+      for (int i = 0; i < markers.size(); i++) {
+        markerStart[i] = markers.get(i).position();
+        markerZoned[i] = markers.get(i).endPosition() >= markerStart[i];
+        markerEnd[i] = markerZoned[i] ? markers.get(i).endPosition() : markerStart[i];
+      }
+    }
+
+    boolean endsMatch(List<Pose2d> poses) {
+      int last = x.length - 1;
+      return last >= 0
+             && Math.hypot(poses.get(0).getX() - x[0], poses.get(0).getY() - y[0])
+                <= PathErrorConstants.MATCH_TOLERANCE
+             && Math.hypot(poses.get(poses.size() - 1).getX() - x[last], poses.get(poses.size() - 1).getY() - y[last])
+                <= PathErrorConstants.MATCH_TOLERANCE;
+    }
+
+    double distanceSquared(int point, Pose2d pose) {
+      double dx = pose.getX() - x[point];
+      double dy = pose.getY() - y[point];
+      return dx * dx + dy * dy;
+    }
+  }
+
+  private final Supplier<Pose2d> m_poseSupplier;
+  private final File m_file = new File(Filesystem.getOperatingDirectory(), PathErrorConstants.FILE_NAME);
+  private final ObjectMapper m_mapper = new ObjectMapper();
+  private final Map<String, PathRecord> m_records = new HashMap<>();
+  private final List<PathGeometry> m_geometries = new ArrayList<>();
+
+  // Path being followed, only touched by the main thread.
+  private PathGeometry m_active;
+  private int m_cursor;
+
+  // Latest histograms to write, guarded by this.
+  private ObjectNode m_pendingSave;
+
+  /**
+   * Load the saved histograms, set up a record for every path in {@link AllianceCache} and start listening to
+   * PathPlanner's logging.
+   *
+   * @param poseSupplier Estimated robot pose.
+   */
+  public PathErrorRecorder(Supplier<Pose2d> poseSupplier) {
+    m_poseSupplier = poseSupplier;
+    AllianceCache cache = AllianceCache.getInstance();
+    for (String name : cache.getPathNames()) {
+      PathPlannerPath bluePath = cache.getPath(name, false);
+      List<PathPoint> points = bluePath.getAllPathPoints();
+      double endPosition = points.isEmpty() ? 0.0 : points.get(points.size() - 1).waypointRelativePos;
+      int segmentCount = Math.max(1, (int) Math.ceil(endPosition));
+      List<EventMarker> markers = bluePath.getEventMarkers();
+      String[] markerNames = new String[markers.size()];
+      for (int i = 0; i < markerNames.length; i++) {
+        String trigger = markers.get(i).triggerName();
+        markerNames[i] = trigger == null || trigger.isEmpty() ? "Marker" + i : trigger;
+      }
+      PathRecord record = new PathRecord(name, segmentCount, markerNames);
+      m_records.put(name, record);
+      m_geometries.add(new PathGeometry(record, bluePath));
+      m_geometries.add(new PathGeometry(record, cache.getPath(name, true)));
+    }
+    load();
+
+    PathPlannerLogging.setLogActivePathCallback(this::setActivePath);
+    PathPlannerLogging.setLogTargetPoseCallback(this::recordTarget);
+
+    Thread saveThread = new Thread(this::runSaveThread, "Path Error Save Thread");
+    saveThread.setDaemon(true);
+    saveThread.start();
+  }
+
+  private void setActivePath(List<Pose2d> poses) {
+    if (m_active != null) {
+      finishPath(m_active.record);
+      m_active = null;
+    }
+    if (poses == null || poses.isEmpty()) {
+      return;
+    }
+    // Prefer a path with the same number of points, in case two share their ends.
+    PathGeometry match = null;
+    for (PathGeometry geometry : m_geometries) {
+      if (geometry.endsMatch(poses)) {
+        if (geometry.x.length == poses.size()) {
+          match = geometry;
+          break;
+        }
+        if (match == null) {
+          match = geometry;
+        }
+      }
+    }
+    if (match == null) {
+      // Pathfinding and on the fly paths have no file to record against.
+      return;
+    }
+    m_active = match;
+    m_cursor = 0;
+    Arrays.fill(match.markerPassed, false);
+    match.record.runs++;
+  }
+
+  private void recordTarget(Pose2d target) {
+    PathGeometry active = m_active;
+    if (active == null) {
+      return;
+    }
+    Pose2d pose = m_poseSupplier.get();
+    double translationError = Math.hypot(pose.getX() - target.getX(), pose.getY() - target.getY());
+    double rotationError = Math.abs(MathUtil.angleModulus(pose.getRotation().getRadians()
+                                                          - target.getRotation().getRadians()));
+
+    // The target only moves forward, so walk the cursor to the nearest point from where it was.
+    int cursor = m_cursor;
+    double best = active.distanceSquared(cursor, target);
+    while (cursor + 1 < active.x.length) {
+      double next = active.distanceSquared(cursor + 1, target);
+      if (next > best) {
+        break;
+      }
+      best = next;
+      cursor++;
+    }
+    m_cursor = cursor;
+    double position = active.position.length > 0 ? active.position[cursor] : 0.0;
+
+    PathRecord record = active.record;
+    record.path.add(translationError, rotationError);
+    int segment = MathUtil.clamp((int) position, 0, record.segments.length - 1);
+    record.segments[segment].add(translationError, rotationError);
+    for (int i = 0; i < record.markers.length && i < active.markerStart.length; i++) {
+      if (active.markerZoned[i]) {
+        if (position >= active.markerStart[i] && position <= active.markerEnd[i]) {
+          record.markers[i].add(translationError, rotationError);
+        }
+      } else if (!active.markerPassed[i] && position >= active.markerStart[i]) {
+        active.markerPassed[i] = true;
+        record.markers[i].add(translationError, rotationError);
+      }
+    }
+  }
+
+  /**
+   * Publish a path's percentiles and queue every histogram to be written.
+   */
+  private void finishPath(PathRecord record) {
+    String prefix = "PathError/" + record.name + "/";
+    Dashboard.putNumber(prefix + "Runs", record.runs, Dashboard.Priority.LOW);
+    record.path.publish(prefix);
+    for (int i = 0; i < record.segments.length; i++) {
+      record.segments[i].publish(prefix + "Segment" + i + "/");
+    }
+    for (int i = 0; i < record.markers.length; i++) {
+      record.markers[i].publish(prefix + "Marker/" + record.markerNames[i] + "/");
+    }
+
+    ObjectNode json = toJson();
+    synchronized (this) {
+      m_pendingSave = json;
+      notifyAll();
+    }
+  }
+
+  private ObjectNode toJson() {
+    ObjectNode json = m_mapper.createObjectNode();
+    for (PathRecord record : m_records.values()) {
+      if (record.runs == 0) {
+        continue;
+      }
+      ObjectNode pathJson = json.putObject(record.name);
+      pathJson.put("runs", record.runs);
+      pathJson.set("path", record.path.toJson(m_mapper));
+      ArrayNode segments = pathJson.putArray("segments");
+      for (ErrorRecord segment : record.segments) {
+        segments.add(segment.toJson(m_mapper));
+      }
+      ArrayNode markers = pathJson.putArray("markers");
+      for (int i = 0; i < record.markers.length; i++) {
+        markers.add(record.markers[i].toJson(m_mapper).put("name", record.markerNames[i]));
+      }
+    }
+    return json;
+  }
+
+  private void load() {
+    if (!m_file.exists()) {
+      return;
+    }
+    try {
+      JsonNode json = m_mapper.readTree(m_file);
+      for (PathRecord record : m_records.values()) {
+        JsonNode pathJson = json.get(record.name);
+        if (pathJson == null) {
+          continue;
+        }
+        record.runs = pathJson.path("runs").asLong();
+        record.path.load(pathJson.get("path"));
+        JsonNode segments = pathJson.path("segments");
+        if (segments.size() == record.segments.length) {
+          for (int i = 0; i < record.segments.length; i++) {
+            record.segments[i].load(segments.get(i));
+          }
+        }
+        JsonNode markers = pathJson.path("markers");
+        for (int i = 0; i < record.markers.length && i < markers.size(); i++) {
+          if (record.markerNames[i].equals(markers.get(i).path("name").asText())) {
+            record.markers[i].load(markers.get(i));
+          }
+        }
+      }
+    } catch (Exception e) {
+      DriverStation.reportError("PathErrorRecorder could not load " + m_file + ": " + e, false);
+    }
+  }
+
+  private void runSaveThread() {
+    File temp = new File(m_file.getPath() + ".tmp");
+    while (!Thread.currentThread().isInterrupted()) {
+      ObjectNode json;
+      synchronized (this) {
+        try {
+          while (m_pendingSave == null) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          return;
+        }
+        json = m_pendingSave;
+        m_pendingSave = null;
+      }
+      try {
+        // Write a copy and move it over, so a brownout mid write can't lose the histograms already saved.
+        m_mapper.writeValue(temp, json);
+        Files.move(temp.toPath(), m_file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+      } catch (Exception e) {
+        DriverStation.reportError("PathErrorRecorder could not save " + m_file + ": " + e, false);
+      }
+    }
+  }
+}
@@ -0,0 +1,279 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.PowerDistribution;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import frc.robot.Constants.PowerConstants;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits the current the battery can deliver between the drivetrain and the mechanisms, so a sagging battery costs
+ * the least important mechanism some torque instead of browning out the robot.
+ *
+ * <p>The battery is modelled as an open circuit voltage behind an internal resistance, both fitted each loop from
+ * the measured voltage and total current with exponentially weighted least squares. That gives the most current that
+ * keeps the voltage {@link PowerConstants#BROWNOUT_MARGIN} above the roboRIO brownout voltage. Consumers are then
+ * served in priority order: each may use what is left after the measured draw of more important consumers, minus the
+ * minimum reserved for less important ones.
+ *
+ * <p>New limits are written to the motor controllers on a background thread, since configuring a controller waits for
+ * it to acknowledge over CAN. Lower limits are pushed right away, higher ones at most every
+ * {@link PowerConstants#RAISE_PERIOD}.
+ */
+public final class PowerManager {
+  private static PowerManager s_instance;
+
+  /**
+   * A group of motors sharing one current limit.
+   */
+  private static final class Consumer {
+    final String name;
+    final int priority;
+    final int motorCount;
+    final int minLimit;
+    final int maxLimit;
+    final DoubleSupplier current;
+    final IntConsumer applyLimit;
+    double measuredCurrent;
+    double lastRaiseTime = Double.NEGATIVE_INFINITY;
+    // Handed to the push thread, guarded by the manager.
+    int requestedLimit;
+    // Push thread only.
+    int appliedLimit;
+
+    Consumer(String name, int priority, int motorCount, int minLimit, int maxLimit, DoubleSupplier current,
+             IntConsumer applyLimit) {
+      this.name = name;
+      this.priority = priority;
+      this.motorCount = motorCount;
+      this.minLimit = minLimit;
+      this.maxLimit = maxLimit;
+      this.current = current;
+      this.applyLimit = applyLimit;
+      this.requestedLimit = maxLimit;
+      this.appliedLimit = maxLimit;
+    }
+  }
+
+  private final List<Consumer> m_consumers = new ArrayList<>();
+  private final PowerDistribution m_powerDistribution = new PowerDistribution();
+
+  // Exponentially weighted sums for the least squares fit of voltage against current.
+  private double m_weight;
+  private double m_sumCurrent;
+  private double m_sumVoltage;
+  private double m_sumCurrentSquared;
+  private double m_sumCurrentVoltage;
+  private double m_resistance = PowerConstants.INITIAL_RESISTANCE;
+  private double m_openCircuitVoltage = PowerConstants.INITIAL_OPEN_CIRCUIT_VOLTAGE;
+
+  private double m_lastTime = Double.NaN;
+  private double m_lastTotalCurrent;
+  private double m_currentSlope;
+  private boolean m_pushPending;
+
+  /**
+   * Use {@link #getInstance()}. Package private so tests can run a manager of their own.
+   */
+  PowerManager() {
+    Thread pushThread = new Thread(this::runPushThread, "Current Limit Push Thread");
+    pushThread.setDaemon(true);
+    pushThread.start();
+  }
+
+  /**
+   * @return The shared power manager, created the first time it is called.
+   */
+  public static synchronized PowerManager getInstance() {
+    if (s_instance == null) {
+      s_instance = new PowerManager();
+    }
+    return s_instance;
+  }
+
+  /**
+   * Manage the current limit of a group of motors. The limit starts at {@code maxLimit}, which should match what the
+   * controllers were configured with.
+   *
+   * @param name       Name for telemetry.
+   * @param priority   Lower numbers keep their current longer when the battery sags.
+   * @param motorCount Motors sharing the limit.
+   * @param minLimit   Lowest per motor limit, A. Always reserved for this consumer.
+   * @param maxLimit   Highest per motor limit, A.
+   * @param current    Total measured current of the motors, A. Called on the main thread.
+   * @param applyLimit Set the per motor limit on the controllers. Called on the push thread and may block.
+   */
+  public synchronized void register(String name, int priority, int motorCount, int minLimit, int maxLimit,
+                                    DoubleSupplier current, IntConsumer applyLimit) {
+    m_consumers.add(new Consumer(name, priority, motorCount, minLimit, maxLimit, current, applyLimit));
+    m_consumers.sort(Comparator.comparingInt(consumer -> consumer.priority));
+  }
+
+  /**
+   * Refit the battery model and reallocate current. Call once per loop.
+   */
+  public void update() {
+    double now = Timer.getFPGATimestamp();
+    double voltage = RobotController.getBatteryVoltage();
+    double consumerCurrent = 0.0;
+    synchronized (this) {
+      for (int i = 0; i < m_consumers.size(); i++) {
+        Consumer consumer = m_consumers.get(i);
+        consumer.measuredCurrent = consumer.current.getAsDouble();
+        consumerCurrent += consumer.measuredCurrent;
+      }
+    }
+    // The power distribution board also sees the steering motors and electronics, but reads zero in simulation.
+    double totalCurrent = Math.max(m_powerDistribution.getTotalCurrent(), consumerCurrent);
+
+    if (!Double.isNaN(m_lastTime) && now > m_lastTime) {
+      double dt = now - m_lastTime;
+      fitBattery(voltage, totalCurrent, Math.exp(-dt / PowerConstants.ESTIMATOR_TIME_CONSTANT));
+      double slope = (totalCurrent - m_lastTotalCurrent) / dt;
+      double alpha = dt / (PowerConstants.CURRENT_SLOPE_TIME_CONSTANT + dt);
+      m_currentSlope += alpha * (slope - m_currentSlope);
+    }
+    m_lastTime = now;
+    m_lastTotalCurrent = totalCurrent;
+
+    double minVoltage = RobotController.getBrownoutVoltage() + PowerConstants.BROWNOUT_MARGIN;
+    double availableCurrent = Math.max(0.0, (m_openCircuitVoltage - minVoltage) / m_resistance);
+    double predictedCurrent = totalCurrent + Math.max(0.0, m_currentSlope) * PowerConstants.CURRENT_LOOKAHEAD;
+    double predictedVoltage = m_openCircuitVoltage - m_resistance * predictedCurrent;
+
+    allocate(now, availableCurrent, Math.max(0.0, totalCurrent - consumerCurrent));
+
+    Dashboard.putNumber("Power/OpenCircuitVoltage", m_openCircuitVoltage, Dashboard.Priority.LOW);
+    Dashboard.putNumber("Power/Resistance", m_resistance, Dashboard.Priority.LOW);
+    Dashboard.putNumber("Power/AvailableCurrent", availableCurrent, Dashboard.Priority.LOW);
+    Dashboard.putNumber("Power/PredictedVoltage", predictedVoltage, Dashboard.Priority.NORMAL);
+    Dashboard.putBoolean("Power/BrownoutRisk", predictedVoltage < minVoltage, Dashboard.Priority.HIGH);
+  }
+
+  /**
+   * Fold one sample into the weighted sums and refit voltage = openCircuitVoltage - resistance * current. The
+   * resistance is only refit when the current has varied enough to tell it apart from noise.
+   */
+  private void fitBattery(double voltage, double current, double decay) {
+    m_weight = m_weight * decay + 1.0;
+    m_sumCurrent = m_sumCurrent * decay + current;
+    m_sumVoltage = m_sumVoltage * decay + voltage;
+    m_sumCurrentSquared = m_sumCurrentSquared * decay + current * current;
+    m_sumCurrentVoltage = m_sumCurrentVoltage * decay + current * voltage;
+
+    double meanCurrent = m_sumCurrent / m_weight;
+    double meanVoltage = m_sumVoltage / m_weight;
+    double currentVariance = m_sumCurrentSquared / m_weight - meanCurrent * meanCurrent;
+    if (currentVariance > PowerConstants.MIN_CURRENT_VARIANCE) {
+      double covariance = m_sumCurrentVoltage / m_weight - meanCurrent * meanVoltage;
+      m_resistance = Math.min(PowerConstants.MAX_RESISTANCE,
+                              Math.max(PowerConstants.MIN_RESISTANCE, -covariance / currentVariance));
+    }
+    m_openCircuitVoltage = meanVoltage + m_resistance * meanCurrent;
+  }
+
+  private synchronized void allocate(double now, double availableCurrent, double baselineCurrent) {
+    double reservedBelow = 0.0;
+    for (int i = 0; i < m_consumers.size(); i++) {
+      Consumer consumer = m_consumers.get(i);
+      reservedBelow += consumer.minLimit * consumer.motorCount;
+    }
+
+    double usedAbove = baselineCurrent;
+    boolean changed = false;
+    for (int i = 0; i < m_consumers.size(); i++) {
+      Consumer consumer = m_consumers.get(i);
+      reservedBelow -= consumer.minLimit * consumer.motorCount;
+      double budget = (availableCurrent - usedAbove - reservedBelow) / consumer.motorCount;
+      int limit = (int) Math.max(consumer.minLimit, Math.min(consumer.maxLimit, Math.floor(budget)));
+      usedAbove += consumer.measuredCurrent;
+
+      // Cut current right away, but give it back slowly so the limit doesn't chatter with the draw.
+      boolean lower = limit <= consumer.requestedLimit - PowerConstants.LIMIT_STEP;
+      boolean raise = limit >= consumer.requestedLimit + PowerConstants.LIMIT_STEP
+                      || (limit == consumer.maxLimit && limit > consumer.requestedLimit);
+      if (lower || (raise && now - consumer.lastRaiseTime >= PowerConstants.RAISE_PERIOD)) {
+        if (raise) {
+          consumer.lastRaiseTime = now;
+        }
+        consumer.requestedLimit = limit;
+        changed = true;
+      }
+      Dashboard.putNumber("Power/" + consumer.name + "/Limit", consumer.requestedLimit, Dashboard.Priority.NORMAL);
+      Dashboard.putNumber("Power/" + consumer.name + "/Current", consumer.measuredCurrent, Dashboard.Priority.LOW);
+    }
+    if (changed) {
+      m_pushPending = true;
+      notifyAll();
+    }
+  }
+
+  /**
+   * @return Total measured current of every registered consumer, A, as of the last {@link #update()}.
+   */
+  public synchronized double getConsumerCurrent() {
+    double current = 0.0;
+    for (int i = 0; i < m_consumers.size(); i++) {
+      current += m_consumers.get(i).measuredCurrent;
+    }
+    return current;
+  }
+
+  /**
+   * @param name Name the consumer was registered with.
+   * @return The consumer's latest per motor limit, A, which may not have been pushed yet.
+   */
+  synchronized int getLimit(String name) {
+    for (int i = 0; i < m_consumers.size(); i++) {
+      if (m_consumers.get(i).name.equals(name)) {
+        return m_consumers.get(i).requestedLimit;
+      }
+    }
+    throw new IllegalArgumentException("No power consumer named " + name);
+  }
+
+  /**
+   * Sag the simulated battery under the consumers' current, so the model and allocation run in simulation.
+   */
+  public void simulationPeriodic() {
+    RoboRioSim.setVInVoltage(BatterySim.calculateDefaultBatteryLoadedVoltage(getConsumerCurrent()));
+  }
+
+  private void runPushThread() {
+    List<Consumer> pending = new ArrayList<>();
+    int[] limits = new int[0];
+    while (!Thread.currentThread().isInterrupted()) {
+      synchronized (this) {
+        try {
+          while (!m_pushPending) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          return;
+        }
+        m_pushPending = false;
+        pending.clear();
+        pending.addAll(m_consumers);
+        if (limits.length < pending.size()) {
+          limits = new int[pending.size()];
+        }
+        for (int i = 0; i < pending.size(); i++) {
+          limits[i] = pending.get(i).requestedLimit;
+        }
+      }
+      for (int i = 0; i < pending.size(); i++) {
+        Consumer consumer = pending.get(i);
+        if (limits[i] != consumer.appliedLimit) {
+          consumer.applyLimit.accept(limits[i]);
+          consumer.appliedLimit = limits[i];
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package frc.robot.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * The robot's state as of the last main loop, shared with every thread through a sequence lock. The main loop is the
+ * only writer. Readers copy into their own {@link Snapshot} and retry if a write happened while they were
+ * copying, so reading never blocks the writer and never allocates.
+ */
+public final class RobotState {
+  public static final int MODULE_COUNT = 4;
+
+  private static final RobotState s_instance = new RobotState();
+
+  /**
+   * Primitive copy of the robot state. Create one per reader and reuse it.
+   */
+  public static final class Snapshot {
+    /** FPGA time the state was captured, s. */
+    public double timestamp;
+    /** Estimated field pose, m and rad. */
+    public double poseX;
+    public double poseY;
+    public double poseTheta;
+    /** Robot relative velocity, m/s and rad/s. */
+    public double robotVx;
+    public double robotVy;
+    public double omega;
+    /** Field relative velocity, m/s. */
+    public double fieldVx;
+    public double fieldVy;
+    /** Measured module speeds (m/s) and angles (rad), in YAGSL module order. */
+    public final double[] moduleSpeeds = new double[MODULE_COUNT];
+    public final double[] moduleAngles = new double[MODULE_COUNT];
+    /** Gyro yaw the pose was estimated with, and raw pitch and roll, rad. */
+    public double gyroYaw;
+    public double gyroPitch;
+    public double gyroRoll;
+    /** Mechanism configuration, which moves the center of mass. Raised until the first publish, to be safe. */
+    public boolean armRaised = true;
+    public boolean climberDeployed = true;
+
+    /**
+     * Copy every field from another snapshot.
+     *
+     * @param other The snapshot to copy.
+     */
+    public void copyFrom(Snapshot other) {
+      timestamp = other.timestamp;
+      poseX = other.poseX;
+      poseY = other.poseY;
+      poseTheta = other.poseTheta;
+      robotVx = other.robotVx;
+      robotVy = other.robotVy;
+      omega = other.omega;
+      fieldVx = other.fieldVx;
+      fieldVy = other.fieldVy;
+      for (int i = 0; i < MODULE_COUNT; i++) {
+        moduleSpeeds[i] = other.moduleSpeeds[i];
+        moduleAngles[i] = other.moduleAngles[i];
+      }
+      gyroYaw = other.gyroYaw;
+      gyroPitch = other.gyroPitch;
+      gyroRoll = other.gyroRoll;
+      armRaised = other.armRaised;
+      climberDeployed = other.climberDeployed;
+    }
+  }
+
+  private final Snapshot m_data = new Snapshot();
+  // Odd while a write is in progress.
+  private volatile long m_sequence;
+
+  private RobotState() {}
+
+  /**
+   * @return The shared robot state.
+   */
+  public static RobotState getInstance() {
+    return s_instance;
+  }
+
+  /**
+   * Publish a new state. Must only be called from the main robot loop.
+   *
+   * @param state The state to publish. Copied, so the caller can reuse it.
+   */
+  public void publish(Snapshot state) {
+    long sequence = m_sequence;
+    m_sequence = sequence + 1;
+    // Keep the field writes from moving above the odd sequence number.
+    VarHandle.storeStoreFence();
+    m_data.copyFrom(state);
+    m_sequence = sequence + 2;
+  }
+
+  /**
+   * Read a consistent copy of the latest state. Safe to call from any thread.
+   *
+   * @param out Snapshot to copy into.
+   */
+  public void read(Snapshot out) {
+    while (true) {
+      long before = m_sequence;
+      if ((before & 1) == 0) {
+        out.copyFrom(m_data);
+        // Keep the field reads from moving below the second sequence read.
+        VarHandle.loadLoadFence();
+        if (m_sequence == before) {
+          return;
+        }
+      }
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * @return How many states have been published, for readers that want to know if anything changed.
+   */
+  public long getVersion() {
+    return m_sequence >>> 1;
+  }
+}
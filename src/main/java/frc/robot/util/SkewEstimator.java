@@ -0,0 +1,139 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.SkewConstants;
+
+/**
+ * Estimates YAGSL's angular velocity compensation coefficient from normal driving.
+ *
+ * <p>While the robot spins, a robot relative command is out of date by the time the modules act on it, so the robot
+ * translates in a direction rotated from the commanded one by about {@code omega * latency}. YAGSL rotates each
+ * command back by {@code omega * coefficient}, which leaves a skew of {@code omega * (latency - coefficient)}. Each
+ * loop that is spinning and translating, the angle from the commanded field relative direction to the measured one is
+ * a sample of that skew, and a least squares line through the origin against {@code omega} gives
+ * {@code latency - coefficient}. Old samples fade over {@link SkewConstants#TIME_CONSTANT}, so the estimate follows
+ * latency as the code load changes.
+ */
+public class SkewEstimator {
+  private double m_appliedCoefficient;
+
+  // Latest field relative command, written by whichever thread drives the modules.
+  private double m_commandVx;
+  private double m_commandVy;
+  private boolean m_hasCommand;
+
+  private double m_lastCommandAngle = Double.NaN;
+  private double m_lastHeading;
+  private double m_lastTime = Double.NaN;
+  private double m_sumSkewOmega;
+  private double m_sumOmegaSquared;
+
+  /**
+   * Create an estimator.
+   *
+   * @param appliedCoefficient Coefficient YAGSL is using now.
+   */
+  public SkewEstimator(double appliedCoefficient) {
+    m_appliedCoefficient = appliedCoefficient;
+  }
+
+  /**
+   * Record the command sent to the drive.
+   *
+   * @param robotRelative Robot relative speeds, before YAGSL's compensation.
+   * @param heading       Odometry heading the command was converted with.
+   */
+  public synchronized void recordCommand(ChassisSpeeds robotRelative, Rotation2d heading) {
+    double vx = robotRelative.vxMetersPerSecond;
+    double vy = robotRelative.vyMetersPerSecond;
+    m_commandVx = vx * heading.getCos() - vy * heading.getSin();
+    m_commandVy = vx * heading.getSin() + vy * heading.getCos();
+    m_hasCommand = true;
+  }
+
+  /**
+   * Compare the last command with the measured motion and update the fit. Call once per loop.
+   *
+   * @param fieldVelocity Measured field relative velocity.
+   * @param heading       Odometry heading.
+   */
+  public void update(ChassisSpeeds fieldVelocity, Rotation2d heading) {
+    double now = Timer.getFPGATimestamp();
+    double dt = now - m_lastTime;
+    double omega = MathUtil.angleModulus(heading.getRadians() - m_lastHeading) / dt;
+    m_lastTime = now;
+    m_lastHeading = heading.getRadians();
+
+    double commandVx;
+    double commandVy;
+    synchronized (this) {
+      if (!m_hasCommand) {
+        return;
+      }
+      commandVx = m_commandVx;
+      commandVy = m_commandVy;
+    }
+    double commandAngle = Math.atan2(commandVy, commandVx);
+    double commandTurnRate = Double.isNaN(m_lastCommandAngle)
+                             ? Double.POSITIVE_INFINITY
+                             : Math.abs(MathUtil.angleModulus(commandAngle - m_lastCommandAngle)) / dt;
+    m_lastCommandAngle = commandAngle;
+    if (!(dt > 0.0) || Math.abs(omega) < SkewConstants.MIN_OMEGA
+        || Math.hypot(commandVx, commandVy) < SkewConstants.MIN_SPEED
+        || Math.hypot(fieldVelocity.vxMetersPerSecond, fieldVelocity.vyMetersPerSecond) < SkewConstants.MIN_SPEED
+        || commandTurnRate > SkewConstants.MAX_COMMAND_TURN_RATE) {
+      return;
+    }
+
+    double measuredAngle = Math.atan2(fieldVelocity.vyMetersPerSecond, fieldVelocity.vxMetersPerSecond);
+    double skew = MathUtil.angleModulus(measuredAngle - commandAngle);
+    if (Math.abs(skew) > SkewConstants.MAX_SKEW) {
+      // Pushed, or still accelerating toward a new direction.
+      return;
+    }
+    double decay = Math.exp(-dt / SkewConstants.TIME_CONSTANT);
+    m_sumSkewOmega = m_sumSkewOmega * decay + skew * omega;
+    m_sumOmegaSquared = m_sumOmegaSquared * decay + omega * omega;
+
+    Dashboard.putNumber("Skew/Coefficient", getEstimate(), Dashboard.Priority.NORMAL);
+    Dashboard.putNumber("Skew/AppliedCoefficient", m_appliedCoefficient, Dashboard.Priority.LOW);
+    Dashboard.putNumber("Skew/Information", m_sumOmegaSquared, Dashboard.Priority.LOW);
+    Dashboard.putBoolean("Skew/Confident", isConfident(), Dashboard.Priority.LOW);
+  }
+
+  /**
+   * @return Coefficient that would remove the skew seen so far, or the applied one before there are samples.
+   */
+  public double getEstimate() {
+    if (m_sumOmegaSquared <= 0.0) {
+      return m_appliedCoefficient;
+    }
+    return MathUtil.clamp(m_appliedCoefficient + m_sumSkewOmega / m_sumOmegaSquared,
+                          SkewConstants.MIN_COEFFICIENT, SkewConstants.MAX_COEFFICIENT);
+  }
+
+  /**
+   * @return Whether enough spinning has been seen recently to trust {@link #getEstimate()}.
+   */
+  public boolean isConfident() {
+    return m_sumOmegaSquared >= SkewConstants.MIN_INFORMATION;
+  }
+
+  /**
+   * Tell the estimator YAGSL is now using a different coefficient. The samples so far are shifted to match, since the
+   * skew they measured was relative to the old one.
+   *
+   * @param coefficient Coefficient now applied.
+   */
+  public void setAppliedCoefficient(double coefficient) {
+    m_sumSkewOmega -= (coefficient - m_appliedCoefficient) * m_sumOmegaSquared;
+    m_appliedCoefficient = coefficient;
+  }
+
+  public double getAppliedCoefficient() {
+    return m_appliedCoefficient;
+  }
+}
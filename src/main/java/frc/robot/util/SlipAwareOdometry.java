@@ -0,0 +1,209 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.OdometryConstants;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Pose estimator that doesn't trust a module whose wheel disagrees with the others.
+ *
+ * <p>The gyro gives the rotation each update, so every module's displacement, less that rotation, implies a
+ * translation of the robot center. For a rigid robot with gripping wheels those all agree. The fit starts from the
+ * median, and a module is down-weighted as its residual grows past {@link OdometryConstants#SLIP_VELOCITY} and
+ * excluded at twice that. The estimator is then fed positions where each module's motion is blended toward what the
+ * fit says it should have been, so a spinning or dragged wheel barely moves the pose.
+ *
+ * <p>Skids, updates where a module was excluded, and collisions, where the IMU measures more horizontal acceleration
+ * than the wheels could produce, are counted and published under {@code Odometry/}.
+ */
+public class SlipAwareOdometry {
+  private static final double GRAVITY = 9.81; // m/s^2
+
+  private final Translation2d[] m_moduleLocations;
+  private final SwerveDrivePoseEstimator m_estimator;
+  private final SwerveModulePosition[] m_lastRaw;
+  private final SwerveModulePosition[] m_fed;
+  private final double[] m_translationX;
+  private final double[] m_translationY;
+  private final double[] m_sorted;
+  private final double[] m_weights;
+
+  private Rotation2d m_lastYaw;
+  private double m_lastTime = Double.NaN;
+  private boolean m_wasSkidding;
+  private boolean m_wasColliding;
+  private long m_skidCount;
+  private long m_collisionCount;
+
+  /**
+   * Create the estimator.
+   *
+   * @param kinematics  Drive kinematics.
+   * @param yaw         Current gyro yaw.
+   * @param positions   Current module positions, in the same order as the kinematics.
+   * @param initialPose Starting pose.
+   */
+  public SlipAwareOdometry(SwerveDriveKinematics kinematics, Rotation2d yaw, SwerveModulePosition[] positions,
+                           Pose2d initialPose) {
+    m_moduleLocations = kinematics.getModules();
+    int count = m_moduleLocations.length;
+    m_lastRaw = new SwerveModulePosition[count];
+    m_fed = new SwerveModulePosition[count];
+    m_translationX = new double[count];
+    m_translationY = new double[count];
+    m_sorted = new double[count];
+    m_weights = new double[count];
+    copyPositions(positions);
+    m_lastYaw = yaw;
+    m_estimator = new SwerveDrivePoseEstimator(kinematics, yaw, m_fed, initialPose);
+  }
+
+  /**
+   * Fold in one odometry update. Call every loop.
+   *
+   * @param yaw       Gyro yaw.
+   * @param positions Raw module positions.
+   * @param accel     IMU acceleration in the robot frame, m/s^2, if the IMU has one.
+   */
+  public void update(Rotation2d yaw, SwerveModulePosition[] positions, Optional<Translation3d> accel) {
+    double now = Timer.getFPGATimestamp();
+    double dt = Double.isNaN(m_lastTime) ? 0.0 : now - m_lastTime;
+    m_lastTime = now;
+    double dTheta = MathUtil.angleModulus(yaw.getRadians() - m_lastYaw.getRadians());
+    m_lastYaw = yaw;
+
+    int count = m_moduleLocations.length;
+    for (int i = 0; i < count; i++) {
+      double distance = positions[i].distanceMeters - m_lastRaw[i].distanceMeters;
+      double angle = positions[i].angle.getRadians();
+      // Displacement of the module, less the part the gyro says came from rotating about the center.
+      m_translationX[i] = distance * Math.cos(angle) + dTheta * m_moduleLocations[i].getY();
+      m_translationY[i] = distance * Math.sin(angle) - dTheta * m_moduleLocations[i].getX();
+    }
+    double fitX = median(m_translationX);
+    double fitY = median(m_translationY);
+
+    double threshold = Math.max(OdometryConstants.SLIP_VELOCITY * dt,
+                                OdometryConstants.SLIP_RATIO * Math.hypot(fitX, fitY));
+    double weightSum = 0.0;
+    double weightedX = 0.0;
+    double weightedY = 0.0;
+    int excluded = 0;
+    for (int i = 0; i < count; i++) {
+      double residual = Math.hypot(m_translationX[i] - fitX, m_translationY[i] - fitY);
+      // Full weight inside the threshold, fading to nothing at twice it.
+      m_weights[i] = threshold > 0.0 ? MathUtil.clamp(2.0 - residual / threshold, 0.0, 1.0) : 1.0;
+      if (m_weights[i] == 0.0) {
+        excluded++;
+      }
+      weightSum += m_weights[i];
+      weightedX += m_weights[i] * m_translationX[i];
+      weightedY += m_weights[i] * m_translationY[i];
+    }
+    if (weightSum > 0.0) {
+      fitX = weightedX / weightSum;
+      fitY = weightedY / weightSum;
+    }
+
+    for (int i = 0; i < count; i++) {
+      // Blend what the module measured with the motion the fit predicts for it.
+      double rotationX = -dTheta * m_moduleLocations[i].getY();
+      double rotationY = dTheta * m_moduleLocations[i].getX();
+      double weight = m_weights[i];
+      double fedX = rotationX + weight * m_translationX[i] + (1.0 - weight) * fitX;
+      double fedY = rotationY + weight * m_translationY[i] + (1.0 - weight) * fitY;
+      double fedDistance = Math.hypot(fedX, fedY);
+      Rotation2d fedAngle = fedDistance > 1e-9 ? new Rotation2d(fedX, fedY) : positions[i].angle;
+      m_fed[i] = new SwerveModulePosition(m_fed[i].distanceMeters + fedDistance, fedAngle);
+      m_lastRaw[i] = positions[i];
+    }
+    m_estimator.update(yaw, m_fed);
+
+    boolean skidding = excluded > 0;
+    if (skidding && !m_wasSkidding) {
+      m_skidCount++;
+    }
+    m_wasSkidding = skidding;
+
+    boolean colliding = accel.isPresent()
+                        && Math.hypot(accel.get().getX(), accel.get().getY())
+                           > OdometryConstants.COLLISION_ACCELERATION_G * GRAVITY;
+    if (colliding && !m_wasColliding) {
+      m_collisionCount++;
+    }
+    m_wasColliding = colliding;
+
+    Dashboard.putNumber("Odometry/ExcludedModules", excluded, Dashboard.Priority.LOW);
+    Dashboard.putBoolean("Odometry/Skidding", skidding, Dashboard.Priority.NORMAL);
+    Dashboard.putNumber("Odometry/SkidCount", m_skidCount, Dashboard.Priority.NORMAL);
+    Dashboard.putBoolean("Odometry/Colliding", colliding, Dashboard.Priority.NORMAL);
+    Dashboard.putNumber("Odometry/CollisionCount", m_collisionCount, Dashboard.Priority.NORMAL);
+  }
+
+  /**
+   * @return The estimated pose.
+   */
+  public Pose2d getPose() {
+    return m_estimator.getEstimatedPosition();
+  }
+
+  /**
+   * Reset the estimate to a pose.
+   *
+   * @param yaw       Current gyro yaw.
+   * @param positions Current raw module positions.
+   * @param pose      Pose to reset to.
+   */
+  public void resetPose(Rotation2d yaw, SwerveModulePosition[] positions, Pose2d pose) {
+    copyPositions(positions);
+    m_lastYaw = yaw;
+    m_estimator.resetPosition(yaw, m_fed, pose);
+  }
+
+  /**
+   * Fuse a vision pose measurement with the estimator's default standard deviations.
+   *
+   * @param visionPose       Robot pose measured by vision.
+   * @param timestampSeconds FPGA timestamp of when the measurement was captured.
+   */
+  public void addVisionMeasurement(Pose2d visionPose, double timestampSeconds) {
+    m_estimator.addVisionMeasurement(visionPose, timestampSeconds);
+  }
+
+  /**
+   * Fuse a vision pose measurement.
+   *
+   * @param visionPose       Robot pose measured by vision.
+   * @param timestampSeconds FPGA timestamp of when the measurement was captured.
+   * @param stdDevs          Standard deviations of the measurement in x, y and heading.
+   */
+  public void addVisionMeasurement(Pose2d visionPose, double timestampSeconds, Matrix<N3, N1> stdDevs) {
+    m_estimator.addVisionMeasurement(visionPose, timestampSeconds, stdDevs);
+  }
+
+  private void copyPositions(SwerveModulePosition[] positions) {
+    for (int i = 0; i < positions.length; i++) {
+      m_lastRaw[i] = positions[i];
+      m_fed[i] = new SwerveModulePosition(positions[i].distanceMeters, positions[i].angle);
+    }
+  }
+
+  private double median(double[] values) {
+    System.arraycopy(values, 0, m_sorted, 0, values.length);
+    Arrays.sort(m_sorted);
+    int middle = m_sorted.length / 2;
+    return m_sorted.length % 2 == 0 ? (m_sorted[middle - 1] + m_sorted[middle]) / 2 : m_sorted[middle];
+  }
+}
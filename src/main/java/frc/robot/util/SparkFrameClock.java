@@ -0,0 +1,98 @@
+package frc.robot.util;
+
+import edu.wpi.first.hal.can.CANJNI;
+import edu.wpi.first.hal.can.CANStreamMessage;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.VelocityEstimatorConstants;
+import java.util.Arrays;
+
+/**
+ * When each SPARK MAX last sent the status frame carrying its encoder position, from a CAN stream session on that
+ * frame.
+ *
+ * <p>REVLib returns the latest position without saying when it was measured. The loop reads it up to a status period
+ * after it arrived, plus however late the scheduler runs. Fitting positions against their frame's arrival time
+ * instead of the read time keeps both out of the velocity estimate. The HAL stamps frames to the millisecond.
+ *
+ * <p>In simulation, and for a controller whose frames stop arriving, {@link #getFrameTime} falls back to the read
+ * time. Whether every controller has a recent frame is published as {@code Velocity/FrameTimes}.
+ */
+public class SparkFrameClock {
+  private static final int ID_MASK = 0x1FFFFFFF;
+  private static final int MAX_MESSAGES = 8;
+
+  private final int[] m_sessions;
+  private final double[] m_frameTimes;
+  private final CANStreamMessage[] m_messages = new CANStreamMessage[MAX_MESSAGES];
+
+  /**
+   * Open a stream session on each controller's position frame.
+   *
+   * @param deviceIds CAN IDs of the SPARK MAXes, or -1 for a module without one.
+   */
+  public SparkFrameClock(int[] deviceIds) {
+    m_sessions = new int[deviceIds.length];
+    m_frameTimes = new double[deviceIds.length];
+    Arrays.fill(m_sessions, -1);
+    Arrays.fill(m_frameTimes, Double.NEGATIVE_INFINITY);
+    for (int i = 0; i < m_messages.length; i++) {
+      m_messages[i] = new CANStreamMessage();
+    }
+    if (!RobotBase.isReal()) {
+      return;
+    }
+    for (int i = 0; i < deviceIds.length; i++) {
+      if (deviceIds[i] < 0) {
+        continue;
+      }
+      try {
+        m_sessions[i] = CANJNI.openCANStreamSession(VelocityEstimatorConstants.POSITION_FRAME_ID | deviceIds[i],
+                                                    ID_MASK, MAX_MESSAGES);
+      } catch (RuntimeException e) {
+        DriverStation.reportWarning("No CAN stream for SPARK MAX " + deviceIds[i]
+                                    + ", timestamping its positions when read: " + e.getMessage(), false);
+      }
+    }
+  }
+
+  /**
+   * Take in the frames received since the last call. Call once per loop, right before reading the positions.
+   */
+  public void update() {
+    double now = Timer.getFPGATimestamp();
+    long nowMillis = (long) (now * 1000.0);
+    boolean allFresh = true;
+    for (int i = 0; i < m_sessions.length; i++) {
+      if (m_sessions[i] < 0) {
+        allFresh = false;
+        continue;
+      }
+      int count;
+      try {
+        count = CANJNI.readCANStreamSession(m_sessions[i], m_messages, MAX_MESSAGES);
+      } catch (Exception e) {
+        // Overflowed between loops. The oldest frames were dropped, and the newest are read next loop.
+        continue;
+      }
+      if (count > 0) {
+        // The HAL timestamp is the low 32 bits of FPGA time in milliseconds.
+        long age = (nowMillis - m_messages[count - 1].timestamp) & 0xFFFFFFFFL;
+        m_frameTimes[i] = now - age / 1000.0;
+      }
+      allFresh &= now - m_frameTimes[i] <= VelocityEstimatorConstants.MAX_FRAME_AGE;
+    }
+    Dashboard.putBoolean("Velocity/FrameTimes", allFresh, Dashboard.Priority.LOW);
+  }
+
+  /**
+   * @param index    Controller index, in the order given to the constructor.
+   * @param readTime When the position was read, s.
+   * @return When the controller sent its latest position, or {@code readTime} if that isn't known or is stale.
+   */
+  public double getFrameTime(int index, double readTime) {
+    double frameTime = m_frameTimes[index];
+    return readTime - frameTime <= VelocityEstimatorConstants.MAX_FRAME_AGE ? frameTime : readTime;
+  }
+}
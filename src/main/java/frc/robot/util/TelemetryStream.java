@@ -0,0 +1,198 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StructArrayPublisher;
+import edu.wpi.first.networktables.StructPublisher;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import frc.robot.Constants.TelemetryConstants;
+import java.util.List;
+
+/**
+ * Bandwidth-conscious drive telemetry, replacing YAGSL's HIGH verbosity output. Everything is published under
+ * {@code Telemetry/}, with a minimum period per topic, and every publish is counted against the {@link Dashboard}
+ * bandwidth budget.
+ *
+ * <p>Every topic is a WPILib struct or a plain integer, so AdvantageScope and Elastic read them as they are.
+ *
+ * <ul>
+ *   <li>{@code Pose}: struct {@link Pose2d}, rounded to {@link TelemetryConstants#POSITION_QUANTUM} and
+ *       {@link TelemetryConstants#ANGLE_QUANTUM}. Only sent when the rounded pose changes, so a robot standing still
+ *       sends nothing. The {@link Field2d} robot pose is set at the same time, so the field widget costs no more.
+ *   <li>{@code ModuleStates}: struct array of {@link SwerveModuleState}.
+ *   <li>{@code Trajectory/Poses}: struct array of {@link Pose2d}, sent once per distinct trajectory, with
+ *       {@code Trajectory/Hash} identifying it. While following, only {@code Trajectory/Index} changes.
+ * </ul>
+ */
+public class TelemetryStream {
+  private static final int TRAJECTORY_STRIDE = 5;
+  private static final int POSE_BYTES = 3 * Double.BYTES;
+  private static final int MODULE_STATE_BYTES = 2 * Double.BYTES;
+
+  /**
+   * Enforces a minimum period between publishes on one topic.
+   */
+  private static final class RateLimit {
+    private final double period;
+    private double nextTime = Double.NEGATIVE_INFINITY;
+
+    RateLimit(double period) {
+      this.period = period;
+    }
+
+    boolean tryAcquire(double now) {
+      if (now < nextTime) {
+        return false;
+      }
+      nextTime = now + period;
+      return true;
+    }
+  }
+
+  private final Field2d m_field;
+  private final StructPublisher<Pose2d> m_posePublisher;
+  private final StructArrayPublisher<SwerveModuleState> m_moduleStatesPublisher;
+  private final StructArrayPublisher<Pose2d> m_trajectoryPublisher;
+  private final IntegerPublisher m_trajectoryHashPublisher;
+  private final IntegerPublisher m_trajectoryIndexPublisher;
+
+  private final RateLimit m_poseLimit = new RateLimit(TelemetryConstants.POSE_PERIOD);
+  private final RateLimit m_moduleStatesLimit = new RateLimit(TelemetryConstants.MODULE_STATES_PERIOD);
+  private final RateLimit m_trajectoryIndexLimit = new RateLimit(TelemetryConstants.TRAJECTORY_INDEX_PERIOD);
+
+  private boolean m_poseSent;
+  private long m_sentX;
+  private long m_sentY;
+  private long m_sentTheta;
+  private long m_trajectoryHash;
+  private long m_trajectoryIndex = -1;
+
+  /**
+   * Create the publishers.
+   *
+   * @param instance NetworkTables instance to publish on.
+   * @param field    Field widget to move the robot on along with {@code Pose}, already put on the dashboard.
+   */
+  public TelemetryStream(NetworkTableInstance instance, Field2d field) {
+    m_field = field;
+    NetworkTable table = instance.getTable("Telemetry");
+    m_posePublisher = table.getStructTopic("Pose", Pose2d.struct).publish();
+    m_moduleStatesPublisher = table.getStructArrayTopic("ModuleStates", SwerveModuleState.struct).publish();
+    m_trajectoryPublisher = table.getStructArrayTopic("Trajectory/Poses", Pose2d.struct).publish();
+    m_trajectoryHashPublisher = table.getIntegerTopic("Trajectory/Hash").publish();
+    m_trajectoryIndexPublisher = table.getIntegerTopic("Trajectory/Index").publish();
+  }
+
+  /**
+   * Publish the robot pose and module states, as far as the rate limits allow. Call every loop.
+   *
+   * @param pose         Estimated robot pose.
+   * @param moduleStates Measured module states.
+   */
+  public void update(Pose2d pose, SwerveModuleState[] moduleStates) {
+    double now = Timer.getFPGATimestamp();
+    long x = Math.round(pose.getX() / TelemetryConstants.POSITION_QUANTUM);
+    long y = Math.round(pose.getY() / TelemetryConstants.POSITION_QUANTUM);
+    long theta = Math.round(pose.getRotation().getRadians() / TelemetryConstants.ANGLE_QUANTUM);
+
+    boolean poseChanged = !m_poseSent || x != m_sentX || y != m_sentY || theta != m_sentTheta;
+    if (poseChanged && m_poseLimit.tryAcquire(now)
+        && Dashboard.tryReserve("Telemetry/Pose", 2 * POSE_BYTES, Dashboard.Priority.NORMAL)) {
+      Pose2d rounded = new Pose2d(x * TelemetryConstants.POSITION_QUANTUM,
+                                  y * TelemetryConstants.POSITION_QUANTUM,
+                                  new Rotation2d(theta * TelemetryConstants.ANGLE_QUANTUM));
+      m_posePublisher.set(rounded);
+      m_field.setRobotPose(rounded);
+      m_poseSent = true;
+      m_sentX = x;
+      m_sentY = y;
+      m_sentTheta = theta;
+    }
+
+    if (m_moduleStatesLimit.tryAcquire(now)
+        && Dashboard.tryReserve("Telemetry/ModuleStates", moduleStates.length * MODULE_STATE_BYTES,
+                                Dashboard.Priority.LOW)) {
+      m_moduleStatesPublisher.set(moduleStates);
+    }
+  }
+
+  /**
+   * Send a trajectory for the dashboard to draw, unless it is the one already sent.
+   *
+   * @param trajectory The trajectory.
+   */
+  public void postTrajectory(CompactTrajectory trajectory) {
+    long hash = trajectory.getContentHash();
+    if (hash == m_trajectoryHash) {
+      return;
+    }
+    List<Trajectory.State> states = trajectory.toTrajectory(TRAJECTORY_STRIDE).getStates();
+    Pose2d[] poses = new Pose2d[states.size()];
+    for (int i = 0; i < poses.length; i++) {
+      poses[i] = states.get(i).poseMeters;
+    }
+    sendTrajectory(hash, poses);
+  }
+
+  /**
+   * Send a trajectory for the dashboard to draw, unless it is the one already sent.
+   *
+   * @param trajectory The trajectory.
+   */
+  public void postTrajectory(Trajectory trajectory) {
+    List<Trajectory.State> states = trajectory.getStates();
+    long hash = 1;
+    for (Trajectory.State state : states) {
+      hash = 31 * hash + Math.round(state.poseMeters.getX() / TelemetryConstants.POSITION_QUANTUM);
+      hash = 31 * hash + Math.round(state.poseMeters.getY() / TelemetryConstants.POSITION_QUANTUM);
+      hash = 31 * hash + Double.hashCode(state.timeSeconds);
+    }
+    if (hash == m_trajectoryHash) {
+      return;
+    }
+    Pose2d[] poses = new Pose2d[(states.size() + TRAJECTORY_STRIDE - 1) / TRAJECTORY_STRIDE];
+    for (int i = 0; i < poses.length; i++) {
+      poses[i] = states.get(i * TRAJECTORY_STRIDE).poseMeters;
+    }
+    sendTrajectory(hash, poses);
+  }
+
+  /**
+   * Mark how far along the current trajectory the robot is. Only the index is sent, not the trajectory.
+   *
+   * @param index Index into the posted {@code Trajectory/Poses} array.
+   */
+  public void setTrajectoryIndex(int index) {
+    if (index != m_trajectoryIndex && m_trajectoryIndexLimit.tryAcquire(Timer.getFPGATimestamp())
+        && Dashboard.tryReserve("Telemetry/Trajectory/Index", Long.BYTES, Dashboard.Priority.LOW)) {
+      m_trajectoryIndex = index;
+      m_trajectoryIndexPublisher.set(index);
+    }
+  }
+
+  /**
+   * Mark how far along the current trajectory the robot is by time.
+   *
+   * @param trajectory The trajectory being followed, already posted.
+   * @param time       Time since the start of the trajectory, s.
+   */
+  public void setTrajectoryTime(CompactTrajectory trajectory, double time) {
+    setTrajectoryIndex(trajectory.getIndex(time) / TRAJECTORY_STRIDE);
+  }
+
+  private void sendTrajectory(long hash, Pose2d[] poses) {
+    // Sent once per trajectory, so always let it through.
+    Dashboard.tryReserve("Telemetry/Trajectory/Poses", poses.length * POSE_BYTES + Long.BYTES,
+                         Dashboard.Priority.HIGH);
+    m_trajectoryHash = hash;
+    m_trajectoryIndex = -1;
+    m_trajectoryPublisher.set(poses);
+    m_trajectoryHashPublisher.set(hash);
+  }
+}
@@ -0,0 +1,150 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.TractionConstants;
+import java.util.Arrays;
+
+/**
+ * Keeps commanded chassis speeds within what the wheels can grip.
+ *
+ * <p>Each loop the ground velocity is estimated from the gyro yaw rate and the modules: every module's measured
+ * velocity, less the rotation the gyro says it is seeing, implies a chassis translation, and the median of those
+ * ignores a wheel or two that are spinning or skidding. A module whose measured speed differs from what the ground
+ * velocity says it should be is slipping.
+ *
+ * <p>The command is then moved from the last command toward the requested speeds, scaled so that no module's velocity
+ * changes faster than the wheel coefficient of friction allows. While any module slips, the command restarts from the
+ * ground velocity instead, so the wheels come back to the speed of the carpet and regain grip. Scaling the whole
+ * chassis change keeps the modules consistent with each other, so the robot still drives the path it was asked to.
+ */
+public class TractionController {
+  private static final double GRAVITY = 9.81; // m/s^2
+
+  private final Translation2d[] m_moduleLocations;
+  private final double m_maxAcceleration;
+  private final double[] m_impliedVx;
+  private final double[] m_impliedVy;
+  private final boolean[] m_slipping;
+  private final double[] m_sorted;
+
+  private double m_lastCommandVx;
+  private double m_lastCommandVy;
+  private double m_lastCommandOmega;
+  private double m_lastTime = Double.NaN;
+  private double m_lastYaw;
+  private double m_scale = 1.0;
+
+  /**
+   * Create a traction controller.
+   *
+   * @param moduleLocations Module locations relative to the robot center, in the same order as the measured states.
+   * @param wheelCof        Wheel coefficient of friction, from the PathPlanner settings.
+   */
+  public TractionController(Translation2d[] moduleLocations, double wheelCof) {
+    m_moduleLocations = moduleLocations;
+    m_maxAcceleration = wheelCof * GRAVITY * TractionConstants.FRICTION_MARGIN;
+    m_impliedVx = new double[moduleLocations.length];
+    m_impliedVy = new double[moduleLocations.length];
+    m_slipping = new boolean[moduleLocations.length];
+    m_sorted = new double[moduleLocations.length];
+  }
+
+  /**
+   * Limit a robot relative chassis speed command to the available traction.
+   *
+   * @param desired  Requested robot relative speeds.
+   * @param measured Measured module states, in the order of the module locations.
+   * @param yaw      Gyro yaw.
+   * @return Robot relative speeds to send to the modules.
+   */
+  public ChassisSpeeds calculate(ChassisSpeeds desired, SwerveModuleState[] measured, Rotation2d yaw) {
+    double now = Timer.getFPGATimestamp();
+    double dt = now - m_lastTime;
+    double yawRadians = yaw.getRadians();
+    boolean fresh = !Double.isNaN(m_lastTime) && dt > 0.0 && dt < TractionConstants.RESET_TIMEOUT;
+    double omega = fresh ? MathUtil.angleModulus(yawRadians - m_lastYaw) / dt : 0.0;
+    m_lastTime = now;
+    m_lastYaw = yawRadians;
+
+    // Ground velocity from the gyro and the median module.
+    for (int i = 0; i < m_moduleLocations.length; i++) {
+      double angle = measured[i].angle.getRadians();
+      double speed = measured[i].speedMetersPerSecond;
+      m_impliedVx[i] = speed * Math.cos(angle) + omega * m_moduleLocations[i].getY();
+      m_impliedVy[i] = speed * Math.sin(angle) - omega * m_moduleLocations[i].getX();
+    }
+    double groundVx = median(m_impliedVx);
+    double groundVy = median(m_impliedVy);
+
+    boolean anySlipping = false;
+    for (int i = 0; i < m_moduleLocations.length; i++) {
+      double angle = measured[i].angle.getRadians();
+      double expectedVx = groundVx - omega * m_moduleLocations[i].getY();
+      double expectedVy = groundVy + omega * m_moduleLocations[i].getX();
+      double expectedSpeed = expectedVx * Math.cos(angle) + expectedVy * Math.sin(angle);
+      double slip = Math.abs(measured[i].speedMetersPerSecond - expectedSpeed);
+      m_slipping[i] = slip > TractionConstants.SLIP_THRESHOLD
+                      && slip > TractionConstants.SLIP_RATIO * Math.abs(expectedSpeed);
+      anySlipping |= m_slipping[i];
+    }
+
+    double baseVx = m_lastCommandVx;
+    double baseVy = m_lastCommandVy;
+    double baseOmega = m_lastCommandOmega;
+    if (!fresh || anySlipping) {
+      baseVx = groundVx;
+      baseVy = groundVy;
+      baseOmega = omega;
+    }
+
+    // Largest fraction of the requested change that keeps every module under the acceleration limit.
+    double deltaVx = desired.vxMetersPerSecond - baseVx;
+    double deltaVy = desired.vyMetersPerSecond - baseVy;
+    double deltaOmega = desired.omegaRadiansPerSecond - baseOmega;
+    double maxDelta = m_maxAcceleration * (fresh ? dt : TractionConstants.RESET_TIMEOUT);
+    double scale = 1.0;
+    for (Translation2d location : m_moduleLocations) {
+      double moduleDelta = Math.hypot(deltaVx - deltaOmega * location.getY(),
+                                      deltaVy + deltaOmega * location.getX());
+      if (moduleDelta > maxDelta) {
+        scale = Math.min(scale, maxDelta / moduleDelta);
+      }
+    }
+    m_scale = scale;
+
+    m_lastCommandVx = baseVx + deltaVx * scale;
+    m_lastCommandVy = baseVy + deltaVy * scale;
+    m_lastCommandOmega = baseOmega + deltaOmega * scale;
+
+    Dashboard.putBoolean("Traction/Slipping", anySlipping, Dashboard.Priority.NORMAL);
+    Dashboard.putNumber("Traction/Scale", scale, Dashboard.Priority.LOW);
+    return new ChassisSpeeds(m_lastCommandVx, m_lastCommandVy, m_lastCommandOmega);
+  }
+
+  /**
+   * @return Fraction of the requested change the last {@link #calculate} allowed, 1 if it wasn't limited.
+   */
+  public double getScale() {
+    return m_scale;
+  }
+
+  /**
+   * @param module Module index.
+   * @return Whether the module was slipping in the last {@link #calculate}.
+   */
+  public boolean isSlipping(int module) {
+    return m_slipping[module];
+  }
+
+  private double median(double[] values) {
+    System.arraycopy(values, 0, m_sorted, 0, values.length);
+    Arrays.sort(m_sorted);
+    int middle = m_sorted.length / 2;
+    return m_sorted.length % 2 == 0 ? (m_sorted[middle - 1] + m_sorted[middle]) / 2 : m_sorted[middle];
+  }
+}
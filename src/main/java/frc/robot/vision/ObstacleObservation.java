@@ -0,0 +1,16 @@
+package frc.robot.vision;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Something on the field the robot has to drive around, like another robot or a dropped game piece, seen by an
+ * object detection camera.
+ *
+ * @param timestampSeconds FPGA timestamp of when the frame was captured.
+ * @param position         Field-relative center of the object.
+ * @param radiusMeters     Radius of a circle covering the object.
+ */
+public record ObstacleObservation(double timestampSeconds,
+                                  Translation2d position,
+                                  double radiusMeters) {
+}
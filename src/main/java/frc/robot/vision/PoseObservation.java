@@ -0,0 +1,19 @@
+package frc.robot.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * A single robot pose estimate produced by a camera from the AprilTags it can see.
+ *
+ * @param timestampSeconds   FPGA timestamp of when the frame was captured, not when it was received.
+ * @param pose               Estimated field-relative robot pose.
+ * @param ambiguity          Pose ambiguity from 0 to 1, only meaningful for single tag estimates.
+ * @param tagCount           Number of tags used to produce the estimate.
+ * @param averageTagDistance Average distance from the camera to the tags used, in meters.
+ */
+public record PoseObservation(double timestampSeconds,
+                              Pose2d pose,
+                              double ambiguity,
+                              int tagCount,
+                              double averageTagDistance) {
+}
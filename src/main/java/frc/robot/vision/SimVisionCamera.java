@@ -0,0 +1,174 @@
+package frc.robot.vision;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Stand-in for a real camera in simulation. Captures frames at a fixed rate from the simulated robot pose, figures
+ * out which tags and simulated robots would be in view, adds noise that grows with distance and holds each frame
+ * back for the configured latency before handing it out.
+ */
+public class SimVisionCamera implements VisionCamera {
+  private final String name;
+  private final Supplier<Pose2d> truePose;
+  private final Supplier<List<Translation2d>> simulatedRobots;
+  private final double robotRadiusMeters;
+  private final Transform2d robotToCamera;
+  private final List<Pose2d> tagPoses = new ArrayList<>();
+  private final double halfFovRadians;
+  private final double maxRangeMeters;
+  private final double translationNoiseMeters;
+  private final double rotationNoiseRadians;
+  private final double latencySeconds;
+  private final double framePeriodSeconds;
+  private final Random random = new Random();
+  private final ArrayDeque<PoseObservation> inFlight = new ArrayDeque<>();
+  private final ArrayDeque<ObstacleObservation> obstaclesInFlight = new ArrayDeque<>();
+  private double lastCaptureTime = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Create a simulated camera.
+   *
+   * @param name                   Camera name.
+   * @param truePose               Supplier of the ground truth robot pose. Called from the vision thread, so it must
+   *                               be thread safe.
+   * @param simulatedRobots        Supplier of the positions of other simulated robots, reported as obstacles when in
+   *                               view. Called from the vision thread, so it must be thread safe.
+   * @param robotRadiusMeters      Radius reported for each simulated robot.
+   * @param robotToCamera          Camera position and yaw on the robot.
+   * @param fov                    Horizontal field of view.
+   * @param maxRangeMeters         Tags further than this are not detected.
+   * @param translationNoiseMeters Standard deviation of the position noise for a tag 1 m away.
+   * @param rotationNoise          Standard deviation of the heading noise for a tag 1 m away.
+   * @param latencySeconds         Time between capture and the observation being available.
+   * @param framesPerSecond        Capture rate.
+   * @param fieldLayout            Field layout used to place the tags.
+   */
+  public SimVisionCamera(String name,
+                         Supplier<Pose2d> truePose,
+                         Supplier<List<Translation2d>> simulatedRobots,
+                         double robotRadiusMeters,
+                         Transform2d robotToCamera,
+                         Rotation2d fov,
+                         double maxRangeMeters,
+                         double translationNoiseMeters,
+                         Rotation2d rotationNoise,
+                         double latencySeconds,
+                         double framesPerSecond,
+                         AprilTagFieldLayout fieldLayout) {
+    this.name = name;
+    this.truePose = truePose;
+    this.simulatedRobots = simulatedRobots;
+    this.robotRadiusMeters = robotRadiusMeters;
+    this.robotToCamera = robotToCamera;
+    this.halfFovRadians = fov.getRadians() / 2.0;
+    this.maxRangeMeters = maxRangeMeters;
+    this.translationNoiseMeters = translationNoiseMeters;
+    this.rotationNoiseRadians = rotationNoise.getRadians();
+    this.latencySeconds = latencySeconds;
+    this.framePeriodSeconds = 1.0 / framesPerSecond;
+    for (AprilTag tag : fieldLayout.getTags()) {
+      tagPoses.add(tag.pose.toPose2d());
+    }
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public List<PoseObservation> getUnreadObservations() {
+    double now = Timer.getFPGATimestamp();
+    if (now - lastCaptureTime >= framePeriodSeconds) {
+      lastCaptureTime = now;
+      capture(now);
+    }
+
+    List<PoseObservation> ready = new ArrayList<>();
+    while (!inFlight.isEmpty() && inFlight.peekFirst().timestampSeconds() + latencySeconds <= now) {
+      ready.add(inFlight.pollFirst());
+    }
+    return ready;
+  }
+
+  @Override
+  public List<ObstacleObservation> getUnreadObstacles() {
+    // Frames are captured by getUnreadObservations, which the vision thread always calls first.
+    double now = Timer.getFPGATimestamp();
+    List<ObstacleObservation> ready = new ArrayList<>();
+    while (!obstaclesInFlight.isEmpty() && obstaclesInFlight.peekFirst().timestampSeconds() + latencySeconds <= now) {
+      ready.add(obstaclesInFlight.pollFirst());
+    }
+    return ready;
+  }
+
+  /**
+   * Build an observation from the tags visible at the current true pose and queue it behind the latency.
+   *
+   * @param captureTime FPGA timestamp of the capture.
+   */
+  private void capture(double captureTime) {
+    Pose2d robotPose = truePose.get();
+    if (robotPose == null) {
+      return;
+    }
+    Pose2d cameraPose = robotPose.transformBy(robotToCamera);
+
+    for (Translation2d robot : simulatedRobots.get()) {
+      Translation2d cameraToRobot = robot.minus(cameraPose.getTranslation());
+      double distance = cameraToRobot.getNorm();
+      double bearing = cameraToRobot.getAngle().minus(cameraPose.getRotation()).getRadians();
+      if (distance <= maxRangeMeters && Math.abs(bearing) <= halfFovRadians) {
+        double noise = translationNoiseMeters * Math.max(1.0, distance);
+        obstaclesInFlight.addLast(new ObstacleObservation(
+            captureTime,
+            new Translation2d(robot.getX() + random.nextGaussian() * noise,
+                              robot.getY() + random.nextGaussian() * noise),
+            robotRadiusMeters));
+      }
+    }
+
+    int tagCount = 0;
+    double totalDistance = 0.0;
+    for (Pose2d tagPose : tagPoses) {
+      Translation2d cameraToTag = tagPose.getTranslation().minus(cameraPose.getTranslation());
+      double distance = cameraToTag.getNorm();
+      if (distance > maxRangeMeters || distance < 1e-6) {
+        continue;
+      }
+      // The tag must be inside the field of view and facing the camera.
+      double bearing = cameraToTag.getAngle().minus(cameraPose.getRotation()).getRadians();
+      boolean facing = cameraToTag.getX() * tagPose.getRotation().getCos()
+                       + cameraToTag.getY() * tagPose.getRotation().getSin() < 0.0;
+      if (Math.abs(bearing) <= halfFovRadians && facing) {
+        tagCount++;
+        totalDistance += distance;
+      }
+    }
+    if (tagCount == 0) {
+      return;
+    }
+
+    double averageDistance = totalDistance / tagCount;
+    // Noise grows with distance squared and shrinks with more tags, like the real solver.
+    double noiseScale = Math.max(1.0, averageDistance * averageDistance) / Math.sqrt(tagCount);
+    Pose2d noisyPose = new Pose2d(
+        robotPose.getX() + random.nextGaussian() * translationNoiseMeters * noiseScale,
+        robotPose.getY() + random.nextGaussian() * translationNoiseMeters * noiseScale,
+        robotPose.getRotation().plus(new Rotation2d(random.nextGaussian() * rotationNoiseRadians * noiseScale)));
+    double ambiguity = tagCount > 1 ? 0.0 : random.nextDouble() * 0.3;
+
+    inFlight.addLast(new PoseObservation(captureTime, noisyPose, ambiguity, tagCount, averageDistance));
+  }
+}
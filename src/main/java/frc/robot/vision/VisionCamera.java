@@ -0,0 +1,30 @@
+package frc.robot.vision;
+
+import java.util.List;
+
+/**
+ * A source of AprilTag pose observations, and optionally obstacle detections. Implementations are polled from the
+ * vision thread, never from the main robot loop, so they are allowed to block briefly while reading from the camera.
+ */
+public interface VisionCamera {
+  /**
+   * @return The name of the camera, used for telemetry.
+   */
+  String getName();
+
+  /**
+   * Get every observation that arrived since the last call.
+   *
+   * @return Observations in capture order, empty if nothing new arrived.
+   */
+  List<PoseObservation> getUnreadObservations();
+
+  /**
+   * Get every obstacle detected since the last call. Only cameras running object detection report any.
+   *
+   * @return Obstacles in capture order, empty if nothing new arrived.
+   */
+  default List<ObstacleObservation> getUnreadObstacles() {
+    return List.of();
+  }
+}
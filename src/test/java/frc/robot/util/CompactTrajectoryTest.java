@@ -0,0 +1,62 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Resamples a straight line driven at constant acceleration, whose states don't line up with the sample period, and
+ * checks samples against the exact motion.
+ */
+class CompactTrajectoryTest {
+  private static final double ACCELERATION = 4.0; // m/s^2
+  private static final double STATE_PERIOD = 0.013; // s, PathPlanner state spacing
+  private static final int STATES = 78; // last state at 1.001 s, a millisecond past a whole sample period
+  // m, linear interpolation of the quadratic position between states and then samples.
+  private static final double POSITION_TOLERANCE = ACCELERATION * STATE_PERIOD * STATE_PERIOD / 4;
+  private static final double VELOCITY_TOLERANCE = 1e-9; // m/s, velocity is linear so interpolation is exact
+
+  @Test
+  void samplesNearTheEndInterpolateToTheFinalState() {
+    CompactTrajectory trajectory = CompactTrajectory.fromPathPlanner(buildTrajectory(),
+                                                                     CompactTrajectory.DEFAULT_SAMPLE_PERIOD);
+    double totalTime = (STATES - 1) * STATE_PERIOD;
+    assertEquals(totalTime, trajectory.getTotalTime(), 1e-12);
+
+    CompactTrajectory.Sample sample = new CompactTrajectory.Sample();
+    double[] times = {0.0, 0.5, totalTime - 0.01, totalTime - 0.0005, totalTime - 1e-6, totalTime, totalTime + 1.0};
+    for (double time : times) {
+      trajectory.sample(time, sample);
+      double t = Math.min(time, totalTime);
+      assertEquals(t, sample.time, 1e-12);
+      assertEquals(ACCELERATION * t, sample.velocity, VELOCITY_TOLERANCE, "velocity at " + time + " s");
+      assertEquals(ACCELERATION * t * t / 2, sample.x, POSITION_TOLERANCE, "position at " + time + " s");
+      assertEquals(0.0, sample.y, 1e-12);
+    }
+  }
+
+  /**
+   * States every {@link #STATE_PERIOD} along x, accelerating from rest.
+   */
+  private static PathPlannerTrajectory buildTrajectory() {
+    List<PathPlannerTrajectoryState> states = new ArrayList<>();
+    for (int i = 0; i < STATES; i++) {
+      double t = i * STATE_PERIOD;
+      PathPlannerTrajectoryState state = new PathPlannerTrajectoryState();
+      state.timeSeconds = t;
+      state.pose = new Pose2d(ACCELERATION * t * t / 2, 0.0, Rotation2d.kZero);
+      state.heading = Rotation2d.kZero;
+      state.linearVelocity = ACCELERATION * t;
+      state.fieldSpeeds = new ChassisSpeeds(ACCELERATION * t, 0.0, 0.0);
+      states.add(state);
+    }
+    return new PathPlannerTrajectory(states, List.of());
+  }
+}
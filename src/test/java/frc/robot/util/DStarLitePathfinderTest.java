@@ -0,0 +1,145 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plans on a small grid without the planning thread. A repaired search must find paths as short as a search from
+ * scratch on the same obstacles, and starts and goals that are blocked or off the grid must still get a path.
+ */
+class DStarLitePathfinderTest {
+  private static final double NODE_SIZE = 0.2; // m
+  private static final int ROWS = 30;
+  private static final int COLS = 60;
+  private static final int WALL_COL = 30;
+  private static final int GAP_ROW = 10; // first of the two free cells in the wall
+  private static final int REPAIRS = 200;
+  private static final double MAX_BOX_SIZE = 1.5; // m
+  private static final double TOLERANCE = 1e-9; // m
+
+  private static final Translation2d START = new Translation2d(1.0, 3.0);
+  private static final Translation2d GOAL = new Translation2d(11.0, 3.0);
+
+  /**
+   * Free field split by a wall down the middle, with a two cell gap.
+   */
+  private static boolean[][] buildGrid() {
+    boolean[][] grid = new boolean[ROWS][COLS];
+    for (int row = 0; row < ROWS; row++) {
+      grid[row][WALL_COL] = row != GAP_ROW && row != GAP_ROW + 1;
+    }
+    return grid;
+  }
+
+  @Test
+  void repairedPathIsAsShortAsPlanningFromScratch() {
+    DStarLitePathfinder repaired = new DStarLitePathfinder(buildGrid(), NODE_SIZE);
+    repaired.plan(START, GOAL, List.of(), true);
+    double unobstructedLength = repaired.getPathLength();
+
+    Random random = new Random(6045);
+    Translation2d start = START;
+    int lengthChanges = 0;
+    int unreachable = 0;
+    double lastLength = unobstructedLength;
+    for (int i = 0; i < REPAIRS; i++) {
+      // Every few repairs, close the gap, so the goal can't be reached at all.
+      List<Pair<Translation2d, Translation2d>> obstacles = new ArrayList<>();
+      if (i % 4 == 1) {
+        obstacles.add(box(WALL_COL * NODE_SIZE + 0.1, GAP_ROW * NODE_SIZE + 0.1, 0.05, 0.3));
+      }
+      for (int j = random.nextInt(4); j > 0; j--) {
+        obstacles.add(box(random.nextDouble() * COLS * NODE_SIZE, random.nextDouble() * ROWS * NODE_SIZE,
+                          random.nextDouble() * MAX_BOX_SIZE, random.nextDouble() * MAX_BOX_SIZE));
+      }
+      // The robot creeps along, sometimes into an obstacle, like it does while following the path.
+      start = new Translation2d(clamp(start.getX() + random.nextDouble(-0.3, 0.5), 0.0, WALL_COL * NODE_SIZE),
+                                clamp(start.getY() + random.nextDouble(-0.4, 0.4), 0.0, ROWS * NODE_SIZE));
+
+      List<Translation2d> repairedPath = repaired.plan(start, GOAL, obstacles, false);
+      DStarLitePathfinder scratch = new DStarLitePathfinder(buildGrid(), NODE_SIZE);
+      List<Translation2d> scratchPath = scratch.plan(start, GOAL, obstacles, true);
+
+      assertEquals(scratch.getPathLength(), repaired.getPathLength(), TOLERANCE, "repair " + i + " path length");
+      assertEquals(scratchPath.isEmpty(), repairedPath.isEmpty(), "repair " + i + " found a path");
+      if (repaired.getPathLength() != lastLength) {
+        lengthChanges++;
+      }
+      if (repairedPath.isEmpty()) {
+        unreachable++;
+      }
+      lastLength = repaired.getPathLength();
+    }
+    // Otherwise the obstacles never got in the way and the repairs weren't tested.
+    assertTrue(lengthChanges > REPAIRS / 2, "the path length only changed " + lengthChanges + " times");
+    assertTrue(unreachable < REPAIRS / 2, unreachable + " repairs found no path");
+  }
+
+  @Test
+  void blockedStartAndGoalPlanFromTheNearestFreeCell() {
+    DStarLitePathfinder pathfinder = new DStarLitePathfinder(buildGrid(), NODE_SIZE);
+    // The start is inside the wall, and the goal is inside a dynamic obstacle.
+    Translation2d start = new Translation2d(WALL_COL * NODE_SIZE + 0.1, 1.0);
+    Translation2d goal = new Translation2d(9.0, 4.0);
+    List<Translation2d> path = pathfinder.plan(start, goal, List.of(box(9.0, 4.0, 0.6, 0.6)), true);
+
+    assertFalse(path.isEmpty(), "no path from a blocked start to a blocked goal");
+    assertEquals(start, path.get(0));
+    assertEquals(goal, path.get(path.size() - 1));
+    assertTrue(Double.isFinite(pathfinder.getPathLength()));
+  }
+
+  @Test
+  void outOfBoundsStartAndGoalPlanFromTheNearestCell() {
+    DStarLitePathfinder pathfinder = new DStarLitePathfinder(buildGrid(), NODE_SIZE);
+    Translation2d start = new Translation2d(-1.0, -0.5);
+    Translation2d goal = new Translation2d(COLS * NODE_SIZE + 2.0, ROWS * NODE_SIZE + 1.0);
+    List<Translation2d> path = pathfinder.plan(start, goal, List.of(), true);
+
+    assertFalse(path.isEmpty(), "no path between points off the grid");
+    assertEquals(start, path.get(0));
+    assertEquals(goal, path.get(path.size() - 1));
+    for (Translation2d point : path.subList(1, path.size() - 1)) {
+      assertTrue(point.getX() >= 0.0 && point.getX() <= COLS * NODE_SIZE
+                 && point.getY() >= 0.0 && point.getY() <= ROWS * NODE_SIZE, point + " is off the grid");
+    }
+
+    // Same path as from the corner cells they are clamped to.
+    DStarLitePathfinder clamped = new DStarLitePathfinder(buildGrid(), NODE_SIZE);
+    clamped.plan(new Translation2d(NODE_SIZE / 2, NODE_SIZE / 2),
+                 new Translation2d((COLS - 0.5) * NODE_SIZE, (ROWS - 0.5) * NODE_SIZE), List.of(), true);
+    assertEquals(clamped.getPathLength(), pathfinder.getPathLength(), TOLERANCE);
+  }
+
+  @Test
+  void walledOffGoalHasNoPath() {
+    DStarLitePathfinder pathfinder = new DStarLitePathfinder(buildGrid(), NODE_SIZE);
+    pathfinder.plan(START, GOAL, List.of(), true);
+    // Close the gap: the goal's side of the wall can't be reached any more.
+    List<Translation2d> path = pathfinder.plan(START, GOAL,
+                                               List.of(box(WALL_COL * NODE_SIZE + 0.1, GAP_ROW * NODE_SIZE + 0.2,
+                                                           0.05, 0.3)), false);
+
+    assertTrue(path.isEmpty(), "found a path through a closed wall");
+    assertEquals(Double.POSITIVE_INFINITY, pathfinder.getPathLength(), 0.0);
+  }
+
+  /**
+   * Obstacle box around a center.
+   */
+  private static Pair<Translation2d, Translation2d> box(double x, double y, double width, double height) {
+    return Pair.of(new Translation2d(x - width / 2, y - height / 2), new Translation2d(x + width / 2, y + height / 2));
+  }
+
+  private static double clamp(double value, double min, double max) {
+    return Math.max(min, Math.min(max, value));
+  }
+}
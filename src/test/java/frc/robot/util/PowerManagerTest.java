@@ -0,0 +1,94 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants.PowerConstants;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class PowerManagerTest {
+  private static final double LOOP_PERIOD = 0.02; // s
+  private static final int LOOPS_PER_STEP = 500; // 10 s, several estimator time constants
+  private static final double BATTERY_RESISTANCE = 0.02; // ohm
+  // A, how far above its minimum a consumer may sit while a more important one is cut, from rounding the budget to
+  // whole amps per motor and not pushing changes smaller than a step.
+  private static final int CUT_TOLERANCE = PowerConstants.LIMIT_STEP * 4;
+
+  // Most important first.
+  private static final String[] NAMES = {"Drive", "Climber", "Arm", "Roller"};
+  private static final int[] MOTOR_COUNTS = {4, 1, 1, 1};
+  private static final int[] MIN_LIMITS = {20, 20, 10, 10};
+  private static final int[] MAX_LIMITS = {40, 60, 60, 60};
+
+  @BeforeAll
+  static void setup() {
+    assertTrue(HAL.initialize(500, 0));
+    SimHooks.pauseTiming();
+  }
+
+  @AfterAll
+  static void shutdown() {
+    SimHooks.resumeTiming();
+  }
+
+  @Test
+  void allocationsDropByPriorityAsBatterySags() {
+    PowerManager manager = new PowerManager();
+    for (int i = 0; i < NAMES.length; i++) {
+      String name = NAMES[i];
+      int motorCount = MOTOR_COUNTS[i];
+      // Every motor is stalled, so it draws whatever its limit allows.
+      manager.register(name, i, motorCount, MIN_LIMITS[i], MAX_LIMITS[i],
+                       () -> manager.getLimit(name) * motorCount, amps -> { });
+    }
+
+    double[] openCircuitVoltages = {13.0, 12.0, 11.0, 10.0, 9.0, 8.5};
+    int[][] limits = new int[openCircuitVoltages.length][NAMES.length];
+    for (int step = 0; step < openCircuitVoltages.length; step++) {
+      for (int loop = 0; loop < LOOPS_PER_STEP; loop++) {
+        RoboRioSim.setVInVoltage(BatterySim.calculateLoadedBatteryVoltage(openCircuitVoltages[step],
+                                                                          BATTERY_RESISTANCE,
+                                                                          manager.getConsumerCurrent()));
+        SimHooks.stepTiming(LOOP_PERIOD);
+        manager.update();
+      }
+      for (int i = 0; i < NAMES.length; i++) {
+        limits[step][i] = manager.getLimit(NAMES[i]);
+      }
+    }
+
+    // A full battery runs the drive flat out, at the cost of the least important mechanisms.
+    assertEquals(MAX_LIMITS[0], limits[0][0], "drive limit on a full battery");
+    assertEquals(MIN_LIMITS[3], limits[0][3], "roller limit on a full battery");
+    // A flat one leaves everyone at the minimum reserved for them, give or take a change too small to push.
+    for (int i = 0; i < NAMES.length; i++) {
+      int limit = limits[limits.length - 1][i];
+      assertTrue(limit >= MIN_LIMITS[i] && limit < MIN_LIMITS[i] + PowerConstants.LIMIT_STEP,
+                 NAMES[i] + " kept " + limit + " A on a flat battery");
+    }
+
+    for (int step = 0; step < openCircuitVoltages.length; step++) {
+      for (int i = 0; i < NAMES.length; i++) {
+        if (step > 0) {
+          assertTrue(limits[step][i] <= limits[step - 1][i],
+                     NAMES[i] + " limit rose from " + limits[step - 1][i] + " to " + limits[step][i]
+                     + " A as the battery sagged to " + openCircuitVoltages[step] + " V");
+        }
+        if (limits[step][i] >= MAX_LIMITS[i]) {
+          continue;
+        }
+        for (int lower = i + 1; lower < NAMES.length; lower++) {
+          assertTrue(limits[step][lower] <= MIN_LIMITS[lower] + CUT_TOLERANCE,
+                     NAMES[i] + " was cut to " + limits[step][i] + " A while " + NAMES[lower] + " kept "
+                     + limits[step][lower] + " A at " + openCircuitVoltages[step] + " V");
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package frc.robot.util;
+
+import static edu.wpi.first.units.Units.Inches;
+import static edu.wpi.first.units.Units.Kilograms;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Constants.SwerveConstants;
+import java.util.Optional;
+import org.ironmaple.simulation.SimulatedArena;
+import org.ironmaple.simulation.drivesims.COTS;
+import org.ironmaple.simulation.drivesims.SelfControlledSwerveDriveSimulation;
+import org.ironmaple.simulation.drivesims.SwerveDriveSimulation;
+import org.ironmaple.simulation.drivesims.configs.DriveTrainSimulationConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Drift benchmark. Drives maple-sim's physics hard enough to break traction and into a wall, and compares how far
+ * SlipAwareOdometry and a plain pose estimator, fed the same wheel and gyro readings, drift from the simulated
+ * ground truth. Runs headless, without the simulation GUI.
+ */
+class SlipAwareOdometryTest {
+  private static final double LOOP_PERIOD = 0.02; // s
+  private static final double MODULE_OFFSET = Units.inchesToMeters(14); // m, from center along each axis
+  private static final double WHEEL_COF = 1.19;
+  // Slip-aware drift may exceed the plain estimator's by this fraction, plus DRIFT_MARGIN, where every wheel slips
+  // the same way and it has nothing to reject.
+  private static final double DRIFT_RATIO = 1.1;
+  private static final double DRIFT_MARGIN = 0.05; // m
+
+  private SelfControlledSwerveDriveSimulation m_drive;
+  private SlipAwareOdometry m_slipAware;
+  private SwerveDrivePoseEstimator m_plain;
+  private double m_slipAwareMaxDrift;
+  private double m_plainMaxDrift;
+
+  @BeforeAll
+  static void setup() {
+    assertTrue(HAL.initialize(500, 0));
+    SimHooks.pauseTiming();
+  }
+
+  @AfterAll
+  static void shutdown() {
+    SimHooks.resumeTiming();
+  }
+
+  @Test
+  void driftsNoMoreThanPlainOdometryThroughSkidsAndCollisions() {
+    // The nearest COTS module to ours, NEOs on a 5.50:1, 3 in wheel, is an MK4 L2.
+    DriveTrainSimulationConfig config = DriveTrainSimulationConfig.Default()
+        .withGyro(COTS.ofNav2X())
+        .withSwerveModule(COTS.ofMark4(DCMotor.getNEO(1), DCMotor.getNEO(1), WHEEL_COF, 2))
+        .withTrackLengthTrackWidth(Inches.of(28), Inches.of(28))
+        .withBumperSize(Inches.of(34), Inches.of(34))
+        .withRobotMass(Kilograms.of(SwerveConstants.ROBOT_MASS));
+    // Clear of the reef, a meter from the wall on the right.
+    Pose2d start = new Pose2d(4.0, 1.5, Rotation2d.kZero);
+    m_drive = new SelfControlledSwerveDriveSimulation(new SwerveDriveSimulation(config, start));
+    SimulatedArena.getInstance().addDriveTrainSimulation(m_drive.getDriveTrainSimulation());
+
+    SwerveDriveKinematics kinematics = new SwerveDriveKinematics(
+        new Translation2d(MODULE_OFFSET, MODULE_OFFSET),
+        new Translation2d(MODULE_OFFSET, -MODULE_OFFSET),
+        new Translation2d(-MODULE_OFFSET, MODULE_OFFSET),
+        new Translation2d(-MODULE_OFFSET, -MODULE_OFFSET));
+    Rotation2d yaw = m_drive.getRawGyroAngle();
+    SwerveModulePosition[] positions = m_drive.getLatestModulePositions();
+    m_slipAware = new SlipAwareOdometry(kinematics, yaw, positions, start);
+    m_plain = new SwerveDrivePoseEstimator(kinematics, yaw, positions, start);
+
+    // Launch from a standstill, translate while spinning, brake, then pin against the wall and spin on it.
+    drive(new ChassisSpeeds(SwerveConstants.MAX_SPEED, 0.0, 0.0), false, 0.6);
+    drive(new ChassisSpeeds(3.0, 0.0, 6.0), false, 1.0);
+    drive(new ChassisSpeeds(), false, 1.0);
+    drive(new ChassisSpeeds(0.0, -3.0, 0.0), true, 2.5);
+    drive(new ChassisSpeeds(1.5, -2.0, 4.0), true, 2.0);
+    drive(new ChassisSpeeds(), false, 1.0);
+
+    Pose2d truth = m_drive.getActualPoseInSimulationWorld();
+    double slipAwareDrift = truth.getTranslation().getDistance(m_slipAware.getPose().getTranslation());
+    double plainDrift = truth.getTranslation().getDistance(m_plain.getEstimatedPosition().getTranslation());
+    System.out.printf("Drift (m): slip-aware %.3f final, %.3f max; plain %.3f final, %.3f max%n",
+                      slipAwareDrift, m_slipAwareMaxDrift, plainDrift, m_plainMaxDrift);
+
+    assertTrue(slipAwareDrift <= plainDrift * DRIFT_RATIO + DRIFT_MARGIN,
+               "slip-aware odometry ended " + slipAwareDrift + " m off, plain " + plainDrift + " m");
+    assertTrue(m_slipAwareMaxDrift <= m_plainMaxDrift * DRIFT_RATIO + DRIFT_MARGIN,
+               "slip-aware odometry drifted up to " + m_slipAwareMaxDrift + " m, plain " + m_plainMaxDrift + " m");
+  }
+
+  /**
+   * Run the simulation with constant speeds, updating both estimators every loop.
+   */
+  private void drive(ChassisSpeeds speeds, boolean fieldCentric, double seconds) {
+    for (int loop = 0; loop < Math.round(seconds / LOOP_PERIOD); loop++) {
+      m_drive.runChassisSpeeds(speeds, new Translation2d(), fieldCentric, true);
+      SimulatedArena.getInstance().simulationPeriodic();
+      m_drive.periodic();
+      SimHooks.stepTiming(LOOP_PERIOD);
+
+      Rotation2d yaw = m_drive.getRawGyroAngle();
+      SwerveModulePosition[] positions = m_drive.getLatestModulePositions();
+      m_slipAware.update(yaw, positions, Optional.empty());
+      m_plain.update(yaw, positions);
+
+      Translation2d truth = m_drive.getActualPoseInSimulationWorld().getTranslation();
+      m_slipAwareMaxDrift = Math.max(m_slipAwareMaxDrift,
+                                     truth.getDistance(m_slipAware.getPose().getTranslation()));
+      m_plainMaxDrift = Math.max(m_plainMaxDrift, truth.getDistance(m_plain.getEstimatedPosition().getTranslation()));
+    }
+  }
+}